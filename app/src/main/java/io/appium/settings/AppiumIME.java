@@ -18,43 +18,30 @@ package io.appium.settings;
 
 import android.annotation.SuppressLint;
 import android.inputmethodservice.InputMethodService;
-import android.text.method.MetaKeyKeyListener;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.inputmethod.EditorInfo;
 
-import java.util.HashMap;
-import java.util.Map;
+import io.appium.settings.helpers.Logger;
+import io.appium.settings.ime.EditorActions;
+import io.appium.settings.ime.ImeCommandLog;
+import io.appium.settings.ime.ImeCommandResult;
+import io.appium.settings.ime.MetaKeyState;
 
 public class AppiumIME extends InputMethodService {
     private static final String TAG = AppiumIME.class.getSimpleName();
-    private static final int MAX_ACTION_NAME_LENGTH = 20;
-    private static final int ACTION_FLAG_KEY = "/".codePointAt(0);
-
-    private static final Map<String, Integer> ACTION_CODES_MAP = new HashMap<>();
-    static {
-        ACTION_CODES_MAP.put("normal", 0);
-        ACTION_CODES_MAP.put("unspecified", 0);
-        ACTION_CODES_MAP.put("none", 1);
-        ACTION_CODES_MAP.put("go", 2);
-        ACTION_CODES_MAP.put("search", 3);
-        ACTION_CODES_MAP.put("send", 4);
-        ACTION_CODES_MAP.put("next", 5);
-        ACTION_CODES_MAP.put("done", 6);
-        ACTION_CODES_MAP.put("previous", 7);
-    }
 
     private boolean isEnteringActionName = false;
     private StringBuilder actionName = new StringBuilder();
-    private long metaState = 0;
+    private final MetaKeyState metaKeyState = new MetaKeyState();
 
     @Override
     public void onStartInput(EditorInfo attribute, boolean restarting) {
-        Log.i(TAG, "onStartInput");
+        Logger.d(TAG, "onStartInput");
         super.onStartInput(attribute, restarting);
 
         if (!restarting) {
-            metaState = 0;
+            metaKeyState.reset();
             isEnteringActionName = false;
         }
         actionName = new StringBuilder();
@@ -62,11 +49,19 @@ public class AppiumIME extends InputMethodService {
 
     @Override
     public void onFinishInput() {
-        Log.i(TAG, "onFinishInput");
+        Logger.d(TAG, "onFinishInput");
         super.onFinishInput();
         actionName = new StringBuilder();
     }
 
+    @Override
+    public void onUpdateSelection(int oldSelStart, int oldSelEnd, int newSelStart, int newSelEnd,
+                                  int candidatesStart, int candidatesEnd) {
+        super.onUpdateSelection(oldSelStart, oldSelEnd, newSelStart, newSelEnd,
+                candidatesStart, candidatesEnd);
+        ImeCommandLog.getInstance().onSelectionChanged(newSelStart, newSelEnd);
+    }
+
     @Override
     public boolean onEvaluateFullscreenMode() {
         return false;
@@ -80,16 +75,20 @@ public class AppiumIME extends InputMethodService {
 
     @Override
     public boolean onKeyDown(int keyCode, KeyEvent event) {
-        Log.i(TAG, String.format("onKeyDown (keyCode='%s', event.keyCode='%s', metaState='%s')",
-                keyCode, event.getKeyCode(), event.getMetaState()));
-        final int c = getUnicodeChar(keyCode, event);
+        // Key events are very frequent, so the arguments are only created if needed
+        if (Logger.isLoggable(TAG, Log.VERBOSE)) {
+            Logger.v(TAG, "onKeyDown (keyCode='%s', event.keyCode='%s', metaState='%s')",
+                    keyCode, event.getKeyCode(), event.getMetaState());
+        }
+        final int c = metaKeyState.onKeyDown(keyCode, event);
 
         if (c == 0) {
             return super.onKeyDown(keyCode, event);
         }
 
         if (isEnteringActionName) {
-            if (c == ACTION_FLAG_KEY || actionName.toString().length() >= MAX_ACTION_NAME_LENGTH) {
+            if (c == EditorActions.ACTION_FLAG
+                    || actionName.length() >= EditorActions.MAX_ACTION_NAME_LENGTH) {
                 unshift();
             } else {
                 appendChar(c);
@@ -97,7 +96,7 @@ public class AppiumIME extends InputMethodService {
             return true;
         }
 
-        if (c == ACTION_FLAG_KEY) {
+        if (c == EditorActions.ACTION_FLAG) {
             shift();
             return true;
         }
@@ -106,9 +105,12 @@ public class AppiumIME extends InputMethodService {
 
     @Override
     public boolean onKeyUp(int keyCode, KeyEvent event) {
-        Log.i(TAG, String.format("onKeyUp (keyCode='%s', event.keyCode='%s', metaState='%s')",
-                keyCode, event.getKeyCode(), event.getMetaState()));
-        metaState = MetaKeyKeyListener.handleKeyUp(metaState, keyCode, event);
+        // Key events are very frequent, so the arguments are only created if needed
+        if (Logger.isLoggable(TAG, Log.VERBOSE)) {
+            Logger.v(TAG, "onKeyUp (keyCode='%s', event.keyCode='%s', metaState='%s')",
+                    keyCode, event.getKeyCode(), event.getMetaState());
+        }
+        metaKeyState.onKeyUp(keyCode, event);
         return super.onKeyUp(keyCode, event);
     }
 
@@ -119,34 +121,24 @@ public class AppiumIME extends InputMethodService {
 
     private void unshift() {
         isEnteringActionName = false;
-        Integer editorAction;
-        try {
-            editorAction = Integer.parseInt(actionName.toString());
-        } catch (Exception e) {
-            editorAction = ACTION_CODES_MAP.get(actionName.toString().toLowerCase());
-        }
+        Integer editorAction = EditorActions.getActionCode(actionName.toString());
         if (editorAction == null) {
-            Log.i(TAG, String.format("There is no known action code for '%s'. " +
-                    "Available action names: %s", actionName.toString(), ACTION_CODES_MAP.keySet()));
-            getCurrentInputConnection().commitText(actionName.toString(), 1);
+            Logger.i(TAG, "There is no known action code for '%s'. " +
+                    "Available action names: %s", actionName.toString(), EditorActions.getActionNames());
+            ImeCommandLog.getInstance().commitText(TAG, getCurrentInputConnection(),
+                    actionName.toString());
         } else {
-            Log.i(TAG, String.format("Matched '%s' to editor action code %s", actionName.toString(),
-                    editorAction));
-            if (!getCurrentInputConnection().performEditorAction(editorAction)) {
-                Log.w(TAG, String.format("Cannot perform editor action %s on the focused element",
-                        editorAction));
+            Logger.i(TAG, "Matched '%s' to editor action code %s", actionName.toString(),
+                    editorAction);
+            ImeCommandResult result = ImeCommandLog.getInstance().performEditorAction(TAG,
+                    getCurrentInputConnection(), actionName.toString(), editorAction);
+            if (!result.isSuccessful()) {
+                Logger.w(TAG, result.getError());
             }
         }
         actionName = new StringBuilder();
     }
 
-    private int getUnicodeChar(int keyCode, KeyEvent event) {
-        metaState = MetaKeyKeyListener.handleKeyDown(metaState, keyCode, event);
-        int c = event.getUnicodeChar(event.getMetaState());
-        metaState = MetaKeyKeyListener.adjustMetaAfterKeypress(metaState);
-        return c;
-    }
-
     private void appendChar(int c) {
         actionName.append((char) c);
     }
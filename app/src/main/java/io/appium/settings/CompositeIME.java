@@ -0,0 +1,175 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings;
+
+import android.annotation.SuppressLint;
+import android.inputmethodservice.InputMethodService;
+import android.util.Log;
+import android.view.KeyEvent;
+import android.view.inputmethod.EditorInfo;
+
+import io.appium.settings.helpers.Logger;
+import io.appium.settings.ime.EditorActions;
+import io.appium.settings.ime.ImeCommandLog;
+import io.appium.settings.ime.ImeCommandResult;
+import io.appium.settings.ime.MetaKeyState;
+import io.appium.settings.ime.Utf7TextInput;
+
+/**
+ * Combines {@link AppiumIME} and {@link UnicodeIME}, so both editor actions
+ * (/action_name_or_integer_code/) and Modified UTF-7 encoded text (&amp;...-)
+ * could be typed without switching input methods.
+ * <p>
+ * The action flag is an ordinary printable character for {@link UnicodeIME},
+ * so it has to be typed twice (//) to be entered literally.
+ * </p>
+ */
+public class CompositeIME extends InputMethodService {
+    private static final String TAG = CompositeIME.class.getSimpleName();
+
+    private boolean isEnteringActionName = false;
+    private final StringBuilder actionName = new StringBuilder();
+    private final MetaKeyState metaKeyState = new MetaKeyState();
+    private final Utf7TextInput utf7TextInput = new Utf7TextInput(TAG);
+
+    @Override
+    public void onStartInput(EditorInfo attribute, boolean restarting) {
+        Logger.d(TAG, "onStartInput");
+        super.onStartInput(attribute, restarting);
+
+        if (!restarting) {
+            metaKeyState.reset();
+        }
+        resetInput();
+    }
+
+    @Override
+    public void onFinishInput() {
+        Logger.d(TAG, "onFinishInput");
+        super.onFinishInput();
+        resetInput();
+    }
+
+    @Override
+    public void onUpdateSelection(int oldSelStart, int oldSelEnd, int newSelStart, int newSelEnd,
+                                  int candidatesStart, int candidatesEnd) {
+        super.onUpdateSelection(oldSelStart, oldSelEnd, newSelStart, newSelEnd,
+                candidatesStart, candidatesEnd);
+        ImeCommandLog.getInstance().onSelectionChanged(newSelStart, newSelEnd);
+    }
+
+    @Override
+    public boolean onEvaluateFullscreenMode() {
+        return false;
+    }
+
+    @SuppressLint("MissingSuperCall")
+    @Override
+    public boolean onEvaluateInputViewShown() {
+        return false;
+    }
+
+    @Override
+    public boolean onKeyDown(int keyCode, KeyEvent event) {
+        // Key events are very frequent, so the arguments are only created if needed
+        if (Logger.isLoggable(TAG, Log.VERBOSE)) {
+            Logger.v(TAG, "onKeyDown (keyCode='%s', event.keyCode='%s', metaState='%s')",
+                    keyCode, event.getKeyCode(), event.getMetaState());
+        }
+        int c = metaKeyState.onKeyDown(keyCode, event);
+        // Both grammars only consist of US-ASCII characters
+        if (c <= 0 || c > 0x7F) {
+            return super.onKeyDown(keyCode, event);
+        }
+
+        if (isEnteringActionName) {
+            if (c == EditorActions.ACTION_FLAG) {
+                performEditorAction();
+            } else if (actionName.length() >= EditorActions.MAX_ACTION_NAME_LENGTH) {
+                // Too long for an action name, so it has been a slash followed by text
+                commitText("" + EditorActions.ACTION_FLAG + actionName);
+                actionName.setLength(0);
+                isEnteringActionName = false;
+                return onUnshiftedKeyDown(keyCode, event, c);
+            } else {
+                actionName.append((char) c);
+            }
+            return true;
+        }
+        if (c == EditorActions.ACTION_FLAG) {
+            // The action flag is not a part of the Modified BASE64 alphabet,
+            // so it terminates an unfinished encoded part
+            utf7TextInput.flush(getCurrentInputConnection());
+            isEnteringActionName = true;
+            actionName.setLength(0);
+            return true;
+        }
+        return onUnshiftedKeyDown(keyCode, event, c);
+    }
+
+    private boolean onUnshiftedKeyDown(int keyCode, KeyEvent event, int c) {
+        if (!utf7TextInput.onChar((char) c, getCurrentInputConnection())) {
+            return super.onKeyDown(keyCode, event);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean onKeyUp(int keyCode, KeyEvent event) {
+        // Key events are very frequent, so the arguments are only created if needed
+        if (Logger.isLoggable(TAG, Log.VERBOSE)) {
+            Logger.v(TAG, "onKeyUp (keyCode='%s', event.keyCode='%s', metaState='%s')",
+                    keyCode, event.getKeyCode(), event.getMetaState());
+        }
+        metaKeyState.onKeyUp(keyCode, event);
+        return super.onKeyUp(keyCode, event);
+    }
+
+    private void performEditorAction() {
+        isEnteringActionName = false;
+        String name = actionName.toString();
+        actionName.setLength(0);
+        if (name.isEmpty()) {
+            commitText(String.valueOf(EditorActions.ACTION_FLAG));
+            return;
+        }
+
+        Integer editorAction = EditorActions.getActionCode(name);
+        if (editorAction == null) {
+            Logger.i(TAG, "There is no known action code for '%s'. " +
+                    "Available action names: %s", name, EditorActions.getActionNames());
+            commitText(name);
+            return;
+        }
+        Logger.i(TAG, "Matched '%s' to editor action code %s", name, editorAction);
+        ImeCommandResult result = ImeCommandLog.getInstance().performEditorAction(TAG,
+                getCurrentInputConnection(), name, editorAction);
+        if (!result.isSuccessful()) {
+            Logger.w(TAG, result.getError());
+        }
+    }
+
+    private void commitText(String text) {
+        ImeCommandLog.getInstance().commitText(TAG, getCurrentInputConnection(), text);
+    }
+
+    private void resetInput() {
+        isEnteringActionName = false;
+        actionName.setLength(0);
+        utf7TextInput.reset();
+    }
+}
@@ -17,41 +17,78 @@
 package io.appium.settings;
 
 import android.app.Service;
-import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.location.Location;
-import android.location.LocationManager;
-import android.location.LocationProvider;
 import android.os.Build;
 import android.os.IBinder;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
 
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationServices;
-
-import java.util.LinkedList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import io.appium.settings.helpers.NotificationHelpers;
-import io.appium.settings.helpers.PlayServicesHelpers;
-import io.appium.settings.location.FusedLocationProvider;
 import io.appium.settings.location.LocationBuilder;
-import io.appium.settings.location.LocationManagerProvider;
+import io.appium.settings.location.LocationNoiseModel;
+import io.appium.settings.location.LocationNoiseSettings;
+import io.appium.settings.location.LocationSpec;
 import io.appium.settings.location.MockLocationProvider;
+import io.appium.settings.location.MockProviderRegistry;
+import io.appium.settings.location.RoutePlayer;
+import io.appium.settings.location.ScenarioEvent;
+import io.appium.settings.location.ScenarioPlayer;
+import io.appium.settings.location.TrackPlayer;
 
 public class LocationService extends Service {
     private static final String TAG = "MOCKED LOCATION SERVICE";
+    public static final String ACTION_SCENARIO_PROGRESS =
+            BuildConfig.APPLICATION_ID + ".location.scenario_progress";
+    public static final String SCENARIO_EVENT_EXTRA = "event";
+    public static final String SCENARIO_STEP_EXTRA = "step";
+    public static final String SCENARIO_STEP_NAME_EXTRA = "name";
+    public static final String SCENARIO_OFFSET_EXTRA = "offset_ms";
 
+    private static final String UPDATE_INTERVAL_PARAMETER_KEY = "update_interval_ms";
     private static final long UPDATE_INTERVAL_MS = 2000L;
+    private static final long ROUTE_UPDATE_INTERVAL_MS = 1000L;
+    private static final long MIN_UPDATE_INTERVAL_MS = 50L;
+
+    private List<MockLocationProvider> mockLocationProviders = Collections.emptyList();
+    private ScheduledExecutorService locationUpdatesExecutor;
+    private final List<ScheduledFuture<?>> locationUpdateTasks = new ArrayList<>();
+    // The most recent updates, which are scheduled again after mocking has been resumed
+    @Nullable
+    private LocationUpdater currentUpdater = null;
+    private long currentUpdateIntervalMs = UPDATE_INTERVAL_MS;
+    @Nullable
+    private LocationNoiseSettings currentNoiseSettings = null;
+
+    /**
+     * Produces the mocked locations of a single provider
+     */
+    private interface LocationUpdater {
+        Location createLocation(String providerName);
 
-    private final List<MockLocationProvider> mockLocationProviders = new LinkedList<>();
-    private final Timer locationUpdatesTimer = new Timer();
-    private TimerTask locationUpdateTask;
+        /**
+         * @param location the instance created by createLocation, which is reused
+         *                 for all updates of the provider
+         */
+        void update(Location location);
+
+        /**
+         * Is called after the updated location has been delivered by the provider
+         */
+        void onLocationSet(Location location);
+    }
 
     @Override
     public IBinder onBind(Intent intent) {
@@ -61,8 +98,16 @@ public class LocationService extends Service {
     @Override
     public void onCreate() {
         super.onCreate();
-        initializeLocationProviders();
-        enableLocationProviders();
+        MockProviderRegistry registry = MockProviderRegistry.getInstance();
+        mockLocationProviders = registry.acquire(this);
+        registry.setStateListener(() -> {
+            if (currentUpdater != null) {
+                scheduleLocationUpdates(currentUpdater, currentUpdateIntervalMs, currentNoiseSettings);
+            }
+        });
+        // A dedicated thread per provider, so a slow provider cannot delay the others
+        locationUpdatesExecutor = new ScheduledThreadPoolExecutor(
+                Math.max(1, mockLocationProviders.size()));
     }
 
     @Override
@@ -89,8 +134,9 @@ public class LocationService extends Service {
     @Override
     public void onDestroy() {
         Log.i(TAG, "Shutting down MockLocationService");
-        locationUpdatesTimer.cancel();
-        disableLocationProviders();
+        locationUpdatesExecutor.shutdownNow();
+        // Armed providers stay registered, so the next session starts faster
+        MockProviderRegistry.getInstance().release();
         super.onDestroy();
     }
 
@@ -100,111 +146,245 @@ public class LocationService extends Service {
         }
         Log.i(TAG, "INTENT " + intent.getExtras());
 
-        scheduleLocationUpdate(intent);
-    }
-
-    private void enableLocationProviders() {
-        for (MockLocationProvider mockLocationProvider : mockLocationProviders) {
-            try {
-                mockLocationProvider.enable();
-            } catch (Exception e) {
-                Log.e(TAG, String.format("Couldn't enable location provider: '%s'",
-                        mockLocationProvider.getProviderName()));
+        ScenarioPlayer scenarioPlayer;
+        RoutePlayer routePlayer = null;
+        TrackPlayer trackPlayer = null;
+        try {
+            scenarioPlayer = ScenarioPlayer.fromIntent(intent, new ScenarioPlayer.EventListener() {
+                @Override
+                public void onScenarioEvent(ScenarioEvent event) {
+                    sendScenarioProgress(event);
+                }
+            });
+            if (scenarioPlayer == null) {
+                routePlayer = RoutePlayer.fromIntent(intent);
             }
+            if (scenarioPlayer == null && routePlayer == null) {
+                trackPlayer = TrackPlayer.fromIntent(intent);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Cannot load the mocked route, track or scenario", e);
+            return;
+        }
+        long defaultUpdateIntervalMs =
+                scenarioPlayer == null && routePlayer == null && trackPlayer == null
+                        ? UPDATE_INTERVAL_MS
+                        : ROUTE_UPDATE_INTERVAL_MS;
+        if (trackPlayer != null && trackPlayer.getAverageRecordIntervalMs() > 0) {
+            // Tracks are streamed at their recording rate unless another interval is requested
+            defaultUpdateIntervalMs = Math.max(MIN_UPDATE_INTERVAL_MS,
+                    trackPlayer.getAverageRecordIntervalMs());
+        }
+        long updateIntervalMs = getUpdateIntervalMs(intent, defaultUpdateIntervalMs);
+        LocationNoiseSettings noiseSettings = LocationNoiseSettings.fromIntent(intent);
+        if (scenarioPlayer != null) {
+            scheduleScenarioPlayback(scenarioPlayer, updateIntervalMs, noiseSettings);
+        } else if (routePlayer != null) {
+            scheduleRoutePlayback(routePlayer, updateIntervalMs, noiseSettings);
+        } else if (trackPlayer != null) {
+            scheduleTrackPlayback(trackPlayer, updateIntervalMs, noiseSettings);
+        } else {
+            scheduleLocationUpdate(LocationSpec.fromIntent(intent), updateIntervalMs, noiseSettings);
         }
     }
 
-    private void disableLocationProviders() {
-        for (MockLocationProvider mockLocationProvider : mockLocationProviders) {
-            try {
-                mockLocationProvider.disable();
-            } catch (Exception e) {
-                Log.e(TAG, String.format("Could not disable location provider: '%s'",
-                        mockLocationProvider.getProviderName()));
+    private static long getUpdateIntervalMs(Intent intent, long defaultValue) {
+        if (!intent.hasExtra(UPDATE_INTERVAL_PARAMETER_KEY)) {
+            return defaultValue;
+        }
+        String value = intent.getStringExtra(UPDATE_INTERVAL_PARAMETER_KEY);
+        try {
+            long result = Long.parseLong(value);
+            if (result >= MIN_UPDATE_INTERVAL_MS) {
+                return result;
             }
+            Log.e(TAG, String.format("%s must not be less than %d ms. Using %d ms instead",
+                    UPDATE_INTERVAL_PARAMETER_KEY, MIN_UPDATE_INTERVAL_MS, MIN_UPDATE_INTERVAL_MS));
+            return MIN_UPDATE_INTERVAL_MS;
+        } catch (NumberFormatException e) {
+            Log.e(TAG, String.format("%s should be a valid integer. '%s' is given instead",
+                    UPDATE_INTERVAL_PARAMETER_KEY, value));
         }
+        return defaultValue;
     }
 
-    private void initializeLocationProviders() {
-        LocationManager locationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
+    private void scheduleLocationUpdate(final LocationSpec spec, long updateIntervalMs,
+                                        @Nullable LocationNoiseSettings noiseSettings) {
+        Log.i(TAG, String.format("Scheduling mock location updates every %d ms", updateIntervalMs));
 
-        mockLocationProviders.clear();
-        mockLocationProviders.addAll(createMockProviders(locationManager));
-        if (PlayServicesHelpers.isAvailable(this)) {
-            Log.d(TAG, "Adding FusedLocationProvider");
-            mockLocationProviders.add(createFusedLocationProvider());
-        }
-        Log.d(TAG, String.format("Created mock providers: %s", mockLocationProviders.toString()));
+        scheduleLocationUpdates(new LocationUpdater() {
+            @Override
+            public Location createLocation(String providerName) {
+                return LocationBuilder.buildFromSpec(spec, providerName);
+            }
+
+            @Override
+            public void update(Location location) {
+                LocationBuilder.updateTime(location);
+            }
+
+            @Override
+            public void onLocationSet(Location location) {
+            }
+        }, updateIntervalMs, noiseSettings);
     }
 
-    private void scheduleLocationUpdate(final Intent intent) {
-        Log.i(TAG, "Scheduling mock location updates");
+    private void scheduleRoutePlayback(final RoutePlayer routePlayer, long updateIntervalMs,
+                                       @Nullable LocationNoiseSettings noiseSettings) {
+        Log.i(TAG, String.format("Scheduling mock route playback every %d ms", updateIntervalMs));
 
-        // If we run 'startservice' again we should schedule an update right away to avoid a delay
-        if (locationUpdateTask != null) {
-            locationUpdateTask.cancel();
-        }
+        scheduleLocationUpdates(new LocationUpdater() {
+            @Override
+            public Location createLocation(String providerName) {
+                return LocationBuilder.buildFromRoutePosition(routePlayer.getCurrentPosition(),
+                        providerName);
+            }
 
-        locationUpdateTask = new TimerTask() {
             @Override
-            public void run() {
-                for (MockLocationProvider mockLocationProvider : mockLocationProviders) {
-                    Location location = LocationBuilder.buildFromIntent(intent, mockLocationProvider.getProviderName());
-                    Log.d(TAG, String.format("Setting location of '%s' to '%s'", mockLocationProvider.getProviderName(), location));
-                    try {
-                        mockLocationProvider.setLocation(location);
-                    } catch (Exception e) {
-                        Log.e(TAG, String.format("Could not set location for '%s'",
-                                mockLocationProvider.getProviderName()), e);
-                    }
-                }
+            public void update(Location location) {
+                LocationBuilder.applyRoutePosition(routePlayer.getCurrentPosition(), location);
             }
-        };
 
-        locationUpdatesTimer.schedule(locationUpdateTask, 0, UPDATE_INTERVAL_MS);
+            @Override
+            public void onLocationSet(Location location) {
+            }
+        }, updateIntervalMs, noiseSettings);
     }
 
-    private List<MockLocationProvider> createMockProviders(LocationManager locationManager) {
-        List<String> providers = locationManager.getAllProviders();
-        List<MockLocationProvider> mockProviders = new LinkedList<>();
-        for (String providerName : providers) {
-            // The passive provider is not required to be mocked.
-            if (providerName.equals(LocationManager.PASSIVE_PROVIDER)) {
-                continue;
+    private void scheduleTrackPlayback(final TrackPlayer trackPlayer, long updateIntervalMs,
+                                       @Nullable LocationNoiseSettings noiseSettings) {
+        Log.i(TAG, String.format("Scheduling mock track playback every %d ms", updateIntervalMs));
+        long recordIntervalMs = trackPlayer.getAverageRecordIntervalMs();
+        if (recordIntervalMs > 0 && updateIntervalMs > recordIntervalMs) {
+            // Only the most recent record is reported on each update
+            Log.w(TAG, String.format("The track has a record every %d ms on average, so about %d%% " +
+                            "of the records are skipped with %d ms update interval",
+                    recordIntervalMs, 100 - 100 * recordIntervalMs / updateIntervalMs,
+                    updateIntervalMs));
+        }
+
+        scheduleLocationUpdates(new LocationUpdater() {
+            @Override
+            public Location createLocation(String providerName) {
+                Location location = new Location(providerName);
+                update(location);
+                return location;
             }
-            MockLocationProvider mockProvider = createLocationManagerMockProvider(locationManager, providerName);
-            if (mockProvider == null) {
-                Log.e(TAG, String.format("Could not create mock provider for '%s'", providerName));
-                continue;
+
+            @Override
+            public void update(Location location) {
+                LocationBuilder.applyTrackRecord(trackPlayer.getTrack(),
+                        trackPlayer.getCurrentRecordIndex(), trackPlayer.getSpeedMultiplier(),
+                        location);
             }
-            mockProviders.add(mockProvider);
-        }
-        return mockProviders;
+
+            @Override
+            public void onLocationSet(Location location) {
+            }
+        }, updateIntervalMs, noiseSettings);
     }
 
-    @Nullable
-    private MockLocationProvider createLocationManagerMockProvider(LocationManager locationManager, String providerName) {
-        LocationProvider provider = locationManager.getProvider(providerName);
-        return provider == null ? null : createLocationManagerMockProvider(locationManager, provider);
+    private void scheduleScenarioPlayback(final ScenarioPlayer scenarioPlayer, long updateIntervalMs,
+                                          @Nullable LocationNoiseSettings noiseSettings) {
+        Log.i(TAG, String.format("Scheduling mock scenario playback every %d ms", updateIntervalMs));
+
+        scheduleLocationUpdates(new LocationUpdater() {
+            @Override
+            public Location createLocation(String providerName) {
+                scenarioPlayer.registerProvider(providerName);
+                return LocationBuilder.buildFromRoutePosition(
+                        scenarioPlayer.getCurrentPosition(providerName), providerName);
+            }
+
+            @Override
+            public void update(Location location) {
+                LocationBuilder.applyRoutePosition(
+                        scenarioPlayer.getCurrentPosition(location.getProvider()), location);
+            }
+
+            @Override
+            public void onLocationSet(Location location) {
+                scenarioPlayer.onLocationSet(location.getProvider());
+            }
+        }, updateIntervalMs, noiseSettings);
     }
 
-    private MockLocationProvider createLocationManagerMockProvider(LocationManager locationManager, LocationProvider locationProvider) {
-        return new LocationManagerProvider(locationManager,
-                locationProvider.getName(),
-                locationProvider.requiresNetwork(),
-                locationProvider.requiresSatellite(),
-                locationProvider.requiresCell(),
-                locationProvider.hasMonetaryCost(),
-                locationProvider.supportsAltitude(),
-                locationProvider.supportsSpeed(),
-                locationProvider.supportsBearing(),
-                locationProvider.getPowerRequirement(),
-                locationProvider.getAccuracy());
+    private void sendScenarioProgress(ScenarioEvent event) {
+        Intent intent = new Intent(ACTION_SCENARIO_PROGRESS)
+                .putExtra(SCENARIO_EVENT_EXTRA, event.getType().getName())
+                .putExtra(SCENARIO_STEP_EXTRA, event.getStepIndex())
+                .putExtra(SCENARIO_STEP_NAME_EXTRA, event.getStepName())
+                .putExtra(SCENARIO_OFFSET_EXTRA, event.getOffsetMs());
+        sendBroadcast(intent);
     }
 
-    private FusedLocationProvider createFusedLocationProvider() {
-        FusedLocationProviderClient locationProviderClient = LocationServices.getFusedLocationProviderClient(this);
-        return new FusedLocationProvider(locationProviderClient, this);
+    /**
+     * Replaces the currently running updates with a fixed rate task per provider
+     *
+     * @param noiseSettings if set then every provider reports its own simulated
+     *                      measurement error instead of the exact location
+     */
+    private void scheduleLocationUpdates(final LocationUpdater updater, long updateIntervalMs,
+                                         @Nullable LocationNoiseSettings noiseSettings) {
+        currentUpdater = updater;
+        currentUpdateIntervalMs = updateIntervalMs;
+        currentNoiseSettings = noiseSettings;
+        // If we run 'startservice' again we should schedule an update right away to avoid a delay
+        for (ScheduledFuture<?> task : locationUpdateTasks) {
+            task.cancel(false);
+        }
+        locationUpdateTasks.clear();
+
+        final MockProviderRegistry registry = MockProviderRegistry.getInstance();
+        for (final MockLocationProvider mockLocationProvider : mockLocationProviders) {
+            final Location location = updater.createLocation(mockLocationProvider.getProviderName());
+            Log.d(TAG, String.format("Setting location of '%s' to '%s'", mockLocationProvider.getProviderName(), location));
+            final LocationNoiseModel noiseModel = noiseSettings == null
+                    ? null
+                    : noiseSettings.createModel(mockLocationProvider.getProviderName());
+            // The exact location must stay untouched, so the noise does not accumulate
+            final Location reportedLocation = noiseModel == null ? location : new Location(location);
+            // Fixed rate scheduling does not drift, regardless of how long an update takes
+            locationUpdateTasks.add(locationUpdatesExecutor.scheduleAtFixedRate(new Runnable() {
+                // Only the first of repeated failures is logged to keep logcat readable
+                private boolean isFailing = false;
+
+                @Override
+                public void run() {
+                    // The real location is reported while mocking is paused
+                    if (registry.isPaused()) {
+                        return;
+                    }
+                    // An uncaught exception would silently cancel all further updates
+                    try {
+                        updater.update(location);
+                        if (noiseModel != null) {
+                            noiseModel.advance(SystemClock.elapsedRealtime());
+                            if (noiseModel.isDroppedOut()) {
+                                return;
+                            }
+                            reportedLocation.set(location);
+                            LocationBuilder.applyNoise(noiseModel, reportedLocation);
+                        }
+                        mockLocationProvider.setLocation(reportedLocation);
+                        updater.onLocationSet(location);
+                    } catch (Exception e) {
+                        // The provider might have been paused while being updated
+                        if (!isFailing && !registry.isPaused()) {
+                            Log.e(TAG, String.format("Could not set location for '%s'",
+                                    mockLocationProvider.getProviderName()), e);
+                        }
+                        isFailing = true;
+                        return;
+                    }
+                    if (isFailing) {
+                        Log.i(TAG, String.format("Location updates of '%s' have been recovered",
+                                mockLocationProvider.getProviderName()));
+                        isFailing = false;
+                    }
+                }
+            }, 0, updateIntervalMs, TimeUnit.MILLISECONDS));
+        }
     }
 
     private void finishForegroundSetup() {
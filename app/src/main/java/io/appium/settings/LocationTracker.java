@@ -22,6 +22,7 @@ import android.location.LocationListener;
 import android.location.LocationManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.CancellationSignal;
 import android.os.Looper;
 import android.util.Log;
 
@@ -33,19 +34,21 @@ import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.tasks.CancellationTokenSource;
 
 import io.appium.settings.helpers.PlayServicesHelpers;
+import io.appium.settings.location.LocationRequestConfig;
 
 import static android.content.Context.LOCATION_SERVICE;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class LocationTracker implements LocationListener {
     private static final String TAG = LocationTracker.class.getSimpleName();
-    private static final long MIN_DISTANCE_CHANGE_FOR_UPDATES = 1; // 1 meter
-    private static final long LOCATION_UPDATES_INTERVAL_MS = 1000 * 60; // 1 minute
-    private static final long FAST_INTERVAL_MS = 5000;
+    private static final int MAX_HISTORY_SIZE = 500;
 
     private volatile LocationManager mLocationManager;
     private volatile FusedLocationProviderClient mFusedLocationProviderClient;
@@ -53,12 +56,19 @@ public class LocationTracker implements LocationListener {
         @Override
         public void onLocationResult(@NonNull LocationResult locationResult) {
             Log.d(TAG, "Got a location update from Play Services");
-            mLocation = locationResult.getLastLocation();
+            // A single result may contain several batched fixes
+            for (Location location : locationResult.getLocations()) {
+                onNewLocation(location);
+            }
         }
     };
     private volatile Location mLocation;
     private final AtomicBoolean isStarted = new AtomicBoolean(false);
+    // The most recent fixes, the oldest one first
+    private final ArrayDeque<Location> mLocationHistory = new ArrayDeque<>(MAX_HISTORY_SIZE);
+    private long mReceivedLocationsCount = 0;
     private String mLocationProvider;
+    private volatile LocationRequestConfig mRequestConfig = LocationRequestConfig.DEFAULT;
 
     private static LocationTracker instance = null;
 
@@ -87,7 +97,48 @@ public class LocationTracker implements LocationListener {
         }
 
         Log.d(TAG, "Got a location update from Location Manager");
+        onNewLocation(location);
+    }
+
+    private void onNewLocation(@Nullable Location location) {
+        if (location == null) {
+            return;
+        }
+
         mLocation = location;
+        synchronized (mLocationHistory) {
+            if (mLocationHistory.size() >= MAX_HISTORY_SIZE) {
+                mLocationHistory.removeFirst();
+            }
+            mLocationHistory.addLast(location);
+            mReceivedLocationsCount++;
+        }
+    }
+
+    /**
+     * @param sinceMs the Unix timestamp in milliseconds. Only fixes newer than it are returned
+     * @return the recently received fixes (up to {@value #MAX_HISTORY_SIZE}), the oldest one first
+     */
+    public List<Location> getLocationHistory(long sinceMs) {
+        List<Location> result = new ArrayList<>();
+        synchronized (mLocationHistory) {
+            for (Location location : mLocationHistory) {
+                if (location.getTime() > sinceMs) {
+                    result.add(location);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the count of all fixes received since the application start, including
+     * the ones which do not fit into the history anymore
+     */
+    public long getReceivedLocationsCount() {
+        synchronized (mLocationHistory) {
+            return mReceivedLocationsCount;
+        }
     }
 
     @Override
@@ -135,13 +186,13 @@ public class LocationTracker implements LocationListener {
 
         Log.d(TAG, "Configuring location provider for Google Play Services");
         mFusedLocationProviderClient = LocationServices.getFusedLocationProviderClient(context);
-        LocationRequest locationRequest = LocationRequest.create()
-                .setPriority(LocationRequest.PRIORITY_LOW_POWER)
-                .setInterval(LOCATION_UPDATES_INTERVAL_MS)
-                .setFastestInterval(FAST_INTERVAL_MS);
+        startLocationUpdatesWithPlayServices();
+    }
+
+    private void startLocationUpdatesWithPlayServices() {
         try {
             mFusedLocationProviderClient.requestLocationUpdates(
-                    locationRequest, locationCallback, Looper.getMainLooper());
+                    mRequestConfig.toLocationRequest(), locationCallback, Looper.getMainLooper());
             Log.d(TAG, "Google Play Services location provider is connected");
             return;
         } catch (SecurityException e) {
@@ -185,6 +236,22 @@ public class LocationTracker implements LocationListener {
             return;
         }
 
+        LocationRequestConfig config = mRequestConfig;
+        if (config.getPriority() == LocationRequest.PRIORITY_NO_POWER) {
+            // Only receive locations requested by other applications
+            try {
+                mLocationManager.requestLocationUpdates(
+                        LocationManager.PASSIVE_PROVIDER,
+                        config.getIntervalMs(),
+                        config.getLocationManagerMinDistance(), this);
+                mLocationProvider = LocationManager.PASSIVE_PROVIDER;
+                Log.d(TAG, "PASSIVE location provider is enabled");
+            } catch (SecurityException e) {
+                Log.e(TAG, "Appium Settings has no access to location permission", e);
+            }
+            return;
+        }
+
         boolean isGPSEnabled = mLocationManager
                 .isProviderEnabled(LocationManager.GPS_PROVIDER);
         boolean isNetworkEnabled = mLocationManager
@@ -198,8 +265,8 @@ public class LocationTracker implements LocationListener {
             try {
                 mLocationManager.requestLocationUpdates(
                         LocationManager.GPS_PROVIDER,
-                        LOCATION_UPDATES_INTERVAL_MS,
-                        MIN_DISTANCE_CHANGE_FOR_UPDATES, this);
+                        config.getIntervalMs(),
+                        config.getLocationManagerMinDistance(), this);
                 mLocationProvider = LocationManager.GPS_PROVIDER;
                 Log.d(TAG, "GPS location provider is enabled. Getting FINE location");
                 return;
@@ -210,8 +277,8 @@ public class LocationTracker implements LocationListener {
         try {
             mLocationManager.requestLocationUpdates(
                     LocationManager.NETWORK_PROVIDER,
-                    LOCATION_UPDATES_INTERVAL_MS,
-                    MIN_DISTANCE_CHANGE_FOR_UPDATES, this);
+                    config.getIntervalMs(),
+                    config.getLocationManagerMinDistance(), this);
             mLocationProvider = LocationManager.NETWORK_PROVIDER;
             Log.d(TAG, "NETWORK location provider is enabled. Getting COARSE location");
         } catch (SecurityException e) {
@@ -229,6 +296,32 @@ public class LocationTracker implements LocationListener {
         mLocationManager = null;
     }
 
+    public LocationRequestConfig getRequestConfig() {
+        return mRequestConfig;
+    }
+
+    /**
+     * Applies the given location request parameters. Running location updates are
+     * re-registered right away with both the fused and the LocationManager providers.
+     */
+    public synchronized void setRequestConfig(LocationRequestConfig config) {
+        Log.d(TAG, "Applying " + config);
+        mRequestConfig = config;
+        if (!isRunning()) {
+            return;
+        }
+
+        if (isFusedLocationProviderInitialized()) {
+            mFusedLocationProviderClient.removeLocationUpdates(locationCallback);
+            startLocationUpdatesWithPlayServices();
+        }
+        if (mLocationManager != null) {
+            mLocationManager.removeUpdates(this);
+            mLocationProvider = null;
+            startLocationUpdatesWithoutPlayServices();
+        }
+    }
+
     private boolean isFusedLocationProviderInitialized() {
         return mFusedLocationProviderClient != null;
     }
@@ -247,41 +340,72 @@ public class LocationTracker implements LocationListener {
         return null;
     }
 
-    public synchronized void forceLocationUpdate(Context context) {
+    public interface CurrentLocationCallback {
+        /**
+         * Is called on the main thread
+         *
+         * @param location the fresh fix or null if it could not be retrieved
+         */
+        void onCurrentLocation(@Nullable Location location);
+    }
+
+    /**
+     * Requests a fresh location fix. The callback is not called if the request
+     * has been cancelled.
+     *
+     * @param cancellationSignal cancels the pending request, e.g. after a timeout
+     * @return false if a fresh fix cannot be requested on this device, so the callback
+     * will never be called
+     */
+    public synchronized boolean forceLocationUpdate(Context context,
+                                                    final CancellationSignal cancellationSignal,
+                                                    final CurrentLocationCallback callback) {
         if (!isRunning()) {
             Log.e(TAG, "The location tracker is not running");
-            return;
+            return false;
         }
 
         if (isFusedLocationProviderInitialized()) {
+            final CancellationTokenSource cancellationTokenSource = new CancellationTokenSource();
+            cancellationSignal.setOnCancelListener(cancellationTokenSource::cancel);
             try {
                 mFusedLocationProviderClient.getCurrentLocation(
-                        LocationRequest.PRIORITY_HIGH_ACCURACY, new CancellationTokenSource().getToken())
+                        LocationRequest.PRIORITY_HIGH_ACCURACY, cancellationTokenSource.getToken())
                         .addOnCompleteListener(t -> {
+                            if (cancellationSignal.isCanceled()) {
+                                return;
+                            }
+                            Location location = null;
                             if (t.isSuccessful()) {
-                                mLocation = t.getResult();
+                                location = t.getResult();
+                                onNewLocation(location);
                                 Log.d(TAG, "The current location has been successfully retrieved from " +
                                         "Play Services");
                             } else {
                                 Log.w(TAG, "Failed to retrieve the current location from Play Services",
                                         t.getException());
                             }
+                            callback.onCurrentLocation(location);
                         });
+                return true;
             } catch (SecurityException e) {
                 Log.e(TAG, "Appium Settings has no access to location permission", e);
             }
         } else if (isLocationManagerConnected() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
             try {
-                mLocationManager.getCurrentLocation(mLocationProvider, null,
+                mLocationManager.getCurrentLocation(mLocationProvider, cancellationSignal,
                         context.getMainExecutor(), location -> {
-                            mLocation = location;
+                            onNewLocation(location);
                             Log.d(TAG, "The current location has been successfully retrieved " +
                                     "from Location Manager");
+                            callback.onCurrentLocation(location);
                         });
+                return true;
             } catch (SecurityException e) {
                 Log.e(TAG, "Appium Settings has no access to location permission", e);
             }
         }
+        return false;
     }
 
     @Nullable
@@ -37,10 +37,17 @@ import io.appium.settings.receivers.BluetoothConnectionSettingReceiver;
 import io.appium.settings.receivers.ClipboardReceiver;
 import io.appium.settings.receivers.DataConnectionSettingReceiver;
 import io.appium.settings.receivers.HasAction;
+import io.appium.settings.receivers.ImeStatusReceiver;
 import io.appium.settings.receivers.LocaleSettingReceiver;
 import io.appium.settings.receivers.LocationInfoReceiver;
+import io.appium.settings.receivers.LocationTrackerSettingReceiver;
+import io.appium.settings.receivers.LogVerbosityReceiver;
+import io.appium.settings.receivers.MockLocationStateReceiver;
 import io.appium.settings.receivers.MediaScannerReceiver;
 import io.appium.settings.receivers.NotificationsReceiver;
+import io.appium.settings.receivers.RecordingStatusReceiver;
+import io.appium.settings.receivers.SettingsStateReceiver;
+import io.appium.settings.receivers.SettingsTransactionReceiver;
 import io.appium.settings.receivers.SmsReader;
 import io.appium.settings.receivers.UnpairBluetoothDevicesReceiver;
 import io.appium.settings.receivers.WiFiConnectionSettingReceiver;
@@ -49,16 +56,22 @@ import io.appium.settings.recorder.RecorderUtil;
 
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_BASE;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_FILENAME;
+import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_FRAME_DIFF_THRESHOLD;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_MAX_DURATION;
+import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_OUTPUT_MODE;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_PRIORITY;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_RESOLUTION;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_RESULT_CODE;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_ROTATION;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_START;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_STOP;
+import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_TIMELAPSE_INTERVAL;
+import static io.appium.settings.recorder.RecorderConstant.NO_FRAME_DIFF_THRESHOLD_SET;
 import static io.appium.settings.recorder.RecorderConstant.NO_PATH_SET;
 import static io.appium.settings.recorder.RecorderConstant.NO_RESOLUTION_MODE_SET;
+import static io.appium.settings.recorder.RecorderConstant.NO_TIMELAPSE_INTERVAL_SET;
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_MAX_DURATION_DEFAULT_MS;
+import static io.appium.settings.recorder.RecorderConstant.RECORDING_OUTPUT_MODE_DEFAULT;
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_PRIORITY_DEFAULT;
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_ROTATION_DEFAULT_DEGREE;
 import static io.appium.settings.recorder.RecorderConstant.REQUEST_CODE_SCREEN_CAPTURE;
@@ -71,6 +84,9 @@ public class Settings extends Activity {
     private int recordingPriority = RECORDING_PRIORITY_DEFAULT;
     private int recordingMaxDuration = RECORDING_MAX_DURATION_DEFAULT_MS;
     private String recordingResolutionMode = NO_RESOLUTION_MODE_SET;
+    private String recordingOutputMode = RECORDING_OUTPUT_MODE_DEFAULT;
+    private long recordingTimelapseInterval = NO_TIMELAPSE_INTERVAL_SET;
+    private float recordingFrameDiffThreshold = NO_FRAME_DIFF_THRESHOLD_SET;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -84,12 +100,19 @@ public class Settings extends Activity {
                 DataConnectionSettingReceiver.class,
                 LocaleSettingReceiver.class,
                 LocationInfoReceiver.class,
+                LocationTrackerSettingReceiver.class,
+                MockLocationStateReceiver.class,
                 ClipboardReceiver.class,
                 BluetoothConnectionSettingReceiver.class,
                 UnpairBluetoothDevicesReceiver.class,
                 NotificationsReceiver.class,
                 SmsReader.class,
-                MediaScannerReceiver.class
+                MediaScannerReceiver.class,
+                RecordingStatusReceiver.class,
+                LogVerbosityReceiver.class,
+                ImeStatusReceiver.class,
+                SettingsTransactionReceiver.class,
+                SettingsStateReceiver.class
         ));
 
         // https://developer.android.com/about/versions/oreo/background-location-limits
@@ -170,10 +193,17 @@ public class Settings extends Activity {
 
             recordingPriority = RecorderUtil.getRecordingPriority(intent);
 
-            recordingMaxDuration = RecorderUtil.getRecordingMaxDuration(intent);
+            recordingTimelapseInterval = RecorderUtil.getRecordingTimelapseInterval(intent);
+
+            recordingMaxDuration = RecorderUtil.getRecordingMaxDuration(intent,
+                    recordingTimelapseInterval);
 
             recordingResolutionMode = RecorderUtil.getRecordingResolutionMode(intent);
 
+            recordingOutputMode = RecorderUtil.getRecordingOutputMode(intent);
+
+            recordingFrameDiffThreshold = RecorderUtil.getRecordingFrameDiffThreshold(intent);
+
             // start record
             final MediaProjectionManager manager
                     = (MediaProjectionManager) getSystemService(
@@ -236,6 +266,9 @@ public class Settings extends Activity {
         intent.putExtra(ACTION_RECORDING_PRIORITY, recordingPriority);
         intent.putExtra(ACTION_RECORDING_MAX_DURATION, recordingMaxDuration);
         intent.putExtra(ACTION_RECORDING_RESOLUTION, recordingResolutionMode);
+        intent.putExtra(ACTION_RECORDING_OUTPUT_MODE, recordingOutputMode);
+        intent.putExtra(ACTION_RECORDING_TIMELAPSE_INTERVAL, recordingTimelapseInterval);
+        intent.putExtra(ACTION_RECORDING_FRAME_DIFF_THRESHOLD, recordingFrameDiffThreshold);
         intent.putExtras(data);
 
         startService(intent);
@@ -17,17 +17,27 @@
 package io.appium.settings;
 
 import android.annotation.SuppressLint;
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.inputmethodservice.InputMethodService;
-import android.text.method.MetaKeyKeyListener;
+import android.util.Base64;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.inputmethod.EditorInfo;
+import android.view.inputmethod.InputConnection;
 
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetDecoder;
+import org.json.JSONException;
+
+import java.io.UnsupportedEncodingException;
+
+import io.appium.settings.helpers.Logger;
+import io.appium.settings.ime.ImeCommandLog;
+import io.appium.settings.ime.ImeCommandResult;
+import io.appium.settings.ime.MetaKeyState;
+import io.appium.settings.ime.Utf7TextInput;
 
 /**
  * <p>
@@ -47,46 +57,84 @@ import java.nio.charset.CharsetDecoder;
 public class UnicodeIME extends InputMethodService {
     private static final String TAG = UnicodeIME.class.getSimpleName();
 
-    @SuppressWarnings("InjectedReferences")
-    private static final Charset UTF7_MODIFIED = Charset.forName("x-IMAP-mailbox-name");
-    private static final Charset ASCII = Charset.forName("US-ASCII");
-
-    private static final CharsetDecoder UTF7_DECODER = UTF7_MODIFIED.newDecoder();
-
     /**
-     * Special character to shift to Modified BASE64 in modified UTF-7.
+     * Commits whole strings at once, which is much faster than typing them key by key:
+     * am broadcast -a io.appium.settings.unicode_ime.commit_text --es text 'Hello, world'
+     * am broadcast -a io.appium.settings.unicode_ime.commit_text --es base64 SGVsbG8sIHdvcmxk
      */
-    private static final char M_UTF7_SHIFT = '&';
-
+    private static final String ACTION_COMMIT_TEXT = "io.appium.settings.unicode_ime.commit_text";
+    private static final String TEXT_EXTRA = "text";
+    private static final String BASE64_EXTRA = "base64";
+    // Only the shell (adb) holds this permission, so other apps cannot type into any input field
+    private static final String COMMIT_TEXT_PERMISSION = "android.permission.INJECT_EVENTS";
+    // Some editors do not cope well with huge single commits
+    private static final int MAX_COMMIT_CHUNK_LENGTH = 4096;
+
+    private final MetaKeyState metaKeyState = new MetaKeyState();
     /**
-     * Special character to shift back to US-ASCII in modified UTF-7.
+     * Decodes the typed text as it arrives, so complete characters get committed
+     * without waiting for the end of the encoded sequence.
      */
-    private static final char M_UTF7_UNSHIFT = '-';
+    private final Utf7TextInput utf7TextInput = new Utf7TextInput(TAG);
+
+    private final BroadcastReceiver commitTextReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            ImeCommandResult result = ImeCommandLog.getInstance().add(commitText(intent));
+            if (!result.isSuccessful()) {
+                Logger.e(TAG, result.getError());
+                setResultCode(Activity.RESULT_CANCELED);
+                setResultData(result.getError());
+                return;
+            }
+            setResultCode(Activity.RESULT_OK);
+            try {
+                setResultData(result.toJson().toString());
+            } catch (JSONException e) {
+                Log.e(TAG, "Cannot format the commit result", e);
+                setResultData("");
+            }
+        }
+    };
 
-    /**
-     * Indicates if current UTF-7 state is Modified BASE64 or not.
-     */
-    private boolean isShifted = false;
-    private long metaState = 0;
-    private StringBuilder unicodeString = new StringBuilder();
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // The channel is only available while the IME is running
+        registerReceiver(commitTextReceiver, new IntentFilter(ACTION_COMMIT_TEXT),
+                COMMIT_TEXT_PERMISSION, null);
+    }
+
+    @Override
+    public void onDestroy() {
+        unregisterReceiver(commitTextReceiver);
+        super.onDestroy();
+    }
 
     @Override
     public void onStartInput(EditorInfo attribute, boolean restarting) {
-        Log.i(TAG, "onStartInput");
+        Logger.d(TAG, "onStartInput");
         super.onStartInput(attribute, restarting);
 
         if (!restarting) {
-            metaState = 0;
-            isShifted = false;
+            metaKeyState.reset();
         }
-        unicodeString = new StringBuilder();
+        utf7TextInput.reset();
     }
 
     @Override
     public void onFinishInput() {
-        Log.i(TAG, String.format("onFinishInput: %s", unicodeString));
+        Logger.d(TAG, "onFinishInput");
         super.onFinishInput();
-        unicodeString = new StringBuilder();
+        utf7TextInput.reset();
+    }
+
+    @Override
+    public void onUpdateSelection(int oldSelStart, int oldSelEnd, int newSelStart, int newSelEnd,
+                                  int candidatesStart, int candidatesEnd) {
+        super.onUpdateSelection(oldSelStart, oldSelEnd, newSelStart, newSelEnd,
+                candidatesStart, candidatesEnd);
+        ImeCommandLog.getInstance().onSelectionChanged(newSelStart, newSelEnd);
     }
 
     @Override
@@ -102,86 +150,83 @@ public class UnicodeIME extends InputMethodService {
 
     @Override
     public boolean onKeyDown(int keyCode, KeyEvent event) {
-        Log.i(TAG, String.format("onKeyDown (keyCode='%s', event.keyCode='%s', metaState='%s')",
-                keyCode, event.getKeyCode(), event.getMetaState()));
-        int c = getUnicodeChar(keyCode, event);
-
-        if (c == 0) {
-            return super.onKeyDown(keyCode, event);
+        // Key events are very frequent, so the arguments are only created if needed
+        if (Logger.isLoggable(TAG, Log.VERBOSE)) {
+            Logger.v(TAG, "onKeyDown (keyCode='%s', event.keyCode='%s', metaState='%s')",
+                    keyCode, event.getKeyCode(), event.getMetaState());
         }
+        int c = metaKeyState.onKeyDown(keyCode, event);
 
-        if (!isShifted) {
-            if (c == M_UTF7_SHIFT) {
-                shift();
-                return true;
-            }
-            if (isAsciiPrintable(c)) {
-                commitChar(c);
-                return true;
-            }
+        // Modified UTF-7 only consists of US-ASCII characters
+        if (c <= 0 || c > 0x7F || !utf7TextInput.onChar((char) c, getCurrentInputConnection())) {
             return super.onKeyDown(keyCode, event);
         }
-
-        if (c == M_UTF7_UNSHIFT) {
-            unshift();
-        } else {
-            appendChar(c);
-        }
         return true;
     }
 
     @Override
     public boolean onKeyUp(int keyCode, KeyEvent event) {
-        Log.i(TAG, String.format("onKeyUp (keyCode='%s', event.keyCode='%s', metaState='%s')",
-                keyCode, event.getKeyCode(), event.getMetaState()));
-        metaState = MetaKeyKeyListener.handleKeyUp(metaState, keyCode, event);
+        // Key events are very frequent, so the arguments are only created if needed
+        if (Logger.isLoggable(TAG, Log.VERBOSE)) {
+            Logger.v(TAG, "onKeyUp (keyCode='%s', event.keyCode='%s', metaState='%s')",
+                    keyCode, event.getKeyCode(), event.getMetaState());
+        }
+        metaKeyState.onKeyUp(keyCode, event);
         return super.onKeyUp(keyCode, event);
     }
 
-    private void shift() {
-        isShifted = true;
-        unicodeString = new StringBuilder();
-        appendChar(M_UTF7_SHIFT);
-    }
-
-    private void unshift() {
-        isShifted = false;
-        unicodeString.append(M_UTF7_UNSHIFT);
-        String decoded = decodeUtf7(unicodeString.toString());
-        getCurrentInputConnection().commitText(decoded, 1);
-        unicodeString = new StringBuilder();
-    }
-
-    private int getUnicodeChar(int keyCode, KeyEvent event) {
-        metaState = MetaKeyKeyListener.handleKeyDown(metaState, keyCode, event);
-        int c = event.getUnicodeChar(event.getMetaState());
-        metaState = MetaKeyKeyListener.adjustMetaAfterKeypress(metaState);
-        return c;
-    }
+    private ImeCommandResult commitText(Intent intent) {
+        String text;
+        if (intent.hasExtra(TEXT_EXTRA)) {
+            text = intent.getStringExtra(TEXT_EXTRA);
+        } else if (intent.hasExtra(BASE64_EXTRA) && intent.getStringExtra(BASE64_EXTRA) != null) {
+            try {
+                // TODO: Use StandardCharsets.UTF_8 after the minimum supported API version
+                // TODO: is bumped above 18
+                //noinspection CharsetObjectCanBeUsed
+                text = new String(Base64.decode(intent.getStringExtra(BASE64_EXTRA), Base64.DEFAULT),
+                        "UTF-8");
+            } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+                text = null;
+            }
+        } else {
+            text = null;
+        }
+        ImeCommandResult result = new ImeCommandResult(TAG, ImeCommandResult.COMMAND_COMMIT);
+        if (text == null) {
+            return result.fail(String.format("Either '%s' or base64-encoded '%s' text must be provided",
+                    TEXT_EXTRA, BASE64_EXTRA));
+        }
 
-    private void commitChar(int c) {
-        getCurrentInputConnection().commitText(String.valueOf((char) c), 1);
+        // Typed text must not be mixed with the committed one
+        utf7TextInput.flush(getCurrentInputConnection());
+        Logger.d(TAG, "Committing %d characters", text.length());
+        return commitTextInChunks(result, getCurrentInputConnection(), text);
     }
 
-    private void appendChar(int c) {
-        unicodeString.append((char) c);
-    }
+    private static ImeCommandResult commitTextInChunks(ImeCommandResult result,
+                                                       InputConnection inputConnection, String text) {
+        if (inputConnection == null || text.length() <= MAX_COMMIT_CHUNK_LENGTH) {
+            return ImeCommandLog.commitText(result, inputConnection, text);
+        }
 
-    private static String decodeUtf7(String encStr) {
-        ByteBuffer encoded = ByteBuffer.wrap(encStr.getBytes(ASCII));
-        String decoded;
+        // The editor only updates its state once after all chunks have been committed
+        inputConnection.beginBatchEdit();
         try {
-            CharBuffer buf = UTF7_DECODER.decode(encoded);
-            decoded = buf.toString();
-        } catch (CharacterCodingException e) {
-            Log.e(TAG, e.getMessage());
-            decoded = encStr;
+            int start = 0;
+            while (start < text.length() && result.isSuccessful()) {
+                int end = Math.min(start + MAX_COMMIT_CHUNK_LENGTH, text.length());
+                // Surrogate pairs must not be split
+                if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+                    end--;
+                }
+                ImeCommandLog.commitText(result, inputConnection, text.subSequence(start, end));
+                start = end;
+            }
+            return result;
+        } finally {
+            inputConnection.endBatchEdit();
         }
-        return decoded;
-    }
-
-    private static boolean isAsciiPrintable(int c) {
-        return c >= 0x20 && c <= 0x7E;
     }
 
 }
@@ -31,6 +31,10 @@ public abstract class AbstractSettingHandler {
     }
 
     public boolean enable() {
+        if (Boolean.TRUE.equals(getState())) {
+            Log.d(TAG, getSettingDescription() + " is already enabled");
+            return true;
+        }
         Log.d(TAG, "Enabling " + getSettingDescription());
         if (!hasPermissions()) {
             return false;
@@ -39,6 +43,10 @@ public abstract class AbstractSettingHandler {
     }
 
     public boolean disable() {
+        if (Boolean.FALSE.equals(getState())) {
+            Log.d(TAG, getSettingDescription() + " is already disabled");
+            return true;
+        }
         Log.d(TAG, "Disabling " + getSettingDescription());
         if (!hasPermissions()) {
             return false;
@@ -58,6 +66,13 @@ public abstract class AbstractSettingHandler {
         return true;
     }
 
+    /**
+     * @return true if the setting is enabled, false if it is disabled
+     * or null if the state cannot be retrieved. The state is then always changed
+     * by {@link #enable()} and {@link #disable()}.
+     */
+    public abstract Boolean getState();
+
     protected abstract boolean setState(boolean state);
 
     protected abstract String getSettingDescription();
@@ -21,6 +21,7 @@ import android.content.Context;
 import android.os.IBinder;
 import android.util.Log;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 
@@ -28,30 +29,100 @@ public class AnimationSettingHandler extends AbstractSettingHandler {
     private static final String TAG = "APPIUM SETTINGS (ANIMATION)";
     private static final String ANIMATION_PERMISSION = "android.permission.SET_ANIMATION_SCALE";
 
-    public AnimationSettingHandler(Context context) {
-        super(context, ANIMATION_PERMISSION);
-    }
+    // Reflection lookups are much slower than the binder calls themselves,
+    // so they are only done once per process
+    private static volatile WindowManagerAccessor windowManagerAccessor = null;
 
-    @SuppressLint("LongLogTag")
-    @Override
-    protected boolean setState(boolean state) {
-        try {
+    private static class WindowManagerAccessor {
+        private final Object windowManager;
+        private final Method getAnimationScales;
+        private final Method setAnimationScales;
+
+        WindowManagerAccessor() throws ClassNotFoundException, NoSuchMethodException,
+                InvocationTargetException, IllegalAccessException {
             Class<?> serviceManagerClass = Class.forName("android.os.ServiceManager");
             Method getServiceMethod = serviceManagerClass.getDeclaredMethod("getService", String.class);
             IBinder windowManagerBinder = (IBinder) getServiceMethod.invoke(null, "window");
 
             Class<?> windowManagerClass = Class.forName("android.view.IWindowManager");
-            Method setAnimationScales = windowManagerClass.getDeclaredMethod("setAnimationScales",
+            setAnimationScales = windowManagerClass.getDeclaredMethod("setAnimationScales",
                     float[].class);
-            Method getAnimationScales = windowManagerClass.getDeclaredMethod("getAnimationScales");
+            getAnimationScales = windowManagerClass.getDeclaredMethod("getAnimationScales");
 
             Class<?> windowManagerStubClass = Class.forName("android.view.IWindowManager$Stub");
             Method asInterfaceMethod = windowManagerStubClass.getDeclaredMethod("asInterface", IBinder.class);
-            Object windowManagerObj = asInterfaceMethod.invoke(null, windowManagerBinder);
+            windowManager = asInterfaceMethod.invoke(null, windowManagerBinder);
+        }
+
+        float[] getAnimationScales() throws InvocationTargetException, IllegalAccessException {
+            return (float[]) getAnimationScales.invoke(windowManager);
+        }
+
+        void setAnimationScales(float[] scales) throws InvocationTargetException, IllegalAccessException {
+            setAnimationScales.invoke(windowManager, (Object) scales);
+        }
+    }
+
+    public AnimationSettingHandler(Context context) {
+        super(context, ANIMATION_PERMISSION);
+    }
 
-            float[] currentScales = (float[]) getAnimationScales.invoke(windowManagerObj);
-            Arrays.fill(currentScales, (state == true) ? 1.0f : 0.0f);
-            setAnimationScales.invoke(windowManagerObj, currentScales);
+    /**
+     * Failed lookups are not cached, so they are retried on the next call
+     */
+    private static WindowManagerAccessor getWindowManagerAccessor() throws ClassNotFoundException,
+            NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+        WindowManagerAccessor accessor = windowManagerAccessor;
+        if (accessor == null) {
+            synchronized (AnimationSettingHandler.class) {
+                accessor = windowManagerAccessor;
+                if (accessor == null) {
+                    accessor = new WindowManagerAccessor();
+                    windowManagerAccessor = accessor;
+                }
+            }
+        }
+        return accessor;
+    }
+
+    private static void setAnimationScales(boolean state) throws ClassNotFoundException,
+            NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+        WindowManagerAccessor accessor = getWindowManagerAccessor();
+        float[] currentScales = accessor.getAnimationScales();
+        Arrays.fill(currentScales, state ? 1.0f : 0.0f);
+        accessor.setAnimationScales(currentScales);
+    }
+
+    /**
+     * @return true if all animation scales are non-zero, false if all of them are zero
+     * or null if they are mixed
+     */
+    @SuppressLint("LongLogTag")
+    @Override
+    public Boolean getState() {
+        try {
+            float[] scales = getWindowManagerAccessor().getAnimationScales();
+            int disabledScalesCount = 0;
+            for (float scale : scales) {
+                if (scale == 0.0f) {
+                    disabledScalesCount++;
+                }
+            }
+            if (disabledScalesCount == 0) {
+                return true;
+            }
+            return disabledScalesCount == scales.length ? false : null;
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot get animation scale.", e);
+        }
+        return null;
+    }
+
+    @SuppressLint("LongLogTag")
+    @Override
+    protected boolean setState(boolean state) {
+        try {
+            setAnimationScales(state);
             return true;
         } catch (Exception e) {
             Log.w(TAG, "Cannot set animation scale.", e);
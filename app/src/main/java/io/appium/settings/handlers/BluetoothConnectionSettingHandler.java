@@ -30,6 +30,20 @@ public class BluetoothConnectionSettingHandler extends AbstractSettingHandler {
         this.bluetoothAdapter = bluetoothAdapter;
     }
 
+    @Override
+    public Boolean getState() {
+        switch (bluetoothAdapter.getState()) {
+            case BluetoothAdapter.STATE_ON:
+            case BluetoothAdapter.STATE_TURNING_ON:
+                return true;
+            case BluetoothAdapter.STATE_OFF:
+            case BluetoothAdapter.STATE_TURNING_OFF:
+                return false;
+            default:
+                return null;
+        }
+    }
+
     @Override
     protected boolean setState(boolean state) {
         return state ? bluetoothAdapter.enable() : bluetoothAdapter.disable();
@@ -18,41 +18,87 @@ package io.appium.settings.handlers;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.os.Build;
+import android.telephony.SubscriptionInfo;
 import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.util.Log;
 
-import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.appium.settings.helpers.RootShell;
 
 public class DataConnectionSettingHandler extends AbstractSettingHandler {
     private static final String TAG = "APPIUM SETTINGS (DATA)";
     private static final String NETWORK_PERMISSION = "android.permission.CHANGE_NETWORK_STATE";
+    private static final String PREFERENCES_NAME = "data_connection";
+    private static final String PREFERENCE_FINGERPRINT = "fingerprint";
+    private static final String PREFERENCE_TRANSACTION_CODE = "transaction_code";
+    private static final String SUBSCRIPTION_RESULT_PREFIX = "__APPIUM_SETTINGS_SUBSCRIPTION_";
+    // service call reports exceptions thrown by the service as a non-zero status
+    private static final String SUCCESSFUL_PARCEL_PREFIX = "Result: Parcel(00000000";
+
+    // The transaction code only changes with system updates, so it is only resolved once per build
+    private static volatile String cachedTransactionCode = null;
+
+    private static class SubscriptionResult {
+        private final int subscriptionId;
+        private final boolean isSuccessful;
+        private final String output;
+
+        SubscriptionResult(int subscriptionId, boolean isSuccessful, String output) {
+            this.subscriptionId = subscriptionId;
+            this.isSuccessful = isSuccessful;
+            this.output = output;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("subscription %s: %s", subscriptionId,
+                    isSuccessful ? "ok" : "failed (" + output + ")");
+        }
+    }
 
     public DataConnectionSettingHandler(Context context) {
         super(context, NETWORK_PERMISSION);
     }
 
-    private static boolean executeCommandViaSu(String command) {
-        final String[] suPaths = new String[]{"su", "/system/xbin/su", "/system/bin/su"};
-        for (String su : suPaths) {
-            try {
-                Runtime.getRuntime().exec(new String[]{su, "-c", command});
-                return true;
-            } catch (IOException e) {
-                // ignore
-            }
+    private static void executeCommandViaSu(String command) {
+        RootShell.Result result = RootShell.getInstance().execute(command);
+        if (!result.isSuccessful()) {
+            throw new IllegalStateException(String.format("'%s' has failed with exit code %s: %s",
+                    command, result.getExitCode(), result.getOutput()));
         }
-        Log.e(TAG, String.format("'su' binary is not available at %s. Is the phone rooted?",
-                Arrays.toString(suPaths)));
-        return false;
     }
 
     private static String getTransactionCode(Context context) throws Exception {
+        String result = cachedTransactionCode;
+        if (result != null) {
+            return result;
+        }
+
+        SharedPreferences preferences =
+                context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        if (Build.FINGERPRINT.equals(preferences.getString(PREFERENCE_FINGERPRINT, null))) {
+            result = preferences.getString(PREFERENCE_TRANSACTION_CODE, null);
+        }
+        if (result == null) {
+            result = resolveTransactionCode(context);
+            preferences.edit()
+                    .putString(PREFERENCE_FINGERPRINT, Build.FINGERPRINT)
+                    .putString(PREFERENCE_TRANSACTION_CODE, result)
+                    .apply();
+        }
+        cachedTransactionCode = result;
+        return result;
+    }
+
+    private static String resolveTransactionCode(Context context) throws Exception {
         final TelephonyManager mTelephonyManager =
                 (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
         final Class<?> mTelephonyClass = Class.forName(mTelephonyManager.getClass().getName());
@@ -76,14 +122,26 @@ public class DataConnectionSettingHandler extends AbstractSettingHandler {
         if (Build.VERSION.SDK_INT > Build.VERSION_CODES.LOLLIPOP) {
             final SubscriptionManager mSubscriptionManager = (SubscriptionManager) context
                     .getSystemService(Context.TELEPHONY_SUBSCRIPTION_SERVICE);
-            for (int i = 0; i < mSubscriptionManager.getActiveSubscriptionInfoCountMax(); i++) {
-                if (transactionCode.length() > 0) {
-                    @SuppressLint("MissingPermission") final int subscriptionId = mSubscriptionManager
-                            .getActiveSubscriptionInfoList().get(i).getSubscriptionId();
-                    final String command = String.format("service call phone %s i32 %s i32 %s",
-                            transactionCode, subscriptionId, state);
-                    executeCommandViaSu(command);
-                }
+            // The list is only retrieved once, since it could change while iterating
+            @SuppressLint("MissingPermission") final List<SubscriptionInfo> subscriptions =
+                    mSubscriptionManager.getActiveSubscriptionInfoList();
+            if (subscriptions == null || subscriptions.isEmpty()) {
+                throw new IllegalStateException("There are no active subscriptions");
+            }
+            List<Integer> subscriptionIds = new ArrayList<>();
+            for (SubscriptionInfo subscription : subscriptions) {
+                subscriptionIds.add(subscription.getSubscriptionId());
+            }
+            List<SubscriptionResult> results =
+                    setMobileNetworkForSubscriptions(transactionCode, subscriptionIds, state);
+            boolean isSuccessful = true;
+            for (SubscriptionResult result : results) {
+                Log.i(TAG, result.toString());
+                isSuccessful &= result.isSuccessful;
+            }
+            if (!isSuccessful) {
+                throw new IllegalStateException(String.format("Cannot change mobile data of all " +
+                        "subscriptions: %s", results));
             }
         } else if (Build.VERSION.SDK_INT == Build.VERSION_CODES.LOLLIPOP) {
             if (transactionCode.length() > 0) {
@@ -94,6 +152,42 @@ public class DataConnectionSettingHandler extends AbstractSettingHandler {
         }
     }
 
+    /**
+     * Sends the commands for all subscriptions at once, so only a single shell round trip is needed
+     */
+    private static List<SubscriptionResult> setMobileNetworkForSubscriptions(
+            String transactionCode, List<Integer> subscriptionIds, int state) {
+        StringBuilder script = new StringBuilder();
+        for (int subscriptionId : subscriptionIds) {
+            script.append(String.format("service call phone %s i32 %s i32 %s; echo \"%s%s $?\"; ",
+                    transactionCode, subscriptionId, state, SUBSCRIPTION_RESULT_PREFIX, subscriptionId));
+        }
+        RootShell.Result shellResult = RootShell.getInstance().execute(script.toString());
+
+        List<SubscriptionResult> results = new ArrayList<>();
+        int subscriptionIndex = 0;
+        StringBuilder output = new StringBuilder();
+        for (String line : shellResult.getOutput().split("\n")) {
+            if (!line.startsWith(SUBSCRIPTION_RESULT_PREFIX)
+                    || subscriptionIndex >= subscriptionIds.size()) {
+                output.append(line).append('\n');
+                continue;
+            }
+            String commandOutput = output.toString().trim();
+            boolean isSuccessful = line.endsWith(" 0")
+                    && commandOutput.startsWith(SUCCESSFUL_PARCEL_PREFIX);
+            results.add(new SubscriptionResult(subscriptionIds.get(subscriptionIndex++),
+                    isSuccessful, commandOutput));
+            output.setLength(0);
+        }
+        // The session has failed before all commands have been executed
+        while (subscriptionIndex < subscriptionIds.size()) {
+            results.add(new SubscriptionResult(subscriptionIds.get(subscriptionIndex++),
+                    false, shellResult.getOutput()));
+        }
+        return results;
+    }
+
     private static void setMobileNetworkFromGingerbreadToLollipop(
             Context mContext, boolean isEnabled) throws Exception {
         final ConnectivityManager conman =
@@ -110,6 +204,62 @@ public class DataConnectionSettingHandler extends AbstractSettingHandler {
         setMobileDataEnabledMethod.invoke(iConnectivityManager, isEnabled);
     }
 
+    @SuppressLint("MissingPermission")
+    @Override
+    public Boolean getState() {
+        try {
+            if (Build.VERSION.SDK_INT > Build.VERSION_CODES.LOLLIPOP) {
+                final SubscriptionManager mSubscriptionManager = (SubscriptionManager) mContext
+                        .getSystemService(Context.TELEPHONY_SUBSCRIPTION_SERVICE);
+                final List<SubscriptionInfo> subscriptions =
+                        mSubscriptionManager.getActiveSubscriptionInfoList();
+                // The default APIs only report the default data subscription,
+                // while the state is changed for all of them
+                if (subscriptions != null && subscriptions.size() > 1) {
+                    return getStateOfSubscriptions(subscriptions);
+                }
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                final TelephonyManager mTelephonyManager =
+                        (TelephonyManager) mContext.getSystemService(Context.TELEPHONY_SERVICE);
+                return mTelephonyManager.isDataEnabled();
+            }
+            final ConnectivityManager conman =
+                    (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+            final Method getMobileDataEnabledMethod =
+                    ConnectivityManager.class.getDeclaredMethod("getMobileDataEnabled");
+            getMobileDataEnabledMethod.setAccessible(true);
+            return (Boolean) getMobileDataEnabledMethod.invoke(conman);
+        } catch (Exception e) {
+            Log.w(TAG, String.format("Cannot get mobile data state: %s", e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * @return the common state of all subscriptions or null if they differ
+     * or cannot be retrieved
+     */
+    @SuppressLint("MissingPermission")
+    private Boolean getStateOfSubscriptions(List<SubscriptionInfo> subscriptions) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return null;
+        }
+        final TelephonyManager mTelephonyManager =
+                (TelephonyManager) mContext.getSystemService(Context.TELEPHONY_SERVICE);
+        Boolean result = null;
+        for (SubscriptionInfo subscription : subscriptions) {
+            boolean isEnabled = mTelephonyManager
+                    .createForSubscriptionId(subscription.getSubscriptionId()).isDataEnabled();
+            if (result == null) {
+                result = isEnabled;
+            } else if (result != isEnabled) {
+                return null;
+            }
+        }
+        return result;
+    }
+
     @Override
     protected boolean setState(boolean on) {
         try {
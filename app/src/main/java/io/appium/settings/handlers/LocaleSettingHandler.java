@@ -30,48 +30,121 @@ public class LocaleSettingHandler extends AbstractSettingHandler {
     private static final String TAG = "APPIUM SETTINGS(LOCALE)";
     private static final String CHANGE_CONFIGURATION = "android.permission.CHANGE_CONFIGURATION";
 
+    // Reflection lookups are much slower than the binder calls themselves,
+    // so they are only done once per process
+    private static volatile ActivityManagerAccessor activityManagerAccessor = null;
+
+    private static class ActivityManagerAccessor {
+        private final Object activityManager;
+        private final Method getConfiguration;
+        private final Method updateConfiguration;
+        private final Field userSetLocale;
+
+        ActivityManagerAccessor() throws ClassNotFoundException, NoSuchMethodException,
+                InvocationTargetException, IllegalAccessException, NoSuchFieldException {
+            Class<?> activityManagerNativeClass = Class.forName("android.app.ActivityManagerNative");
+
+            Method methodGetDefault = activityManagerNativeClass.getMethod("getDefault");
+            methodGetDefault.setAccessible(true);
+            activityManager = methodGetDefault.invoke(activityManagerNativeClass);
+
+            // Build.VERSION_CODES.O
+            if (Build.VERSION.SDK_INT >= 26) {
+                // getConfiguration moved from ActivityManagerNative to ActivityManagerProxy
+                activityManagerNativeClass = Class.forName(activityManager.getClass().getName());
+            }
+
+            getConfiguration = activityManagerNativeClass.getMethod("getConfiguration");
+            getConfiguration.setAccessible(true);
+            updateConfiguration = activityManagerNativeClass.getMethod("updateConfiguration",
+                    Configuration.class);
+            updateConfiguration.setAccessible(true);
+            userSetLocale = Configuration.class.getField("userSetLocale");
+        }
+
+        Configuration getConfiguration() throws InvocationTargetException, IllegalAccessException {
+            return (Configuration) getConfiguration.invoke(activityManager);
+        }
+
+        void updateConfiguration(Configuration config) throws InvocationTargetException,
+                IllegalAccessException {
+            userSetLocale.setBoolean(config, true);
+            updateConfiguration.invoke(activityManager, config);
+        }
+    }
+
     public LocaleSettingHandler(Context context) {
         super(context, CHANGE_CONFIGURATION);
     }
 
-    public void setLocale(Locale locale) {
+    /**
+     * @param script the script part of the locale (e.g. "Hans"), which is only applied
+     *               since API 21, or null
+     */
+    public static Locale buildLocale(String language, String country, String script) {
+        // Expect https://developer.android.com/reference/java/util/Locale.html#Locale(java.lang.String,%20java.lang.String) format.
+        Locale locale = new Locale(language, country);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            Locale.Builder builder = new Locale.Builder();
+            builder.setLocale(locale);
+            builder.setScript(script == null ? "" : script); // "Hans" part
+            locale = builder.build();
+        }
+        return locale;
+    }
+
+    /**
+     * @return true if the locale has been applied
+     */
+    public boolean setLocale(Locale locale) {
         try {
             if(hasPermissions()) {
                 setLocaleWith(locale);
+                return true;
             }
         } catch (Exception e) {
             Log.e(TAG, "Failed to set locale", e);
         }
+        return false;
     }
 
-    private void setLocaleWith(Locale locale) throws
+    /**
+     * Failed lookups are not cached, so they are retried on the next call
+     */
+    private static ActivityManagerAccessor getActivityManagerAccessor() throws
             ClassNotFoundException, NoSuchMethodException, InvocationTargetException, IllegalAccessException, NoSuchFieldException {
-        Class<?> activityManagerNativeClass = Class.forName("android.app.ActivityManagerNative");
-
-        Method methodGetDefault = activityManagerNativeClass.getMethod("getDefault");
-        methodGetDefault.setAccessible(true);
-        Object amn = methodGetDefault.invoke(activityManagerNativeClass);
-
-        // Build.VERSION_CODES.O
-        if (Build.VERSION.SDK_INT >= 26) {
-            // getConfiguration moved from ActivityManagerNative to ActivityManagerProxy
-            activityManagerNativeClass = Class.forName(amn.getClass().getName());
+        ActivityManagerAccessor accessor = activityManagerAccessor;
+        if (accessor == null) {
+            synchronized (LocaleSettingHandler.class) {
+                accessor = activityManagerAccessor;
+                if (accessor == null) {
+                    accessor = new ActivityManagerAccessor();
+                    activityManagerAccessor = accessor;
+                }
+            }
         }
+        return accessor;
+    }
 
-        Method methodGetConfiguration = activityManagerNativeClass.getMethod("getConfiguration");
-        methodGetConfiguration.setAccessible(true);
-        Configuration config = (Configuration) methodGetConfiguration.invoke(amn);
-
-        Class<?> configClass = config.getClass();
-        Field f = configClass.getField("userSetLocale");
-        f.setBoolean(config, true);
+    private void setLocaleWith(Locale locale) throws
+            ClassNotFoundException, NoSuchMethodException, InvocationTargetException, IllegalAccessException, NoSuchFieldException {
+        updateLocale(getActivityManagerAccessor(), locale);
+    }
 
+    private static void updateLocale(ActivityManagerAccessor accessor, Locale locale) throws
+            InvocationTargetException, IllegalAccessException {
+        Configuration config = accessor.getConfiguration();
         config.locale = locale;
         config.setLayoutDirection(locale);
+        accessor.updateConfiguration(config);
+    }
 
-        Method methodUpdateConfiguration = activityManagerNativeClass.getMethod("updateConfiguration", Configuration.class);
-        methodUpdateConfiguration.setAccessible(true);
-        methodUpdateConfiguration.invoke(amn, config);
+    /**
+     * The locale cannot be enabled or disabled
+     */
+    @Override
+    public Boolean getState() {
+        return null;
     }
 
     @Override
@@ -0,0 +1,61 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.handlers;
+
+import android.bluetooth.BluetoothAdapter;
+import android.content.Context;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class SettingHandlerFactory {
+    public static final String SETTING_WIFI = "wifi";
+    public static final String SETTING_DATA_CONNECTION = "data_connection";
+    public static final String SETTING_ANIMATION = "animation";
+    public static final String SETTING_BLUETOOTH = "bluetooth";
+
+    /**
+     * Settings, which could be enabled or disabled
+     */
+    public static final List<String> SETTINGS = Collections.unmodifiableList(Arrays.asList(
+            SETTING_WIFI, SETTING_DATA_CONNECTION, SETTING_ANIMATION, SETTING_BLUETOOTH));
+
+    /**
+     * @throws IllegalArgumentException if the setting is unknown
+     * @throws IllegalStateException if the setting is not supported by the device
+     */
+    public static AbstractSettingHandler create(Context context, String setting) {
+        switch (setting) {
+            case SETTING_WIFI:
+                return new WiFiConnectionSettingHandler(context);
+            case SETTING_DATA_CONNECTION:
+                return new DataConnectionSettingHandler(context);
+            case SETTING_ANIMATION:
+                return new AnimationSettingHandler(context);
+            case SETTING_BLUETOOTH:
+                BluetoothAdapter bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
+                if (bluetoothAdapter == null) {
+                    throw new IllegalStateException("No default bluetooth adapter found");
+                }
+                return new BluetoothConnectionSettingHandler(context, bluetoothAdapter);
+            default:
+                throw new IllegalArgumentException(String.format("Cannot identify the setting [%s]",
+                        setting));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.handlers;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Applies multiple setting changes at once, e.g.
+ * [{"setting": "wifi", "setstatus": "enable"}, {"setting": "locale", "lang": "ja", "country": "JP"}]
+ * <p>
+ * Operations on different settings do not depend on each other, so they are executed
+ * in parallel. Operations on the same setting are executed in the given order.
+ * </p>
+ */
+public class SettingsTransaction {
+    private static final String TAG = SettingsTransaction.class.getSimpleName();
+
+    public static final String SETTING_LOCALE = "locale";
+
+    private static final String SETTING = "setting";
+    private static final String COMMAND = "setstatus";
+    private static final String COMMAND_ENABLE = "enable";
+    private static final String COMMAND_DISABLE = "disable";
+    private static final String LANG = "lang";
+    private static final String COUNTRY = "country";
+    private static final String SCRIPT = "script";
+
+    private final Context context;
+    private final List<JSONObject> operations;
+
+    private SettingsTransaction(Context context, List<JSONObject> operations) {
+        this.context = context;
+        this.operations = operations;
+    }
+
+    /**
+     * @param operations JSON array of operations
+     * @throws JSONException if the operations list is malformed
+     */
+    public static SettingsTransaction fromJson(Context context, String operations)
+            throws JSONException {
+        JSONArray items = new JSONArray(operations);
+        List<JSONObject> result = new ArrayList<>();
+        for (int i = 0; i < items.length(); i++) {
+            JSONObject item = items.getJSONObject(i);
+            // Fail early, so nothing is changed if the transaction is malformed
+            item.getString(SETTING);
+            result.add(item);
+        }
+        return new SettingsTransaction(context, result);
+    }
+
+    /**
+     * Blocks until all operations are finished or the timeout expires
+     *
+     * @return results of all operations in the same order as the operations
+     */
+    public List<JSONObject> execute(long timeoutMs) throws JSONException {
+        // Operations are grouped by setting and each group gets its own thread
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            String setting = operations.get(i).getString(SETTING);
+            List<Integer> group = groups.get(setting);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(setting, group);
+            }
+            group.add(i);
+        }
+
+        final AtomicReferenceArray<JSONObject> results = new AtomicReferenceArray<>(operations.size());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, groups.size()));
+        for (final List<Integer> group : groups.values()) {
+            executor.execute(() -> {
+                for (int index : group) {
+                    // Remaining operations are skipped after the timeout
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    results.set(index, executeOperation(operations.get(index)));
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, String.format("Not all operations have been finished within %sms",
+                        timeoutMs));
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        List<JSONObject> result = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            JSONObject operationResult = results.get(i);
+            result.add(operationResult == null
+                    ? toResult(operations.get(i), false,
+                            String.format("The operation has not been finished within %sms. " +
+                                    "The change might still be applied later", timeoutMs))
+                    : operationResult);
+        }
+        return result;
+    }
+
+    private JSONObject executeOperation(JSONObject operation) {
+        String setting = operation.optString(SETTING);
+        try {
+            if (SETTING_LOCALE.equals(setting)) {
+                if (!operation.has(LANG) || !operation.has(COUNTRY)) {
+                    return toResult(operation, false, String.format("Both '%s' and '%s' must be provided",
+                            LANG, COUNTRY));
+                }
+                boolean isSuccessful = new LocaleSettingHandler(context).setLocale(
+                        LocaleSettingHandler.buildLocale(operation.getString(LANG),
+                                operation.getString(COUNTRY), operation.optString(SCRIPT, null)));
+                return toResult(operation, isSuccessful, null);
+            }
+
+            String command = operation.optString(COMMAND);
+            if (!COMMAND_ENABLE.equals(command) && !COMMAND_DISABLE.equals(command)) {
+                return toResult(operation, false, String.format("Cannot identify the command [%s]",
+                        command));
+            }
+            AbstractSettingHandler handler;
+            try {
+                handler = SettingHandlerFactory.create(context, setting);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                return toResult(operation, false, e.getMessage());
+            }
+            boolean isSuccessful = COMMAND_ENABLE.equals(command) ? handler.enable() : handler.disable();
+            return toResult(operation, isSuccessful, null);
+        } catch (Exception e) {
+            Log.e(TAG, String.format("Cannot change %s", setting), e);
+            return toResult(operation, false, e.getMessage());
+        }
+    }
+
+    private static JSONObject toResult(JSONObject operation, boolean isSuccessful, String error) {
+        JSONObject result = new JSONObject();
+        try {
+            result.put(SETTING, operation.optString(SETTING));
+            result.put("success", isSuccessful);
+            if (error != null) {
+                result.put("error", error);
+            }
+        } catch (JSONException e) {
+            // Cannot happen, since all values are valid
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+}
@@ -26,6 +26,22 @@ public class WiFiConnectionSettingHandler extends AbstractSettingHandler {
         super(context, WIFI_PERMISSION);
     }
 
+    @Override
+    public Boolean getState() {
+        WifiManager mWifiManager =
+                (WifiManager) mContext.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+        switch (mWifiManager.getWifiState()) {
+            case WifiManager.WIFI_STATE_ENABLED:
+            case WifiManager.WIFI_STATE_ENABLING:
+                return true;
+            case WifiManager.WIFI_STATE_DISABLED:
+            case WifiManager.WIFI_STATE_DISABLING:
+                return false;
+            default:
+                return null;
+        }
+    }
+
     @Override
     protected boolean setState(boolean state) {
         WifiManager mWifiManager =
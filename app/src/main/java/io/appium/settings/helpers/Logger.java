@@ -0,0 +1,110 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.helpers;
+
+import android.util.Log;
+
+/**
+ * Level-gated logging, which only formats messages that are going to be written.
+ * <p>
+ * By default the level configured for the particular tag is respected
+ * (adb shell setprop log.tag.&lt;TAG&gt; VERBOSE), which is INFO unless changed.
+ * The minimum level could also be changed for all tags at runtime, see {@link #setMinLevel(int)}.
+ * </p>
+ * <p>
+ * Varargs and boxed arguments are still created by the caller, so hot paths
+ * should check {@link #isLoggable(String, int)} before calling the logging methods.
+ * </p>
+ */
+public class Logger {
+    public static final int NO_LEVEL_SET = 0;
+    // Log.isLoggable uses INFO as the default level for all tags
+    private static final int DEFAULT_LEVEL = Log.INFO;
+
+    private static volatile int minLevel = NO_LEVEL_SET;
+
+    public static boolean isLoggable(String tag, int level) {
+        int currentMinLevel = minLevel;
+        if (currentMinLevel != NO_LEVEL_SET) {
+            return level >= currentMinLevel;
+        }
+        try {
+            return Log.isLoggable(tag, level);
+        } catch (IllegalArgumentException e) {
+            // Tags longer than 23 characters are rejected before API 24
+            return level >= DEFAULT_LEVEL;
+        }
+    }
+
+    /**
+     * @param level one of the {@link Log} levels or {@link #NO_LEVEL_SET}
+     *              to respect the level configured for each tag
+     */
+    public static void setMinLevel(int level) {
+        minLevel = level;
+    }
+
+    public static int getMinLevel() {
+        return minLevel;
+    }
+
+    public static void v(String tag, String format, Object... args) {
+        if (isLoggable(tag, Log.VERBOSE)) {
+            Log.v(tag, format(format, args));
+        }
+    }
+
+    public static void d(String tag, String format, Object... args) {
+        if (isLoggable(tag, Log.DEBUG)) {
+            Log.d(tag, format(format, args));
+        }
+    }
+
+    public static void i(String tag, String format, Object... args) {
+        if (isLoggable(tag, Log.INFO)) {
+            Log.i(tag, format(format, args));
+        }
+    }
+
+    public static void w(String tag, String format, Object... args) {
+        if (isLoggable(tag, Log.WARN)) {
+            Log.w(tag, format(format, args));
+        }
+    }
+
+    public static void w(String tag, String message, Throwable tr) {
+        if (isLoggable(tag, Log.WARN)) {
+            Log.w(tag, message, tr);
+        }
+    }
+
+    public static void e(String tag, String format, Object... args) {
+        if (isLoggable(tag, Log.ERROR)) {
+            Log.e(tag, format(format, args));
+        }
+    }
+
+    public static void e(String tag, String message, Throwable tr) {
+        if (isLoggable(tag, Log.ERROR)) {
+            Log.e(tag, message, tr);
+        }
+    }
+
+    private static String format(String format, Object... args) {
+        return args.length == 0 ? format : String.format(format, args);
+    }
+}
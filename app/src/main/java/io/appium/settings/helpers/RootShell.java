@@ -0,0 +1,226 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.helpers;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived root shell session, so privileged commands do not spawn a new su process each.
+ * <p>
+ * Each command is followed by a unique sentinel line with its exit code, which separates
+ * its output from the output of the next command. Commands are executed one by one.
+ * </p>
+ */
+public class RootShell {
+    private static final String TAG = RootShell.class.getSimpleName();
+
+    private static final String[] SU_PATHS = new String[]{"su", "/system/xbin/su", "/system/bin/su"};
+    private static final String SENTINEL_PREFIX = "__APPIUM_SETTINGS_EXIT_CODE_";
+    public static final long DEFAULT_TIMEOUT_MS = 5000;
+    public static final int NO_EXIT_CODE = -1;
+
+    // Marks the end of the shell output, compared by reference
+    @SuppressWarnings("StringOperationCanBeSimplified")
+    private static final String END_OF_STREAM = new String("");
+
+    private static RootShell instance = null;
+
+    private Process process = null;
+    private OutputStream stdin = null;
+    private BlockingQueue<String> stdout = null;
+    private long commandsCount = 0;
+
+    public static class Result {
+        private final int exitCode;
+        private final String output;
+
+        Result(int exitCode, String output) {
+            this.exitCode = exitCode;
+            this.output = output;
+        }
+
+        /**
+         * @return the exit code of the command or {@value #NO_EXIT_CODE} if it
+         * could not be executed
+         */
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        /**
+         * @return the combined stdout and stderr of the command or the failure reason
+         * if the command could not be executed
+         */
+        public String getOutput() {
+            return output;
+        }
+
+        public boolean isSuccessful() {
+            return exitCode == 0;
+        }
+    }
+
+    public static synchronized RootShell getInstance() {
+        if (instance == null) {
+            instance = new RootShell();
+        }
+        return instance;
+    }
+
+    private RootShell() {
+    }
+
+    public Result execute(String command) {
+        return execute(command, DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * Starts the session if it is not running yet. The session is restarted
+     * on the next call if the command times out or the shell dies.
+     */
+    public synchronized Result execute(String command, long timeoutMs) {
+        if (process == null && !start()) {
+            return new Result(NO_EXIT_CODE, String.format(
+                    "'su' binary is not available at %s. Is the phone rooted?",
+                    Arrays.toString(SU_PATHS)));
+        }
+
+        String sentinel = SENTINEL_PREFIX + (++commandsCount) + "__";
+        // The subshell keeps the session alive if the command calls exit and
+        // the empty echo terminates the output, which might not end with a newline
+        String script = String.format("( %s ) </dev/null 2>&1; __rc=$?; echo; echo \"%s $__rc\"\n",
+                command, sentinel);
+        try {
+            // TODO: Use StandardCharsets.UTF_8 after the minimum supported API version
+            // TODO: is bumped above 18
+            //noinspection CharsetObjectCanBeUsed
+            stdin.write(script.getBytes("UTF-8"));
+            stdin.flush();
+        } catch (IOException e) {
+            stop();
+            return new Result(NO_EXIT_CODE, String.format("Cannot send the command to the shell: %s",
+                    e.getMessage()));
+        }
+
+        StringBuilder output = new StringBuilder();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        try {
+            while (true) {
+                String line = stdout.poll(Math.max(0, deadline - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS);
+                if (line == null) {
+                    stop();
+                    return new Result(NO_EXIT_CODE, String.format(
+                            "The command has not been finished within %sms", timeoutMs));
+                }
+                //noinspection StringEquality
+                if (line == END_OF_STREAM) {
+                    stop();
+                    return new Result(NO_EXIT_CODE, String.format(
+                            "The shell has been terminated. Has root access been denied? %s", output));
+                }
+                if (line.startsWith(sentinel)) {
+                    // Drop the newline added by the empty echo
+                    if (output.length() > 0) {
+                        output.setLength(output.length() - 1);
+                    }
+                    return new Result(parseExitCode(line.substring(sentinel.length()).trim()),
+                            output.toString());
+                }
+                output.append(line).append('\n');
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop();
+            return new Result(NO_EXIT_CODE, "The command has been interrupted");
+        }
+    }
+
+    private static int parseExitCode(String exitCode) {
+        try {
+            return Integer.parseInt(exitCode);
+        } catch (NumberFormatException e) {
+            return NO_EXIT_CODE;
+        }
+    }
+
+    private boolean start() {
+        for (String su : SU_PATHS) {
+            try {
+                process = new ProcessBuilder(su).redirectErrorStream(true).start();
+                break;
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+        if (process == null) {
+            Log.e(TAG, String.format("'su' binary is not available at %s. Is the phone rooted?",
+                    Arrays.toString(SU_PATHS)));
+            return false;
+        }
+
+        stdin = process.getOutputStream();
+        final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+        final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream()));
+        Thread readerThread = new Thread(() -> {
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    queue.add(line);
+                }
+            } catch (IOException e) {
+                // The shell has been stopped
+            } finally {
+                queue.add(END_OF_STREAM);
+            }
+        }, TAG);
+        readerThread.setDaemon(true);
+        readerThread.start();
+        stdout = queue;
+        Log.d(TAG, "The root shell session has been started");
+        return true;
+    }
+
+    /**
+     * Terminates the session. It is started again on the next command.
+     */
+    public synchronized void stop() {
+        if (process == null) {
+            return;
+        }
+        try {
+            stdin.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        process.destroy();
+        process = null;
+        stdin = null;
+        stdout = null;
+        Log.d(TAG, "The root shell session has been stopped");
+    }
+}
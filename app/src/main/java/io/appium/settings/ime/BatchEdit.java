@@ -0,0 +1,53 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.ime;
+
+import android.view.inputmethod.InputConnection;
+
+/**
+ * Groups multiple edits, so the editor only updates its state and layout once
+ * after all of them have been applied
+ */
+public class BatchEdit {
+    private InputConnection inputConnection = null;
+
+    /**
+     * Does nothing if a batch edit is already in progress
+     */
+    public void begin(InputConnection inputConnection) {
+        if (this.inputConnection != null || inputConnection == null) {
+            return;
+        }
+        if (inputConnection.beginBatchEdit()) {
+            this.inputConnection = inputConnection;
+        }
+    }
+
+    /**
+     * Ends the batch edit on the same connection it has been started for
+     */
+    public void end() {
+        if (inputConnection != null) {
+            inputConnection.endBatchEdit();
+            inputConnection = null;
+        }
+    }
+
+    public boolean isInProgress() {
+        return inputConnection != null;
+    }
+}
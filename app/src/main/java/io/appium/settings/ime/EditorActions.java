@@ -0,0 +1,62 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.ime;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Editor actions, which could be triggered by typing /action_name_or_integer_code/
+ */
+public class EditorActions {
+    /**
+     * Encloses action names
+     */
+    public static final char ACTION_FLAG = '/';
+    public static final int MAX_ACTION_NAME_LENGTH = 20;
+
+    private static final Map<String, Integer> ACTION_CODES_MAP = new HashMap<>();
+    static {
+        ACTION_CODES_MAP.put("normal", 0);
+        ACTION_CODES_MAP.put("unspecified", 0);
+        ACTION_CODES_MAP.put("none", 1);
+        ACTION_CODES_MAP.put("go", 2);
+        ACTION_CODES_MAP.put("search", 3);
+        ACTION_CODES_MAP.put("send", 4);
+        ACTION_CODES_MAP.put("next", 5);
+        ACTION_CODES_MAP.put("done", 6);
+        ACTION_CODES_MAP.put("previous", 7);
+    }
+
+    /**
+     * @param actionName either the case-insensitive action name or its integer code
+     * @return the editor action code or null if the action name is unknown
+     */
+    public static Integer getActionCode(String actionName) {
+        try {
+            return Integer.parseInt(actionName);
+        } catch (NumberFormatException e) {
+            return ACTION_CODES_MAP.get(actionName.toLowerCase());
+        }
+    }
+
+    public static Set<String> getActionNames() {
+        return Collections.unmodifiableSet(ACTION_CODES_MAP.keySet());
+    }
+}
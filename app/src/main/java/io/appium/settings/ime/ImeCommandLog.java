@@ -0,0 +1,143 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.ime;
+
+import android.view.inputmethod.InputConnection;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps the results of recent input method commands, so clients could check whether
+ * their input has been applied instead of waiting for an arbitrary time.
+ */
+public class ImeCommandLog {
+    private static final int MAX_HISTORY_SIZE = 500;
+    private static final String NO_INPUT_CONNECTION_ERROR = "There is no focused input field";
+
+    private static ImeCommandLog instance = null;
+
+    private final ArrayDeque<ImeCommandResult> history = new ArrayDeque<>(MAX_HISTORY_SIZE);
+    private long lastSequence = 0;
+    private int selectionStart = ImeCommandResult.NO_SELECTION_SET;
+    private int selectionEnd = ImeCommandResult.NO_SELECTION_SET;
+
+    public static synchronized ImeCommandLog getInstance() {
+        if (instance == null) {
+            instance = new ImeCommandLog();
+        }
+        return instance;
+    }
+
+    private ImeCommandLog() {
+    }
+
+    /**
+     * Commits the text and records the result as a separate command
+     */
+    public ImeCommandResult commitText(String imeName, InputConnection inputConnection,
+                                       CharSequence text) {
+        return add(commitText(new ImeCommandResult(imeName, ImeCommandResult.COMMAND_COMMIT),
+                inputConnection, text));
+    }
+
+    /**
+     * Commits the text as a part of the given command, which is recorded later
+     */
+    public static ImeCommandResult commitText(ImeCommandResult result,
+                                              InputConnection inputConnection, CharSequence text) {
+        if (inputConnection == null) {
+            return result.fail(NO_INPUT_CONNECTION_ERROR);
+        }
+        return result.onCommit(inputConnection.commitText(text, 1), text.length());
+    }
+
+    public ImeCommandResult performEditorAction(String imeName, InputConnection inputConnection,
+                                                String actionName, int editorAction) {
+        ImeCommandResult result = new ImeCommandResult(imeName, ImeCommandResult.COMMAND_ACTION)
+                .setActionName(actionName);
+        if (inputConnection == null) {
+            result.fail(NO_INPUT_CONNECTION_ERROR);
+        } else if (!inputConnection.performEditorAction(editorAction)) {
+            result.fail(String.format("Cannot perform editor action %s on the focused element",
+                    editorAction));
+        }
+        return add(result);
+    }
+
+    public synchronized ImeCommandResult add(ImeCommandResult result) {
+        result.setSequence(++lastSequence);
+        if (history.size() >= MAX_HISTORY_SIZE) {
+            history.removeFirst();
+        }
+        history.addLast(result);
+        return result;
+    }
+
+    /**
+     * Must be called by input methods from onUpdateSelection. The selection is assigned
+     * to all recent commands, which have been waiting for it.
+     */
+    public synchronized void onSelectionChanged(int selectionStart, int selectionEnd) {
+        this.selectionStart = selectionStart;
+        this.selectionEnd = selectionEnd;
+        Iterator<ImeCommandResult> iterator = history.descendingIterator();
+        while (iterator.hasNext()) {
+            ImeCommandResult result = iterator.next();
+            if (result.hasSelection()) {
+                break;
+            }
+            result.setSelection(selectionStart, selectionEnd);
+        }
+    }
+
+    /**
+     * @param sinceSequence only commands with greater sequence numbers are returned
+     * @return the recent commands (up to {@value #MAX_HISTORY_SIZE}), the oldest one first
+     */
+    public synchronized List<ImeCommandResult> getResults(long sinceSequence) {
+        List<ImeCommandResult> result = new ArrayList<>();
+        for (ImeCommandResult item : history) {
+            if (item.getSequence() > sinceSequence) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    public synchronized JSONObject toJson(long sinceSequence) throws JSONException {
+        JSONArray items = new JSONArray();
+        for (ImeCommandResult item : getResults(sinceSequence)) {
+            items.put(item.toJson());
+        }
+        JSONObject result = new JSONObject();
+        result.put("items", items);
+        // The count of all commands, including the ones which do not fit into the history anymore
+        result.put("total", lastSequence);
+        if (selectionStart != ImeCommandResult.NO_SELECTION_SET) {
+            result.put("selectionStart", selectionStart);
+            result.put("selectionEnd", selectionEnd);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.ime;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The outcome of a single input method command, e.g. a text commit or an editor action
+ */
+public class ImeCommandResult {
+    public static final String COMMAND_COMMIT = "commit";
+    public static final String COMMAND_ACTION = "action";
+    public static final int NO_SELECTION_SET = -1;
+
+    private final String imeName;
+    private final String command;
+    private final long timestamp;
+    private long sequence = 0;
+    private String actionName = null;
+    private boolean isSuccessful = true;
+    private int committedLength = 0;
+    private String error = null;
+    private int selectionStart = NO_SELECTION_SET;
+    private int selectionEnd = NO_SELECTION_SET;
+
+    public ImeCommandResult(String imeName, String command) {
+        this.imeName = imeName;
+        this.command = command;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * Adds the outcome of a single commitText call. A command could consist of multiple commits.
+     */
+    public ImeCommandResult onCommit(boolean isSuccessful, int length) {
+        if (isSuccessful) {
+            committedLength += length;
+        } else {
+            fail("The input field did not accept the text");
+        }
+        return this;
+    }
+
+    public ImeCommandResult setActionName(String actionName) {
+        this.actionName = actionName;
+        return this;
+    }
+
+    public ImeCommandResult fail(String error) {
+        this.isSuccessful = false;
+        this.error = error;
+        return this;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    void setSelection(int selectionStart, int selectionEnd) {
+        this.selectionStart = selectionStart;
+        this.selectionEnd = selectionEnd;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public boolean isSuccessful() {
+        return isSuccessful;
+    }
+
+    public int getCommittedLength() {
+        return committedLength;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean hasSelection() {
+        return selectionStart != NO_SELECTION_SET;
+    }
+
+    public JSONObject toJson() throws JSONException {
+        JSONObject result = new JSONObject();
+        result.put("sequence", sequence);
+        result.put("timestamp", timestamp);
+        result.put("ime", imeName);
+        result.put("command", command);
+        if (actionName != null) {
+            result.put("actionName", actionName);
+        }
+        result.put("success", isSuccessful);
+        result.put("committed", committedLength);
+        if (error != null) {
+            result.put("error", error);
+        }
+        // The selection is only known after the editor has processed the command
+        if (hasSelection()) {
+            result.put("selectionStart", selectionStart);
+            result.put("selectionEnd", selectionEnd);
+        }
+        return result;
+    }
+}
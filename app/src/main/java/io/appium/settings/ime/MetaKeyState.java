@@ -0,0 +1,51 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.ime;
+
+import android.text.method.MetaKeyKeyListener;
+import android.view.KeyEvent;
+
+/**
+ * Tracks the state of meta keys (shift, alt, ...) across the key events
+ * received by an input method.
+ */
+public class MetaKeyState {
+    private long metaState = 0;
+
+    /**
+     * Must be called for every key down event
+     *
+     * @return the Unicode character produced by the event or 0 if there is none
+     */
+    public int onKeyDown(int keyCode, KeyEvent event) {
+        metaState = MetaKeyKeyListener.handleKeyDown(metaState, keyCode, event);
+        int c = event.getUnicodeChar(event.getMetaState());
+        metaState = MetaKeyKeyListener.adjustMetaAfterKeypress(metaState);
+        return c;
+    }
+
+    /**
+     * Must be called for every key up event
+     */
+    public void onKeyUp(int keyCode, KeyEvent event) {
+        metaState = MetaKeyKeyListener.handleKeyUp(metaState, keyCode, event);
+    }
+
+    public void reset() {
+        metaState = 0;
+    }
+}
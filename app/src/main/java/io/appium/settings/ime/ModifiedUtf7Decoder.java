@@ -0,0 +1,190 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.ime;
+
+import java.util.Arrays;
+
+/**
+ * Incremental Modified UTF-7 (RFC 3501) decoder, which consumes the encoded input
+ * one character at a time, e.g. as it arrives from key events.
+ * <p>
+ * Decoded UTF-16 code units are collected in a reusable buffer, so decoding does not
+ * allocate. Only complete code points are exposed, i.e. a trailing high surrogate
+ * stays in the buffer until its low surrogate arrives.
+ * </p>
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ */
+public class ModifiedUtf7Decoder {
+    /**
+     * Shifts to Modified BASE64
+     */
+    public static final char SHIFT = '&';
+
+    /**
+     * Shifts back to US-ASCII
+     */
+    public static final char UNSHIFT = '-';
+
+    private static final int INITIAL_BUFFER_SIZE = 64;
+    private static final int INVALID_BASE64_VALUE = -1;
+    private static final int[] BASE64_VALUES = new int[128];
+
+    static {
+        // Modified BASE64 uses ',' instead of '/'
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+,";
+        Arrays.fill(BASE64_VALUES, INVALID_BASE64_VALUE);
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private char[] decoded = new char[INITIAL_BUFFER_SIZE];
+    private int decodedLength = 0;
+    private boolean isShifted = false;
+    // Whether no BASE64 character has been received since the shift ("&-" means "&")
+    private boolean isShiftEmpty = false;
+    private int bits = 0;
+    private int bitsCount = 0;
+    private int malformedInputCount = 0;
+
+    /**
+     * Decodes the next input character
+     *
+     * @return false if the character is neither a part of the encoded text nor
+     * a printable US-ASCII character, so it has not been consumed
+     */
+    public boolean feed(char c) {
+        if (!isShifted) {
+            if (c == SHIFT) {
+                isShifted = true;
+                isShiftEmpty = true;
+                bits = 0;
+                bitsCount = 0;
+                return true;
+            }
+            if (c >= 0x20 && c <= 0x7E) {
+                append(c);
+                return true;
+            }
+            return false;
+        }
+
+        if (c == UNSHIFT) {
+            if (isShiftEmpty) {
+                append(SHIFT);
+            } else if (bitsCount >= 6 || bits != 0) {
+                // Only up to 5 zero padding bits are allowed
+                malformedInputCount++;
+            }
+            isShifted = false;
+            return true;
+        }
+        int value = c < BASE64_VALUES.length ? BASE64_VALUES[c] : INVALID_BASE64_VALUE;
+        if (value == INVALID_BASE64_VALUE) {
+            // The encoded part has not been terminated properly
+            malformedInputCount++;
+            isShifted = false;
+            return feed(c);
+        }
+        isShiftEmpty = false;
+        bits = (bits << 6) | value;
+        bitsCount += 6;
+        if (bitsCount >= 16) {
+            bitsCount -= 16;
+            append((char) (bits >>> bitsCount));
+            bits &= (1 << bitsCount) - 1;
+        }
+        return true;
+    }
+
+    private void append(char c) {
+        if (decodedLength == decoded.length) {
+            char[] newDecoded = new char[decoded.length * 2];
+            System.arraycopy(decoded, 0, newDecoded, 0, decodedLength);
+            decoded = newDecoded;
+        }
+        decoded[decodedLength++] = c;
+    }
+
+    /**
+     * @return true if the decoder is inside of an encoded (BASE64) part of the input
+     */
+    public boolean isShifted() {
+        return isShifted;
+    }
+
+    /**
+     * @return the buffer with decoded code units, valid up to {@link #getDecodedLength()}.
+     * The buffer is reused, so it must not be retained.
+     */
+    public char[] getDecodedBuffer() {
+        return decoded;
+    }
+
+    /**
+     * @return the count of decoded code units, which form complete code points
+     */
+    public int getDecodedLength() {
+        if (decodedLength > 0 && Character.isHighSurrogate(decoded[decodedLength - 1])) {
+            return decodedLength - 1;
+        }
+        return decodedLength;
+    }
+
+    /**
+     * Removes complete code points from the buffer
+     */
+    public void clearDecoded() {
+        int length = getDecodedLength();
+        if (length < decodedLength) {
+            decoded[0] = decoded[length];
+        }
+        decodedLength -= length;
+    }
+
+    /**
+     * Copies the decoded text, since input connections may keep the committed text
+     * after the call returns, so it cannot be a view of the reusable buffer.
+     *
+     * @return complete code points decoded so far, which are removed from the buffer
+     */
+    public String takeDecoded() {
+        String result = new String(decoded, 0, getDecodedLength());
+        clearDecoded();
+        return result;
+    }
+
+    /**
+     * @return the count of malformed sequences since the last reset
+     */
+    public int getMalformedInputCount() {
+        return malformedInputCount;
+    }
+
+    /**
+     * Drops all state and decoded text
+     */
+    public void reset() {
+        decodedLength = 0;
+        isShifted = false;
+        isShiftEmpty = false;
+        bits = 0;
+        bitsCount = 0;
+        malformedInputCount = 0;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.ime;
+
+import android.view.inputmethod.InputConnection;
+
+/**
+ * Commits Modified UTF-7 encoded text typed key by key.
+ * <p>
+ * Decoded characters are committed as soon as they are complete. All commits of an encoded
+ * (&amp;...-) part are grouped into a single batch edit and reported as a single command
+ * to {@link ImeCommandLog}.
+ * </p>
+ */
+public class Utf7TextInput {
+    private final String imeName;
+    private final ModifiedUtf7Decoder decoder = new ModifiedUtf7Decoder();
+    private final BatchEdit batchEdit = new BatchEdit();
+    // The result of the encoded part, which is being typed
+    private ImeCommandResult pendingResult = null;
+    private int pendingMalformedInputCount = 0;
+
+    public Utf7TextInput(String imeName) {
+        this.imeName = imeName;
+    }
+
+    /**
+     * @return false if the character is neither a part of the encoded text nor
+     * a printable US-ASCII character, so it has not been consumed
+     */
+    public boolean onChar(char c, InputConnection inputConnection) {
+        if (!decoder.feed(c)) {
+            // The encoded part has been interrupted, e.g. by Enter, so its batch edit
+            // must be closed before the caller forwards the key
+            if (pendingResult != null) {
+                finish(pendingResult.fail("The Modified UTF-7 encoded text is malformed"));
+            }
+            return false;
+        }
+
+        if (decoder.isShifted()) {
+            if (pendingResult == null) {
+                pendingResult = new ImeCommandResult(imeName, ImeCommandResult.COMMAND_COMMIT);
+                pendingMalformedInputCount = decoder.getMalformedInputCount();
+                batchEdit.begin(inputConnection);
+            }
+            if (decoder.getDecodedLength() > 0) {
+                ImeCommandLog.commitText(pendingResult, inputConnection, decoder.takeDecoded());
+            }
+            return true;
+        }
+
+        ImeCommandResult result = pendingResult == null
+                ? new ImeCommandResult(imeName, ImeCommandResult.COMMAND_COMMIT)
+                : pendingResult;
+        if (decoder.getDecodedLength() > 0) {
+            ImeCommandLog.commitText(result, inputConnection, decoder.takeDecoded());
+        }
+        if (pendingResult != null && decoder.getMalformedInputCount() > pendingMalformedInputCount) {
+            result.fail("The Modified UTF-7 encoded text is malformed");
+        }
+        finish(result);
+        return true;
+    }
+
+    public boolean isShifted() {
+        return decoder.isShifted();
+    }
+
+    /**
+     * Terminates the encoded part, which is being typed, if there is any
+     */
+    public void flush(InputConnection inputConnection) {
+        if (decoder.isShifted()) {
+            onChar(ModifiedUtf7Decoder.UNSHIFT, inputConnection);
+        }
+    }
+
+    /**
+     * Drops an unfinished encoded part, e.g. because the input field has lost focus
+     */
+    public void reset() {
+        if (pendingResult != null) {
+            finish(pendingResult.fail("The input has been finished before the end of the encoded text"));
+        }
+        batchEdit.end();
+        decoder.reset();
+    }
+
+    private void finish(ImeCommandResult result) {
+        batchEdit.end();
+        pendingResult = null;
+        ImeCommandLog.getInstance().add(result);
+    }
+}
@@ -58,7 +58,8 @@ public class FusedLocationProvider implements MockLocationProvider {
             Log.d(TAG, "GoogleApiClient is not connected");
             return;
         }
-        fusedLocationProviderClient.setMockLocation(location);
+        // The location might be parceled asynchronously, while the caller already updates it
+        fusedLocationProviderClient.setMockLocation(new Location(location));
     }
 
     @SuppressLint("MissingPermission")
@@ -81,6 +82,27 @@ public class FusedLocationProvider implements MockLocationProvider {
         fusedLocationProviderClient.asGoogleApiClient().disconnect();
     }
 
+    /**
+     * Keeps the client connected, so switching the mock mode takes only a single call
+     */
+    @SuppressLint("MissingPermission")
+    @Override
+    public void pause() {
+        if (!hasPermissions()) {
+            return;
+        }
+        fusedLocationProviderClient.setMockMode(false);
+    }
+
+    @SuppressLint("MissingPermission")
+    @Override
+    public void resume() {
+        if (!hasPermissions()) {
+            return;
+        }
+        fusedLocationProviderClient.setMockMode(true);
+    }
+
     @Override
     @NonNull
     public String toString() {
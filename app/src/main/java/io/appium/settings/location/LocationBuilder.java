@@ -16,65 +16,118 @@
 
 package io.appium.settings.location;
 
-import android.content.Intent;
 import android.location.Criteria;
 import android.location.Location;
 import android.os.SystemClock;
-import android.util.Log;
-
-import androidx.annotation.Nullable;
 
 public class LocationBuilder {
+    private static final double EARTH_RADIUS_METERS = 6371008.8;
+    // Avoids huge longitude offsets close to the poles
+    private static final double MIN_COS_LATITUDE = 1e-6;
 
-    private static final String TAG = "MOCKED LOCATION BUILDER";
-    private static final String LONGITUDE_PARAMETER_KEY = "longitude";
-    private static final String LATITUDE_PARAMETER_KEY = "latitude";
-    private static final String ALTITUDE_PARAMETER_KEY = "altitude";
-    private static final String SPEED_PARAMETER_KEY = "speed";
-    private static final String BEARING_PARAMETER_KEY = "bearing";
-
-    @Nullable
-    private static Double extractParam(Intent intent, String paramKey) {
-        Double value = null;
-
-        try {
-            if (intent.hasExtra(paramKey)) {
-                value = Double.parseDouble(intent.getStringExtra(paramKey));
-                Log.i(TAG, String.format("Received parameter: %s, value: %s", paramKey, value));
-            }
-        } catch (NumberFormatException e) {
-            Log.e(TAG, String.format("%s should be a valid number. '%s' is given instead",
-                    paramKey, intent.getStringExtra(paramKey)));
+    public static Location buildFromSpec(LocationSpec spec, String providerName) {
+        Location location = new Location(providerName);
+        location.setAccuracy(Criteria.ACCURACY_FINE);
+        if (spec.getLongitude() != null) {
+            location.setLongitude(spec.getLongitude());
+        }
+        if (spec.getLatitude() != null) {
+            location.setLatitude(spec.getLatitude());
         }
-        return value;
+        if (spec.getAltitude() != null) {
+            location.setAltitude(spec.getAltitude());
+        }
+        if (spec.getSpeed() != null) {
+            location.setSpeed(spec.getSpeed().floatValue());
+        }
+        if (spec.getBearing() != null) {
+            location.setBearing(spec.getBearing().floatValue());
+        }
+        updateTime(location);
+        return location;
     }
 
-    public static Location buildFromIntent(Intent intent, String providerName) {
-        Double longitude = extractParam(intent, LONGITUDE_PARAMETER_KEY);
-        Double latitude = extractParam(intent, LATITUDE_PARAMETER_KEY);
-        Double altitude = extractParam(intent, ALTITUDE_PARAMETER_KEY);
-        Double speed = extractParam(intent, SPEED_PARAMETER_KEY);
-        Double bearing = extractParam(intent, BEARING_PARAMETER_KEY);
+    public static Location buildFromRoutePosition(RoutePosition position, String providerName) {
         Location location = new Location(providerName);
         location.setAccuracy(Criteria.ACCURACY_FINE);
-        if (longitude != null) {
-            location.setLongitude(longitude);
-        }
-        if (latitude != null) {
-            location.setLatitude(latitude);
+        applyRoutePosition(position, location);
+        return location;
+    }
+
+    /**
+     * Moves the given (reused) location instance to the given route position
+     * and marks it as fresh
+     */
+    public static void applyRoutePosition(RoutePosition position, Location location) {
+        location.setLatitude(position.getLatitude());
+        location.setLongitude(position.getLongitude());
+        if (position.getAltitude() != null) {
+            location.setAltitude(position.getAltitude());
         }
-        if (altitude != null) {
+        location.setSpeed(position.getSpeed());
+        location.setBearing(position.getBearing());
+        updateTime(location);
+    }
+
+    /**
+     * Copies the given track record into the given (reused) location instance
+     * and marks it as fresh. Unknown (NaN) values are removed from the location.
+     */
+    public static void applyTrackRecord(TrackFile track, int index, double speedMultiplier,
+                                        Location location) {
+        location.setLatitude(track.getLatitude(index));
+        location.setLongitude(track.getLongitude(index));
+        float altitude = track.getAltitude(index);
+        if (Float.isNaN(altitude)) {
+            location.removeAltitude();
+        } else {
             location.setAltitude(altitude);
         }
-        if (speed != null) {
-            location.setSpeed(speed.floatValue());
+        float speed = track.getSpeed(index);
+        if (Float.isNaN(speed)) {
+            location.removeSpeed();
+        } else {
+            // The device actually moves faster/slower than the track has been recorded
+            location.setSpeed((float) (speed * speedMultiplier));
         }
-        if (bearing != null) {
-            location.setBearing(bearing.floatValue());
+        float bearing = track.getBearing(index);
+        if (Float.isNaN(bearing)) {
+            location.removeBearing();
+        } else {
+            location.setBearing(bearing);
         }
+        float accuracy = track.getAccuracy(index);
+        location.setAccuracy(Float.isNaN(accuracy) ? Criteria.ACCURACY_FINE : accuracy);
+        updateTime(location);
+    }
 
+    /**
+     * Moves the given location by the current offsets of the noise model
+     * and reports the simulated accuracy radius
+     */
+    public static void applyNoise(LocationNoiseModel noiseModel, Location location) {
+        double latitude = location.getLatitude();
+        location.setLatitude(Math.max(-90, Math.min(90,
+                latitude + Math.toDegrees(noiseModel.getNorthOffset() / EARTH_RADIUS_METERS))));
+        double cosLatitude = Math.max(Math.cos(Math.toRadians(latitude)), MIN_COS_LATITUDE);
+        double longitude = location.getLongitude()
+                + Math.toDegrees(noiseModel.getEastOffset() / (EARTH_RADIUS_METERS * cosLatitude));
+        // Keep the longitude within [-180, 180)
+        location.setLongitude(((longitude + 540) % 360) - 180);
+        if (location.hasAltitude()) {
+            location.setAltitude(location.getAltitude() + noiseModel.getVerticalOffset());
+        }
+        if (location.hasSpeed() && location.getSpeed() > 0) {
+            location.setSpeed((float) Math.max(0, location.getSpeed() + noiseModel.getSpeedOffset()));
+        }
+        location.setAccuracy((float) noiseModel.getAccuracy());
+    }
+
+    /**
+     * Marks the given (reused) location instance as fresh
+     */
+    public static void updateTime(Location location) {
         location.setTime(System.currentTimeMillis());
         location.setElapsedRealtimeNanos(SystemClock.elapsedRealtimeNanos());
-        return location;
     }
 }
@@ -33,6 +33,8 @@ public class LocationManagerProvider implements MockLocationProvider {
     private final boolean supportsBearing;
     private final int powerRequirement;
     private final int accuracy;
+    // Test providers cannot be added twice or removed if they do not exist
+    private boolean isRegistered = false;
 
     public LocationManagerProvider(LocationManager locationManager, String name, boolean requiresNetwork, boolean requiresSatellite, boolean requiresCell, boolean hasMonetaryCost, boolean supportsAltitude, boolean supportsSpeed, boolean supportsBearing, int powerRequirement, int accuracy) {
         this.locationManager = locationManager;
@@ -55,6 +57,9 @@ public class LocationManagerProvider implements MockLocationProvider {
 
     @Override
     public void enable() {
+        if (isRegistered) {
+            return;
+        }
         locationManager.addTestProvider(name,
                 requiresNetwork,
                 requiresSatellite,
@@ -65,13 +70,32 @@ public class LocationManagerProvider implements MockLocationProvider {
                 supportsBearing,
                 powerRequirement,
                 accuracy);
+        isRegistered = true;
         locationManager.setTestProviderEnabled(name, true);
     }
 
     @Override
     public void disable() {
+        if (!isRegistered) {
+            return;
+        }
         locationManager.setTestProviderEnabled(name, false);
         locationManager.removeTestProvider(name);
+        isRegistered = false;
+    }
+
+    /**
+     * The real provider only comes back after the test provider has been removed.
+     * It is registered again with the cached properties, so no provider lookup is needed.
+     */
+    @Override
+    public void pause() {
+        disable();
+    }
+
+    @Override
+    public void resume() {
+        enable();
     }
 
     @Override
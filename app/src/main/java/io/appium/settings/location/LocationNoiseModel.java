@@ -0,0 +1,151 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import java.util.Random;
+
+/**
+ * Simulates the position error of a single location provider over time.
+ * The sequence of errors only depends on the seed and the timestamps passed
+ * to {@link #advance(long)}, so failures could be reproduced.
+ */
+public class LocationNoiseModel {
+    private static final double MILLISECONDS_IN_SECOND = 1000.0;
+    private static final double ACCURACY_CORRELATION_TIME = 20;
+    // Vertical error of satellite fixes is usually about 1.5 times the horizontal one
+    private static final double VERTICAL_ERROR_FACTOR = 1.5;
+    private static final double SPEED_NOISE_SIGMA = 0.2;
+
+    private final NoiseProfile profile;
+    private final Random random;
+
+    private long lastTimestampMs = -1;
+    private double biasNorth;
+    private double biasEast;
+    private double biasVertical;
+    private double accuracy;
+    private double spikeRemaining = 0;
+    private double spikeNorth = 0;
+    private double spikeEast = 0;
+    private double dropoutRemaining = 0;
+
+    private double northOffset;
+    private double eastOffset;
+    private double verticalOffset;
+    private double speedOffset;
+
+    public LocationNoiseModel(NoiseProfile profile, long seed) {
+        this.profile = profile;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Moves the simulation forward to the given time and calculates new offsets
+     *
+     * @param timestampMs monotonic time in milliseconds
+     */
+    public void advance(long timestampMs) {
+        if (lastTimestampMs < 0) {
+            // Start in the stationary state
+            biasNorth = profile.biasSigma * random.nextGaussian();
+            biasEast = profile.biasSigma * random.nextGaussian();
+            biasVertical = VERTICAL_ERROR_FACTOR * profile.biasSigma * random.nextGaussian();
+            accuracy = (profile.minAccuracy + profile.maxAccuracy) / 2;
+            lastTimestampMs = timestampMs;
+        }
+        double dt = Math.max(0, (timestampMs - lastTimestampMs) / MILLISECONDS_IN_SECOND);
+        lastTimestampMs = timestampMs;
+
+        biasNorth = nextGaussMarkov(biasNorth, profile.biasSigma, profile.biasCorrelationTime, dt);
+        biasEast = nextGaussMarkov(biasEast, profile.biasSigma, profile.biasCorrelationTime, dt);
+        biasVertical = nextGaussMarkov(biasVertical, VERTICAL_ERROR_FACTOR * profile.biasSigma,
+                profile.biasCorrelationTime, dt);
+        double accuracyMean = (profile.minAccuracy + profile.maxAccuracy) / 2;
+        accuracy = accuracyMean + nextGaussMarkov(accuracy - accuracyMean,
+                (profile.maxAccuracy - profile.minAccuracy) / 4, ACCURACY_CORRELATION_TIME, dt);
+        accuracy = Math.max(profile.minAccuracy, Math.min(profile.maxAccuracy, accuracy));
+
+        dropoutRemaining = Math.max(0, dropoutRemaining - dt);
+        if (dropoutRemaining == 0 && isEventStarted(profile.dropoutRate, dt)) {
+            dropoutRemaining = uniform(profile.minDropoutDuration, profile.maxDropoutDuration);
+        }
+        spikeRemaining = Math.max(0, spikeRemaining - dt);
+        if (spikeRemaining == 0) {
+            spikeNorth = 0;
+            spikeEast = 0;
+            if (isEventStarted(profile.spikeRate, dt)) {
+                spikeRemaining = uniform(profile.minSpikeDuration, profile.maxSpikeDuration);
+                double magnitude = uniform(profile.minSpikeMagnitude, profile.maxSpikeMagnitude);
+                double direction = uniform(0, 2 * Math.PI);
+                spikeNorth = magnitude * Math.cos(direction);
+                spikeEast = magnitude * Math.sin(direction);
+            }
+        }
+
+        northOffset = biasNorth + spikeNorth + profile.whiteNoiseSigma * random.nextGaussian();
+        eastOffset = biasEast + spikeEast + profile.whiteNoiseSigma * random.nextGaussian();
+        verticalOffset = biasVertical
+                + VERTICAL_ERROR_FACTOR * profile.whiteNoiseSigma * random.nextGaussian();
+        speedOffset = SPEED_NOISE_SIGMA * random.nextGaussian();
+    }
+
+    /**
+     * First-order Gauss-Markov process, i.e. a random walk pulled back to zero
+     * with the given correlation time and stationary standard deviation
+     */
+    private double nextGaussMarkov(double value, double sigma, double correlationTime, double dt) {
+        double decay = Math.exp(-dt / correlationTime);
+        return value * decay + sigma * Math.sqrt(1 - decay * decay) * random.nextGaussian();
+    }
+
+    private boolean isEventStarted(double rate, double dt) {
+        return rate > 0 && random.nextDouble() < 1 - Math.exp(-rate * dt);
+    }
+
+    private double uniform(double min, double max) {
+        return min + (max - min) * random.nextDouble();
+    }
+
+    /**
+     * @return true if the provider currently delivers no fixes
+     */
+    public boolean isDroppedOut() {
+        return dropoutRemaining > 0;
+    }
+
+    public double getNorthOffset() {
+        return northOffset;
+    }
+
+    public double getEastOffset() {
+        return eastOffset;
+    }
+
+    public double getVerticalOffset() {
+        return verticalOffset;
+    }
+
+    public double getSpeedOffset() {
+        return speedOffset;
+    }
+
+    /**
+     * @return the reported accuracy radius in meters. It does not account for multipath spikes
+     */
+    public double getAccuracy() {
+        return accuracy;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import android.content.Intent;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Parameters of the simulated location error, which are parsed from the intent.
+ * Noise is disabled unless the noise level is given.
+ */
+public class LocationNoiseSettings {
+    private static final String TAG = "MOCKED LOCATION NOISE";
+    private static final String NOISE_LEVEL_PARAMETER_KEY = "noise_level";
+    private static final String NOISE_SEED_PARAMETER_KEY = "noise_seed";
+
+    private final double level;
+    private final long seed;
+
+    public LocationNoiseSettings(double level, long seed) {
+        this.level = level;
+        this.seed = seed;
+    }
+
+    /**
+     * @return null if no noise should be applied
+     */
+    @Nullable
+    public static LocationNoiseSettings fromIntent(Intent intent) {
+        if (!intent.hasExtra(NOISE_LEVEL_PARAMETER_KEY)) {
+            return null;
+        }
+        String levelValue = intent.getStringExtra(NOISE_LEVEL_PARAMETER_KEY);
+        double level;
+        try {
+            level = Double.parseDouble(levelValue);
+        } catch (NumberFormatException e) {
+            Log.e(TAG, String.format("%s should be a valid number. '%s' is given instead",
+                    NOISE_LEVEL_PARAMETER_KEY, levelValue));
+            return null;
+        }
+        if (level <= 0 || Double.isNaN(level) || Double.isInfinite(level)) {
+            return null;
+        }
+
+        // A random seed is logged, so the same noise could be replayed later
+        long seed = System.nanoTime();
+        if (intent.hasExtra(NOISE_SEED_PARAMETER_KEY)) {
+            String seedValue = intent.getStringExtra(NOISE_SEED_PARAMETER_KEY);
+            try {
+                seed = Long.parseLong(seedValue);
+            } catch (NumberFormatException e) {
+                Log.e(TAG, String.format("%s should be a valid integer. '%s' is given instead",
+                        NOISE_SEED_PARAMETER_KEY, seedValue));
+            }
+        }
+        LocationNoiseSettings result = new LocationNoiseSettings(level, seed);
+        Log.i(TAG, "Received " + result);
+        return result;
+    }
+
+    /**
+     * Each provider gets its own error profile and random sequence, so they
+     * do not report identical coordinates
+     */
+    public LocationNoiseModel createModel(String providerName) {
+        return new LocationNoiseModel(NoiseProfile.forProvider(providerName, level),
+                seed * 31 + providerName.hashCode());
+    }
+
+    public double getLevel() {
+        return level;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LocationNoiseSettings{level=%s, seed=%s}", level, seed);
+    }
+}
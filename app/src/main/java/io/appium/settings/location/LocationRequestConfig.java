@@ -0,0 +1,217 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import android.content.Intent;
+
+import com.google.android.gms.location.LocationRequest;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+
+/**
+ * Immutable parameters of the location updates requested by the location tracker
+ */
+public class LocationRequestConfig {
+    private static final String INTERVAL_PARAMETER_KEY = "interval_ms";
+    private static final String FASTEST_INTERVAL_PARAMETER_KEY = "fastest_interval_ms";
+    private static final String PRIORITY_PARAMETER_KEY = "priority";
+    private static final String MIN_DISTANCE_PARAMETER_KEY = "min_distance_m";
+
+    private static final String PRIORITY_HIGH_ACCURACY = "high_accuracy";
+    private static final String PRIORITY_BALANCED = "balanced";
+    private static final String PRIORITY_LOW_POWER = "low_power";
+    private static final String PRIORITY_NO_POWER = "no_power";
+
+    // The fused provider does not filter by distance unless it is requested explicitly
+    public static final float NO_MIN_DISTANCE_SET = -1;
+    private static final float DEFAULT_LOCATION_MANAGER_MIN_DISTANCE = 1; // 1 meter
+
+    public static final LocationRequestConfig DEFAULT = new LocationRequestConfig(
+            1000 * 60, 5000, LocationRequest.PRIORITY_LOW_POWER, NO_MIN_DISTANCE_SET);
+
+    private final long intervalMs;
+    private final long fastestIntervalMs;
+    private final int priority;
+    private final float minDistanceMeters;
+
+    /**
+     * @param priority          one of LocationRequest.PRIORITY_* constants
+     * @param minDistanceMeters the minimum distance between updates or {@link #NO_MIN_DISTANCE_SET}
+     */
+    public LocationRequestConfig(long intervalMs, long fastestIntervalMs, int priority,
+                                 float minDistanceMeters) {
+        this.intervalMs = intervalMs;
+        this.fastestIntervalMs = fastestIntervalMs;
+        this.priority = priority;
+        this.minDistanceMeters = minDistanceMeters;
+    }
+
+    /**
+     * Creates a new config, where only the parameters given in the intent differ
+     * from the current config
+     *
+     * @throws IllegalArgumentException if any of the given parameters is invalid
+     */
+    public static LocationRequestConfig fromIntent(Intent intent, LocationRequestConfig current) {
+        long intervalMs = intent.hasExtra(INTERVAL_PARAMETER_KEY)
+                ? parsePositiveLong(intent, INTERVAL_PARAMETER_KEY)
+                : current.intervalMs;
+        long fastestIntervalMs;
+        if (intent.hasExtra(FASTEST_INTERVAL_PARAMETER_KEY)) {
+            fastestIntervalMs = parsePositiveLong(intent, FASTEST_INTERVAL_PARAMETER_KEY);
+            if (fastestIntervalMs > intervalMs) {
+                throw new IllegalArgumentException(String.format(
+                        "%s should not be greater than %s (%s ms). '%s' is given instead",
+                        FASTEST_INTERVAL_PARAMETER_KEY, INTERVAL_PARAMETER_KEY, intervalMs,
+                        fastestIntervalMs));
+            }
+        } else {
+            // Updates would otherwise be throttled below the requested interval
+            fastestIntervalMs = Math.min(current.fastestIntervalMs, intervalMs);
+        }
+        int priority = intent.hasExtra(PRIORITY_PARAMETER_KEY)
+                ? parsePriority(intent.getStringExtra(PRIORITY_PARAMETER_KEY))
+                : current.priority;
+        float minDistanceMeters = current.minDistanceMeters;
+        if (intent.hasExtra(MIN_DISTANCE_PARAMETER_KEY)) {
+            String value = intent.getStringExtra(MIN_DISTANCE_PARAMETER_KEY);
+            minDistanceMeters = -1;
+            if (value != null) {
+                try {
+                    minDistanceMeters = Float.parseFloat(value);
+                } catch (NumberFormatException e) {
+                    // handled below
+                }
+            }
+            if (!(minDistanceMeters >= 0) || Float.isInfinite(minDistanceMeters)) {
+                throw new IllegalArgumentException(String.format(
+                        "%s should be a valid non-negative number. '%s' is given instead",
+                        MIN_DISTANCE_PARAMETER_KEY, value));
+            }
+        }
+        return new LocationRequestConfig(intervalMs, fastestIntervalMs, priority,
+                minDistanceMeters);
+    }
+
+    private static long parsePositiveLong(Intent intent, String paramKey) {
+        String value = intent.getStringExtra(paramKey);
+        long result = -1;
+        if (value != null) {
+            try {
+                result = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                // handled below
+            }
+        }
+        if (result <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "%s should be a valid positive integer. '%s' is given instead",
+                    paramKey, value));
+        }
+        return result;
+    }
+
+    private static int parsePriority(String value) {
+        if (value != null) {
+            switch (value.toLowerCase(Locale.ROOT)) {
+                case PRIORITY_HIGH_ACCURACY:
+                    return LocationRequest.PRIORITY_HIGH_ACCURACY;
+                case PRIORITY_BALANCED:
+                    return LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY;
+                case PRIORITY_LOW_POWER:
+                    return LocationRequest.PRIORITY_LOW_POWER;
+                case PRIORITY_NO_POWER:
+                    return LocationRequest.PRIORITY_NO_POWER;
+                default:
+                    break;
+            }
+        }
+        throw new IllegalArgumentException(String.format(
+                "%s should be one of %s, %s, %s or %s. '%s' is given instead",
+                PRIORITY_PARAMETER_KEY, PRIORITY_HIGH_ACCURACY, PRIORITY_BALANCED,
+                PRIORITY_LOW_POWER, PRIORITY_NO_POWER, value));
+    }
+
+    private static String formatPriority(int priority) {
+        switch (priority) {
+            case LocationRequest.PRIORITY_HIGH_ACCURACY:
+                return PRIORITY_HIGH_ACCURACY;
+            case LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY:
+                return PRIORITY_BALANCED;
+            case LocationRequest.PRIORITY_NO_POWER:
+                return PRIORITY_NO_POWER;
+            default:
+                return PRIORITY_LOW_POWER;
+        }
+    }
+
+    public LocationRequest toLocationRequest() {
+        LocationRequest result = LocationRequest.create()
+                .setPriority(priority)
+                .setInterval(intervalMs)
+                .setFastestInterval(fastestIntervalMs);
+        if (minDistanceMeters != NO_MIN_DISTANCE_SET) {
+            result.setSmallestDisplacement(minDistanceMeters);
+        }
+        return result;
+    }
+
+    /**
+     * @return the minimum distance between updates for the LocationManager path
+     */
+    public float getLocationManagerMinDistance() {
+        return minDistanceMeters == NO_MIN_DISTANCE_SET
+                ? DEFAULT_LOCATION_MANAGER_MIN_DISTANCE
+                : minDistanceMeters;
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    public long getFastestIntervalMs() {
+        return fastestIntervalMs;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public float getMinDistanceMeters() {
+        return minDistanceMeters;
+    }
+
+    public JSONObject toJson() throws JSONException {
+        JSONObject result = new JSONObject();
+        result.put(INTERVAL_PARAMETER_KEY, intervalMs);
+        result.put(FASTEST_INTERVAL_PARAMETER_KEY, fastestIntervalMs);
+        result.put(PRIORITY_PARAMETER_KEY, formatPriority(priority));
+        if (minDistanceMeters != NO_MIN_DISTANCE_SET) {
+            result.put(MIN_DISTANCE_PARAMETER_KEY, minDistanceMeters);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "LocationRequestConfig{interval=%d ms, " +
+                        "fastestInterval=%d ms, priority=%s, minDistance=%s m}",
+                intervalMs, fastestIntervalMs, formatPriority(priority), minDistanceMeters);
+    }
+}
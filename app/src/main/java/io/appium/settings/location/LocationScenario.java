@@ -0,0 +1,126 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A timeline of waypoints with travel and dwell periods, e.g. for geofence tests:
+ * <pre>
+ * {"steps": [
+ *   {"name": "outside", "latitude": 52.52, "longitude": 13.40, "dwell_ms": 5000},
+ *   {"name": "inside", "latitude": 52.53, "longitude": 13.40, "travel_ms": 10000, "dwell_ms": 60000},
+ *   {"name": "outside again", "latitude": 52.52, "longitude": 13.40, "travel_ms": 10000}
+ * ]}
+ * </pre>
+ * The device starts at the first waypoint and moves along a straight line with a constant
+ * speed to each next waypoint within the given travel time (0 means a jump).
+ */
+public class LocationScenario {
+    private static final String STEPS_KEY = "steps";
+    private static final String NAME_KEY = "name";
+    private static final String LATITUDE_KEY = "latitude";
+    private static final String LONGITUDE_KEY = "longitude";
+    private static final String ALTITUDE_KEY = "altitude";
+    private static final String TRAVEL_KEY = "travel_ms";
+    private static final String DWELL_KEY = "dwell_ms";
+
+    private final Route route;
+    private final List<ScenarioEvent> events;
+
+    private LocationScenario(Route route, List<ScenarioEvent> events) {
+        this.route = route;
+        this.events = events;
+    }
+
+    /**
+     * @throws JSONException            if the scenario is not a valid JSON object
+     * @throws IllegalArgumentException if any of the steps is invalid
+     */
+    public static LocationScenario fromJson(String json) throws JSONException {
+        JSONArray steps = new JSONObject(json).getJSONArray(STEPS_KEY);
+        if (steps.length() == 0) {
+            throw new IllegalArgumentException("The scenario must contain at least one step");
+        }
+        List<RoutePoint> points = new ArrayList<>();
+        List<ScenarioEvent> events = new ArrayList<>();
+        long offsetMs = 0;
+        for (int i = 0; i < steps.length(); i++) {
+            JSONObject step = steps.getJSONObject(i);
+            String name = step.optString(NAME_KEY, String.valueOf(i));
+            double latitude = step.getDouble(LATITUDE_KEY);
+            double longitude = step.getDouble(LONGITUDE_KEY);
+            if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+                throw new IllegalArgumentException(String.format(
+                        "The coordinates of the step '%s' are out of range", name));
+            }
+            Double altitude = step.has(ALTITUDE_KEY) ? step.getDouble(ALTITUDE_KEY) : null;
+            // The device is already at the first waypoint when the scenario starts
+            long travelMs = i == 0 ? 0 : getDuration(step, TRAVEL_KEY, name);
+            long dwellMs = getDuration(step, DWELL_KEY, name);
+
+            offsetMs += travelMs;
+            points.add(new RoutePoint(latitude, longitude, altitude, offsetMs));
+            events.add(new ScenarioEvent(ScenarioEvent.Type.ARRIVED, i, name, offsetMs));
+            if (dwellMs > 0) {
+                offsetMs += dwellMs;
+                points.add(new RoutePoint(latitude, longitude, altitude, offsetMs));
+            }
+            events.add(i == steps.length() - 1
+                    ? new ScenarioEvent(ScenarioEvent.Type.FINISHED, i, name, offsetMs)
+                    : new ScenarioEvent(ScenarioEvent.Type.DEPARTED, i, name, offsetMs));
+        }
+        if (points.size() > 1 && offsetMs == 0) {
+            throw new IllegalArgumentException("The scenario must last longer than 0 ms");
+        }
+        // The speed only matters for single point scenarios, which do not move anyway
+        return new LocationScenario(Route.fromPoints(points, 1.0),
+                Collections.unmodifiableList(events));
+    }
+
+    private static long getDuration(JSONObject step, String key, String stepName) {
+        long result = step.optLong(key, 0);
+        if (result < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "%s of the step '%s' must not be negative", key, stepName));
+        }
+        return result;
+    }
+
+    public Route getRoute() {
+        return route;
+    }
+
+    /**
+     * @return all events of the scenario ordered by their time offset
+     */
+    public List<ScenarioEvent> getEvents() {
+        return events;
+    }
+
+    /**
+     * @return the total duration in milliseconds
+     */
+    public long getDurationMs() {
+        return events.get(events.size() - 1).getOffsetMs();
+    }
+}
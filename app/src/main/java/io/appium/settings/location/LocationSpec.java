@@ -0,0 +1,112 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import android.content.Intent;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Immutable mocked location parameters, which are parsed from the intent only once
+ * and then applied to every location update
+ */
+public class LocationSpec {
+    private static final String TAG = "MOCKED LOCATION SPEC";
+    private static final String LONGITUDE_PARAMETER_KEY = "longitude";
+    private static final String LATITUDE_PARAMETER_KEY = "latitude";
+    private static final String ALTITUDE_PARAMETER_KEY = "altitude";
+    private static final String SPEED_PARAMETER_KEY = "speed";
+    private static final String BEARING_PARAMETER_KEY = "bearing";
+
+    @Nullable
+    private final Double longitude;
+    @Nullable
+    private final Double latitude;
+    @Nullable
+    private final Double altitude;
+    @Nullable
+    private final Double speed;
+    @Nullable
+    private final Double bearing;
+
+    public LocationSpec(@Nullable Double longitude, @Nullable Double latitude,
+                        @Nullable Double altitude, @Nullable Double speed,
+                        @Nullable Double bearing) {
+        this.longitude = longitude;
+        this.latitude = latitude;
+        this.altitude = altitude;
+        this.speed = speed;
+        this.bearing = bearing;
+    }
+
+    public static LocationSpec fromIntent(Intent intent) {
+        LocationSpec result = new LocationSpec(
+                extractParam(intent, LONGITUDE_PARAMETER_KEY),
+                extractParam(intent, LATITUDE_PARAMETER_KEY),
+                extractParam(intent, ALTITUDE_PARAMETER_KEY),
+                extractParam(intent, SPEED_PARAMETER_KEY),
+                extractParam(intent, BEARING_PARAMETER_KEY));
+        Log.i(TAG, "Received " + result);
+        return result;
+    }
+
+    @Nullable
+    private static Double extractParam(Intent intent, String paramKey) {
+        Double value = null;
+
+        try {
+            if (intent.hasExtra(paramKey)) {
+                value = Double.parseDouble(intent.getStringExtra(paramKey));
+            }
+        } catch (NumberFormatException e) {
+            Log.e(TAG, String.format("%s should be a valid number. '%s' is given instead",
+                    paramKey, intent.getStringExtra(paramKey)));
+        }
+        return value;
+    }
+
+    @Nullable
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    @Nullable
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    @Nullable
+    public Double getAltitude() {
+        return altitude;
+    }
+
+    @Nullable
+    public Double getSpeed() {
+        return speed;
+    }
+
+    @Nullable
+    public Double getBearing() {
+        return bearing;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LocationSpec{longitude=%s, latitude=%s, altitude=%s, " +
+                "speed=%s, bearing=%s}", longitude, latitude, altitude, speed, bearing);
+    }
+}
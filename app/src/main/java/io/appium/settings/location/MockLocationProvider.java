@@ -20,12 +20,26 @@ import android.location.Location;
 
 public interface MockLocationProvider {
 
+    /**
+     * Callers reuse the same location instance for subsequent updates,
+     * so implementations must not keep a reference to it after returning
+     */
     void setLocation(Location location);
 
     void enable();
 
     void disable();
 
+    /**
+     * Temporarily stops mocking, so the real locations are reported again
+     */
+    void pause();
+
+    /**
+     * Restarts mocking after {@link #pause()}
+     */
+    void resume();
+
     String getProviderName();
 
 }
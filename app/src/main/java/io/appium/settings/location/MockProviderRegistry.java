@@ -0,0 +1,274 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import android.content.Context;
+import android.location.LocationManager;
+import android.location.LocationProvider;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.location.LocationServices;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.appium.settings.helpers.PlayServicesHelpers;
+
+/**
+ * Keeps the mock location providers registered for the whole process lifetime.
+ * Unless the registry is armed, providers are only registered while the location service runs.
+ * Armed providers stay registered after the service has been stopped, so restarting
+ * the mocking does not need to enumerate, register and connect them again.
+ * Nothing reports locations to them while the service is not running though. If the registry
+ * is armed with pauseWhileIdle, they are paused meanwhile, so the real location is reported,
+ * and resumed once the service acquires them again. Pausing removes LocationManager test
+ * providers, which are added again from their cached properties on resume, so only
+ * the enumeration and the Fused client connection are reused in such case.
+ */
+public class MockProviderRegistry {
+    private static final String TAG = "MOCKED PROVIDER REGISTRY";
+
+    public interface StateListener {
+        /**
+         * Is called after mocking has been resumed, so the mocked location
+         * could be reported right away
+         */
+        void onResumed();
+    }
+
+    private static MockProviderRegistry instance = null;
+
+    private final List<MockLocationProvider> mockLocationProviders = new ArrayList<>();
+    private boolean isArmed = false;
+    private boolean shouldPauseWhileIdle = false;
+    private boolean isInUse = false;
+    private volatile boolean isPaused = false;
+    // Whether the providers have been paused, because the service does not use them
+    private boolean isPausedWhileIdle = false;
+    @Nullable
+    private StateListener stateListener = null;
+
+    private MockProviderRegistry() {
+    }
+
+    public synchronized static MockProviderRegistry getInstance() {
+        if (instance == null) {
+            instance = new MockProviderRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers the mock providers unless they are registered already.
+     * Must be paired with {@link #release()}.
+     *
+     * @return the registered providers
+     */
+    public synchronized List<MockLocationProvider> acquire(Context context) {
+        isInUse = true;
+        registerProviders(context);
+        if (isPausedWhileIdle) {
+            resume();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(mockLocationProviders));
+    }
+
+    /**
+     * Unregisters the mock providers unless the registry is armed
+     */
+    public synchronized void release() {
+        isInUse = false;
+        stateListener = null;
+        if (!isArmed) {
+            unregisterProviders();
+        } else if (shouldPauseWhileIdle) {
+            pauseWhileIdle();
+        }
+    }
+
+    /**
+     * Keeps the providers registered after the location service has been stopped
+     *
+     * @param pauseWhileIdle whether to pause the providers while the service is not running
+     */
+    public synchronized void arm(Context context, boolean pauseWhileIdle) {
+        isArmed = true;
+        shouldPauseWhileIdle = pauseWhileIdle;
+        registerProviders(context);
+        if (!isInUse) {
+            if (pauseWhileIdle) {
+                pauseWhileIdle();
+            } else if (isPausedWhileIdle) {
+                resume();
+            }
+        }
+    }
+
+    public synchronized void disarm() {
+        isArmed = false;
+        shouldPauseWhileIdle = false;
+        if (!isInUse) {
+            unregisterProviders();
+        }
+    }
+
+    public synchronized void pause() {
+        if (isPaused || mockLocationProviders.isEmpty()) {
+            return;
+        }
+        isPaused = true;
+        for (MockLocationProvider mockLocationProvider : mockLocationProviders) {
+            try {
+                mockLocationProvider.pause();
+            } catch (Exception e) {
+                Log.e(TAG, String.format("Could not pause location provider: '%s'",
+                        mockLocationProvider.getProviderName()), e);
+            }
+        }
+        Log.i(TAG, "Location mocking has been paused");
+    }
+
+    public synchronized void resume() {
+        if (!isPaused) {
+            return;
+        }
+        for (MockLocationProvider mockLocationProvider : mockLocationProviders) {
+            try {
+                mockLocationProvider.resume();
+            } catch (Exception e) {
+                Log.e(TAG, String.format("Could not resume location provider: '%s'",
+                        mockLocationProvider.getProviderName()), e);
+            }
+        }
+        isPaused = false;
+        isPausedWhileIdle = false;
+        Log.i(TAG, "Location mocking has been resumed");
+        if (stateListener != null) {
+            stateListener.onResumed();
+        }
+    }
+
+    /**
+     * Otherwise the enabled providers would report no location at all
+     * until the service is started again
+     */
+    private void pauseWhileIdle() {
+        if (!isPaused) {
+            pause();
+            isPausedWhileIdle = isPaused;
+        }
+    }
+
+    public boolean isPaused() {
+        return isPaused;
+    }
+
+    public synchronized void setStateListener(@Nullable StateListener stateListener) {
+        this.stateListener = stateListener;
+    }
+
+    private void registerProviders(Context context) {
+        if (!mockLocationProviders.isEmpty()) {
+            return;
+        }
+
+        // The registry outlives the service, which has requested the providers
+        Context applicationContext = context.getApplicationContext();
+        LocationManager locationManager = (LocationManager) applicationContext
+                .getSystemService(Context.LOCATION_SERVICE);
+        mockLocationProviders.addAll(createMockProviders(locationManager));
+        if (PlayServicesHelpers.isAvailable(applicationContext)) {
+            Log.d(TAG, "Adding FusedLocationProvider");
+            mockLocationProviders.add(new FusedLocationProvider(
+                    LocationServices.getFusedLocationProviderClient(applicationContext),
+                    applicationContext));
+        }
+        Log.d(TAG, String.format("Created mock providers: %s", mockLocationProviders.toString()));
+
+        for (MockLocationProvider mockLocationProvider : mockLocationProviders) {
+            try {
+                mockLocationProvider.enable();
+            } catch (Exception e) {
+                Log.e(TAG, String.format("Couldn't enable location provider: '%s'",
+                        mockLocationProvider.getProviderName()));
+            }
+        }
+        isPaused = false;
+    }
+
+    private void unregisterProviders() {
+        for (MockLocationProvider mockLocationProvider : mockLocationProviders) {
+            try {
+                mockLocationProvider.disable();
+            } catch (Exception e) {
+                Log.e(TAG, String.format("Could not disable location provider: '%s'",
+                        mockLocationProvider.getProviderName()));
+            }
+        }
+        mockLocationProviders.clear();
+        isPaused = false;
+        isPausedWhileIdle = false;
+    }
+
+    private static List<MockLocationProvider> createMockProviders(LocationManager locationManager) {
+        List<String> providers = locationManager.getAllProviders();
+        List<MockLocationProvider> mockProviders = new ArrayList<>();
+        for (String providerName : providers) {
+            // The passive provider is not required to be mocked.
+            if (providerName.equals(LocationManager.PASSIVE_PROVIDER)) {
+                continue;
+            }
+            LocationProvider provider = locationManager.getProvider(providerName);
+            if (provider == null) {
+                Log.e(TAG, String.format("Could not create mock provider for '%s'", providerName));
+                continue;
+            }
+            mockProviders.add(new LocationManagerProvider(locationManager,
+                    provider.getName(),
+                    provider.requiresNetwork(),
+                    provider.requiresSatellite(),
+                    provider.requiresCell(),
+                    provider.hasMonetaryCost(),
+                    provider.supportsAltitude(),
+                    provider.supportsSpeed(),
+                    provider.supportsBearing(),
+                    provider.getPowerRequirement(),
+                    provider.getAccuracy()));
+        }
+        return mockProviders;
+    }
+
+    public synchronized JSONObject toJson() throws JSONException {
+        JSONArray providers = new JSONArray();
+        for (MockLocationProvider mockLocationProvider : mockLocationProviders) {
+            providers.put(mockLocationProvider.getProviderName());
+        }
+        JSONObject result = new JSONObject();
+        result.put("armed", isArmed);
+        result.put("pauseWhileIdle", shouldPauseWhileIdle);
+        result.put("active", isInUse);
+        result.put("paused", isPaused);
+        result.put("providers", providers);
+        return result;
+    }
+}
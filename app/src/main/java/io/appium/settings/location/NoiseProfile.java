@@ -0,0 +1,85 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import android.location.LocationManager;
+
+/**
+ * Error characteristics of a particular kind of location provider.
+ * Distances are in meters, durations in seconds and rates in events per second.
+ */
+public class NoiseProfile {
+    private static final String FUSED_PROVIDER = "fused";
+
+    // Uncorrelated error, which differs on every fix
+    final double whiteNoiseSigma;
+    // Slowly wandering error (atmosphere, satellite geometry, cell/WiFi database)
+    final double biasSigma;
+    final double biasCorrelationTime;
+    final double minAccuracy;
+    final double maxAccuracy;
+    // Multipath (urban canyon) jumps, which are not reflected in the reported accuracy
+    final double spikeRate;
+    final double minSpikeMagnitude;
+    final double maxSpikeMagnitude;
+    final double minSpikeDuration;
+    final double maxSpikeDuration;
+    // Periods without any fixes
+    final double dropoutRate;
+    final double minDropoutDuration;
+    final double maxDropoutDuration;
+
+    NoiseProfile(double whiteNoiseSigma, double biasSigma, double biasCorrelationTime,
+                 double minAccuracy, double maxAccuracy,
+                 double spikeRate, double minSpikeMagnitude, double maxSpikeMagnitude,
+                 double minSpikeDuration, double maxSpikeDuration,
+                 double dropoutRate, double minDropoutDuration, double maxDropoutDuration) {
+        this.whiteNoiseSigma = whiteNoiseSigma;
+        this.biasSigma = biasSigma;
+        this.biasCorrelationTime = biasCorrelationTime;
+        this.minAccuracy = minAccuracy;
+        this.maxAccuracy = maxAccuracy;
+        this.spikeRate = spikeRate;
+        this.minSpikeMagnitude = minSpikeMagnitude;
+        this.maxSpikeMagnitude = maxSpikeMagnitude;
+        this.minSpikeDuration = minSpikeDuration;
+        this.maxSpikeDuration = maxSpikeDuration;
+        this.dropoutRate = dropoutRate;
+        this.minDropoutDuration = minDropoutDuration;
+        this.maxDropoutDuration = maxDropoutDuration;
+    }
+
+    /**
+     * @param level scales both the magnitude of errors and the frequency of spikes
+     *              and dropouts. 1 means typical real world conditions.
+     */
+    public static NoiseProfile forProvider(String providerName, double level) {
+        if (LocationManager.NETWORK_PROVIDER.equals(providerName)) {
+            return new NoiseProfile(8 * level, 20 * level, 60, 20 * level, 80 * level,
+                    level / 300, 100 * level, 300 * level, 5, 15,
+                    level / 180, 5, 20);
+        }
+        if (FUSED_PROVIDER.equals(providerName)) {
+            return new NoiseProfile(level, 2.5 * level, 20, 3 * level, 10 * level,
+                    level / 240, 10 * level, 30 * level, 1, 3,
+                    level / 600, 1, 3);
+        }
+        // GPS and any other satellite based provider
+        return new NoiseProfile(1.5 * level, 3 * level, 30, 3 * level, 12 * level,
+                level / 120, 20 * level, 60 * level, 1, 4,
+                level / 300, 2, 8);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes routes in the Encoded Polyline Algorithm Format
+ * https://developers.google.com/maps/documentation/utilities/polylinealgorithm
+ */
+public class PolylineDecoder {
+    public static final int DEFAULT_PRECISION = 5;
+
+    private PolylineDecoder() {}
+
+    /**
+     * @param precision the count of decimal digits the coordinates have been encoded with
+     *                  (5 for Google Maps, 6 for OSRM/Valhalla)
+     * @throws IllegalArgumentException if the given string is not a valid polyline
+     */
+    public static List<RoutePoint> decode(String encoded, int precision) {
+        double factor = Math.pow(10, precision);
+        List<RoutePoint> result = new ArrayList<>();
+        int index = 0;
+        long latitude = 0;
+        long longitude = 0;
+        while (index < encoded.length()) {
+            long[] latitudeDelta = decodeValue(encoded, index);
+            index = (int) latitudeDelta[1];
+            long[] longitudeDelta = decodeValue(encoded, index);
+            index = (int) longitudeDelta[1];
+            latitude += latitudeDelta[0];
+            longitude += longitudeDelta[0];
+            result.add(new RoutePoint(latitude / factor, longitude / factor, null,
+                    RoutePoint.NO_TIME_SET));
+        }
+        return result;
+    }
+
+    /**
+     * @return the decoded value and the index of the next value
+     */
+    private static long[] decodeValue(String encoded, int index) {
+        long result = 0;
+        int shift = 0;
+        int chunk;
+        do {
+            if (index >= encoded.length()) {
+                throw new IllegalArgumentException("The encoded polyline is truncated");
+            }
+            chunk = encoded.charAt(index++) - 63;
+            if (chunk < 0 || chunk > 0x3F || shift > 60) {
+                throw new IllegalArgumentException(String.format(
+                        "Invalid character at index %d of the encoded polyline", index - 1));
+            }
+            result |= (long) (chunk & 0x1F) << shift;
+            shift += 5;
+        } while (chunk >= 0x20);
+        return new long[]{(result & 1) != 0 ? ~(result >> 1) : result >> 1, index};
+    }
+}
@@ -0,0 +1,226 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import java.util.List;
+
+/**
+ * A polyline with a time profile, which allows to calculate the position,
+ * the bearing and the speed of a device moving along it at any moment
+ */
+public class Route {
+    private static final double EARTH_RADIUS_METERS = 6371008.8;
+    private static final double MILLISECONDS_IN_SECOND = 1000.0;
+
+    private final RoutePoint[] points;
+    // Cumulative distance from the first point in meters
+    private final double[] distances;
+    // Cumulative time from the first point in seconds
+    private final double[] timeOffsets;
+    // Bearing of the segment starting at the point with the same index
+    private final float[] bearings;
+    private final boolean hasAltitude;
+
+    private Route(RoutePoint[] points, double[] distances, double[] timeOffsets,
+                  float[] bearings, boolean hasAltitude) {
+        this.points = points;
+        this.distances = distances;
+        this.timeOffsets = timeOffsets;
+        this.bearings = bearings;
+        this.hasAltitude = hasAltitude;
+    }
+
+    /**
+     * Creates a route from the given points. If all of them have timestamps then
+     * the device moves with the recorded speed, otherwise it moves with the constant
+     * given speed.
+     *
+     * @param defaultSpeed the speed in meters per second for routes without timestamps
+     * @throws IllegalArgumentException if there are no points or the speed is not positive
+     */
+    public static Route fromPoints(List<RoutePoint> points, double defaultSpeed) {
+        if (points.isEmpty()) {
+            throw new IllegalArgumentException("The route must contain at least one point");
+        }
+        int count = points.size();
+        RoutePoint[] routePoints = points.toArray(new RoutePoint[count]);
+        double[] distances = new double[count];
+        float[] bearings = new float[count];
+        boolean hasAltitude = true;
+        for (int i = 0; i < count; i++) {
+            hasAltitude &= routePoints[i].getAltitude() != null;
+            if (i == 0) {
+                continue;
+            }
+            double segmentLength = getDistance(routePoints[i - 1], routePoints[i]);
+            distances[i] = distances[i - 1] + segmentLength;
+            // Keep the previous direction if the device does not move
+            bearings[i - 1] = segmentLength > 0
+                    ? getBearing(routePoints[i - 1], routePoints[i])
+                    : (i > 1 ? bearings[i - 2] : 0f);
+        }
+        if (count > 1) {
+            bearings[count - 1] = bearings[count - 2];
+        }
+        double[] timeOffsets = hasValidTimestamps(routePoints)
+                ? getTimeOffsets(routePoints)
+                : getTimeOffsets(distances, defaultSpeed);
+        return new Route(routePoints, distances, timeOffsets, bearings, hasAltitude);
+    }
+
+    /**
+     * @return the total length in meters
+     */
+    public double getLength() {
+        return distances[distances.length - 1];
+    }
+
+    /**
+     * @return the total duration in seconds
+     */
+    public double getDuration() {
+        return timeOffsets[timeOffsets.length - 1];
+    }
+
+    public int getPointsCount() {
+        return points.length;
+    }
+
+    /**
+     * @param elapsedTime the time in seconds since the first point has been passed
+     * @param loop        whether to start over after the last point has been reached
+     */
+    public RoutePosition getPosition(double elapsedTime, boolean loop) {
+        double duration = getDuration();
+        if (loop && duration > 0) {
+            elapsedTime %= duration;
+        }
+        elapsedTime = Math.max(0, elapsedTime);
+        int last = points.length - 1;
+        if (elapsedTime >= duration) {
+            return new RoutePosition(points[last].getLatitude(), points[last].getLongitude(),
+                    hasAltitude ? points[last].getAltitude() : null, bearings[last], 0f,
+                    !loop);
+        }
+
+        int segment = findSegment(elapsedTime);
+        RoutePoint start = points[segment];
+        RoutePoint end = points[segment + 1];
+        double segmentDuration = timeOffsets[segment + 1] - timeOffsets[segment];
+        double fraction = segmentDuration > 0
+                ? (elapsedTime - timeOffsets[segment]) / segmentDuration
+                : 1.0;
+        double longitudeDelta = end.getLongitude() - start.getLongitude();
+        // Take the short way across the antimeridian
+        if (longitudeDelta > 180) {
+            longitudeDelta -= 360;
+        } else if (longitudeDelta < -180) {
+            longitudeDelta += 360;
+        }
+        double longitude = start.getLongitude() + fraction * longitudeDelta;
+        if (longitude > 180) {
+            longitude -= 360;
+        } else if (longitude < -180) {
+            longitude += 360;
+        }
+        double latitude = start.getLatitude()
+                + fraction * (end.getLatitude() - start.getLatitude());
+        Double altitude = hasAltitude
+                ? start.getAltitude() + fraction * (end.getAltitude() - start.getAltitude())
+                : null;
+        float speed = segmentDuration > 0
+                ? (float) ((distances[segment + 1] - distances[segment]) / segmentDuration)
+                : 0f;
+        return new RoutePosition(latitude, longitude, altitude, bearings[segment], speed, false);
+    }
+
+    /**
+     * @return the index of the last point passed at the given time
+     */
+    private int findSegment(double elapsedTime) {
+        int low = 0;
+        int high = timeOffsets.length - 2;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (timeOffsets[middle] <= elapsedTime) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private static boolean hasValidTimestamps(RoutePoint[] points) {
+        if (points.length < 2) {
+            return false;
+        }
+        for (int i = 0; i < points.length; i++) {
+            if (!points[i].hasTime()
+                    || (i > 0 && points[i].getTimeMs() < points[i - 1].getTimeMs())) {
+                return false;
+            }
+        }
+        return points[points.length - 1].getTimeMs() > points[0].getTimeMs();
+    }
+
+    private static double[] getTimeOffsets(RoutePoint[] points) {
+        double[] result = new double[points.length];
+        for (int i = 1; i < points.length; i++) {
+            result[i] = (points[i].getTimeMs() - points[0].getTimeMs()) / MILLISECONDS_IN_SECOND;
+        }
+        return result;
+    }
+
+    private static double[] getTimeOffsets(double[] distances, double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("The route speed must be greater than zero");
+        }
+        double[] result = new double[distances.length];
+        for (int i = 1; i < distances.length; i++) {
+            result[i] = distances[i] / speed;
+        }
+        return result;
+    }
+
+    /**
+     * @return the great-circle distance in meters (haversine formula)
+     */
+    static double getDistance(RoutePoint from, RoutePoint to) {
+        double fromLatitude = Math.toRadians(from.getLatitude());
+        double toLatitude = Math.toRadians(to.getLatitude());
+        double latitudeDelta = toLatitude - fromLatitude;
+        double longitudeDelta = Math.toRadians(to.getLongitude() - from.getLongitude());
+        double a = Math.pow(Math.sin(latitudeDelta / 2), 2)
+                + Math.cos(fromLatitude) * Math.cos(toLatitude)
+                * Math.pow(Math.sin(longitudeDelta / 2), 2);
+        return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * @return the initial great-circle bearing in degrees in range [0, 360)
+     */
+    static float getBearing(RoutePoint from, RoutePoint to) {
+        double fromLatitude = Math.toRadians(from.getLatitude());
+        double toLatitude = Math.toRadians(to.getLatitude());
+        double longitudeDelta = Math.toRadians(to.getLongitude() - from.getLongitude());
+        double y = Math.sin(longitudeDelta) * Math.cos(toLatitude);
+        double x = Math.cos(fromLatitude) * Math.sin(toLatitude)
+                - Math.sin(fromLatitude) * Math.cos(toLatitude) * Math.cos(longitudeDelta);
+        double bearing = (Math.toDegrees(Math.atan2(y, x)) + 360) % 360;
+        return (float) bearing;
+    }
+}
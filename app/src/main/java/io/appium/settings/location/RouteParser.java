@@ -0,0 +1,224 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import android.util.Xml;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Loads route points from GPX and KML files
+ */
+public class RouteParser {
+    private static final Pattern ISO_8601_PATTERN = Pattern.compile(
+            "(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2})(\\.(\\d+))?(Z|[+-]\\d{2}:?\\d{2})?");
+
+    private RouteParser() {}
+
+    /**
+     * Parses the given file based on its extension (.gpx or .kml)
+     *
+     * @throws IOException if the file cannot be read or has an unsupported format
+     */
+    public static List<RoutePoint> parse(File file) throws IOException {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        InputStream stream = new FileInputStream(file);
+        //noinspection TryFinallyCanBeTryWithResources
+        try {
+            if (name.endsWith(".gpx")) {
+                return parseGpx(stream);
+            } else if (name.endsWith(".kml")) {
+                return parseKml(stream);
+            }
+            throw new IOException(String.format(
+                    "'%s' has an unsupported route format. Only .gpx and .kml files are supported",
+                    file.getAbsolutePath()));
+        } catch (XmlPullParserException e) {
+            throw new IOException(String.format("Cannot parse '%s': %s",
+                    file.getAbsolutePath(), e.getMessage()), e);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Reads track points (trkpt) of a GPX document or its route points (rtept)
+     * if there are no tracks. Elevation (ele) and time elements are optional.
+     */
+    public static List<RoutePoint> parseGpx(InputStream stream)
+            throws IOException, XmlPullParserException {
+        XmlPullParser parser = createParser(stream);
+        List<RoutePoint> trackPoints = new ArrayList<>();
+        List<RoutePoint> routePoints = new ArrayList<>();
+        String pointTag = null;
+        double latitude = 0;
+        double longitude = 0;
+        Double altitude = null;
+        long timeMs = RoutePoint.NO_TIME_SET;
+        int eventType = parser.getEventType();
+        while (eventType != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.START_TAG) {
+                String tag = parser.getName();
+                if ("trkpt".equals(tag) || "rtept".equals(tag)) {
+                    pointTag = tag;
+                    latitude = parseCoordinate(parser.getAttributeValue(null, "lat"), "lat");
+                    longitude = parseCoordinate(parser.getAttributeValue(null, "lon"), "lon");
+                    altitude = null;
+                    timeMs = RoutePoint.NO_TIME_SET;
+                } else if (pointTag != null && "ele".equals(tag)) {
+                    altitude = parseCoordinate(parser.nextText(), "ele");
+                } else if (pointTag != null && "time".equals(tag)) {
+                    timeMs = parseTime(parser.nextText());
+                }
+            } else if (eventType == XmlPullParser.END_TAG && parser.getName().equals(pointTag)) {
+                RoutePoint point = new RoutePoint(latitude, longitude, altitude, timeMs);
+                ("trkpt".equals(pointTag) ? trackPoints : routePoints).add(point);
+                pointTag = null;
+            }
+            eventType = parser.next();
+        }
+        return trackPoints.isEmpty() ? routePoints : trackPoints;
+    }
+
+    /**
+     * Reads gx:Track elements (timed gx:coord/when pairs) of a KML document. If there are
+     * no tracks then LineString coordinates are read, or coordinates of any other geometry
+     * if there are no line strings as well.
+     */
+    public static List<RoutePoint> parseKml(InputStream stream)
+            throws IOException, XmlPullParserException {
+        XmlPullParser parser = createParser(stream);
+        List<RoutePoint> lineStringPoints = new ArrayList<>();
+        List<RoutePoint> geometryPoints = new ArrayList<>();
+        boolean isInLineString = false;
+        List<RoutePoint> trackPoints = new ArrayList<>();
+        List<Long> trackTimes = new ArrayList<>();
+        int eventType = parser.getEventType();
+        while (eventType != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.START_TAG) {
+                String tag = parser.getName();
+                if ("LineString".equals(tag)) {
+                    isInLineString = true;
+                } else if ("coordinates".equals(tag)) {
+                    List<RoutePoint> points = isInLineString ? lineStringPoints : geometryPoints;
+                    for (String tuple : parser.nextText().trim().split("\\s+")) {
+                        if (!tuple.isEmpty()) {
+                            points.add(parseKmlTuple(tuple.split(","), RoutePoint.NO_TIME_SET));
+                        }
+                    }
+                } else if ("when".equals(tag)) {
+                    trackTimes.add(parseTime(parser.nextText()));
+                } else if ("gx:coord".equals(tag) || "coord".equals(tag)) {
+                    trackPoints.add(parseKmlTuple(parser.nextText().trim().split("\\s+"),
+                            RoutePoint.NO_TIME_SET));
+                }
+            } else if (eventType == XmlPullParser.END_TAG && "LineString".equals(parser.getName())) {
+                isInLineString = false;
+            }
+            eventType = parser.next();
+        }
+        if (trackPoints.isEmpty()) {
+            return lineStringPoints.isEmpty() ? geometryPoints : lineStringPoints;
+        }
+        if (trackTimes.size() != trackPoints.size()) {
+            return trackPoints;
+        }
+        List<RoutePoint> result = new ArrayList<>(trackPoints.size());
+        for (int i = 0; i < trackPoints.size(); i++) {
+            RoutePoint point = trackPoints.get(i);
+            result.add(new RoutePoint(point.getLatitude(), point.getLongitude(),
+                    point.getAltitude(), trackTimes.get(i)));
+        }
+        return result;
+    }
+
+    private static XmlPullParser createParser(InputStream stream) throws XmlPullParserException {
+        XmlPullParser parser = Xml.newPullParser();
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+        parser.setInput(stream, null);
+        return parser;
+    }
+
+    // KML tuples are ordered as longitude, latitude[, altitude]
+    private static RoutePoint parseKmlTuple(String[] values, long timeMs)
+            throws XmlPullParserException {
+        if (values.length < 2) {
+            throw new XmlPullParserException("Invalid KML coordinates: "
+                    + Arrays.toString(values));
+        }
+        Double altitude = values.length > 2 ? parseCoordinate(values[2], "altitude") : null;
+        return new RoutePoint(parseCoordinate(values[1], "latitude"),
+                parseCoordinate(values[0], "longitude"), altitude, timeMs);
+    }
+
+    private static double parseCoordinate(String value, String name)
+            throws XmlPullParserException {
+        if (value == null) {
+            throw new XmlPullParserException(String.format("The '%s' value is missing", name));
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new XmlPullParserException(String.format(
+                    "The '%s' value should be a valid number. '%s' is given instead", name, value));
+        }
+    }
+
+    /**
+     * Parses ISO 8601 timestamps like 2021-01-31T10:15:30Z, 2021-01-31T10:15:30.250+01:00
+     * (timestamps without zone are assumed to be in UTC)
+     *
+     * @return Unix timestamp in milliseconds or RoutePoint.NO_TIME_SET if the value
+     * cannot be parsed
+     */
+    static long parseTime(String value) {
+        Matcher matcher = ISO_8601_PATTERN.matcher(value.trim());
+        if (!matcher.matches()) {
+            return RoutePoint.NO_TIME_SET;
+        }
+        String zone = matcher.group(4);
+        if (zone == null || "Z".equals(zone)) {
+            zone = "+0000";
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            long result = format.parse(matcher.group(1) + zone.replace(":", "")).getTime();
+            String fraction = matcher.group(3);
+            if (fraction != null) {
+                result += Math.round(Double.parseDouble("0." + fraction) * 1000);
+            }
+            return result;
+        } catch (ParseException e) {
+            return RoutePoint.NO_TIME_SET;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Replays a route loaded once from a GPX/KML file or an encoded polyline,
+ * so a moving device could be simulated without per-point requests from the host
+ */
+public class RoutePlayer {
+    private static final String TAG = "MOCKED ROUTE PLAYER";
+    private static final String ROUTE_FILE_PARAMETER_KEY = "route_file";
+    private static final String ROUTE_POLYLINE_PARAMETER_KEY = "route_polyline";
+    private static final String ROUTE_POLYLINE_PRECISION_PARAMETER_KEY = "route_polyline_precision";
+    private static final String ROUTE_SPEED_PARAMETER_KEY = "route_speed";
+    private static final String ROUTE_SPEED_MULTIPLIER_PARAMETER_KEY = "route_speed_multiplier";
+    private static final String ROUTE_LOOP_PARAMETER_KEY = "route_loop";
+    // 36 km/h
+    private static final double DEFAULT_SPEED = 10.0;
+    private static final double DEFAULT_SPEED_MULTIPLIER = 1.0;
+    private static final double MILLISECONDS_IN_SECOND = 1000.0;
+
+    private final Route route;
+    private final double speedMultiplier;
+    private final boolean loop;
+    private final long startTimeMs;
+
+    public RoutePlayer(Route route, double speedMultiplier, boolean loop) {
+        this.route = route;
+        this.speedMultiplier = speedMultiplier;
+        this.loop = loop;
+        this.startTimeMs = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * @return the player for the route given in the intent or null if the intent
+     * contains no route
+     * @throws IOException              if the route file cannot be loaded
+     * @throws IllegalArgumentException if route parameters are invalid
+     */
+    @Nullable
+    public static RoutePlayer fromIntent(Intent intent) throws IOException {
+        List<RoutePoint> points;
+        if (intent.hasExtra(ROUTE_FILE_PARAMETER_KEY)) {
+            String path = intent.getStringExtra(ROUTE_FILE_PARAMETER_KEY);
+            if (path == null || path.isEmpty()) {
+                throw new IllegalArgumentException(String.format(
+                        "%s must be a valid file path", ROUTE_FILE_PARAMETER_KEY));
+            }
+            points = RouteParser.parse(new File(path));
+        } else if (intent.hasExtra(ROUTE_POLYLINE_PARAMETER_KEY)) {
+            String polyline = intent.getStringExtra(ROUTE_POLYLINE_PARAMETER_KEY);
+            if (polyline == null || polyline.isEmpty()) {
+                throw new IllegalArgumentException(String.format(
+                        "%s must be a valid encoded polyline", ROUTE_POLYLINE_PARAMETER_KEY));
+            }
+            int precision = (int) extractParam(intent, ROUTE_POLYLINE_PRECISION_PARAMETER_KEY,
+                    PolylineDecoder.DEFAULT_PRECISION);
+            points = PolylineDecoder.decode(polyline, precision);
+        } else {
+            return null;
+        }
+
+        double speed = extractParam(intent, ROUTE_SPEED_PARAMETER_KEY, DEFAULT_SPEED);
+        double speedMultiplier = extractParam(intent, ROUTE_SPEED_MULTIPLIER_PARAMETER_KEY,
+                DEFAULT_SPEED_MULTIPLIER);
+        if (!(speedMultiplier > 0)) {
+            throw new IllegalArgumentException(String.format(
+                    "%s must be greater than zero", ROUTE_SPEED_MULTIPLIER_PARAMETER_KEY));
+        }
+        boolean loop = Boolean.parseBoolean(intent.getStringExtra(ROUTE_LOOP_PARAMETER_KEY));
+
+        Route route = Route.fromPoints(points, speed);
+        Log.i(TAG, String.format("Loaded route with %d points, %.0f m long, " +
+                        "%.0f s duration at %sx speed",
+                route.getPointsCount(), route.getLength(), route.getDuration(), speedMultiplier));
+        return new RoutePlayer(route, speedMultiplier, loop);
+    }
+
+    private static double extractParam(Intent intent, String paramKey, double defaultValue) {
+        if (!intent.hasExtra(paramKey)) {
+            return defaultValue;
+        }
+        String value = intent.getStringExtra(paramKey);
+        try {
+            if (value == null) {
+                throw new NumberFormatException();
+            }
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format(
+                    "%s should be a valid number. '%s' is given instead", paramKey, value));
+        }
+    }
+
+    public RoutePosition getCurrentPosition() {
+        double elapsedTime = (SystemClock.elapsedRealtime() - startTimeMs)
+                / MILLISECONDS_IN_SECOND * speedMultiplier;
+        RoutePosition position = route.getPosition(elapsedTime, loop);
+        if (speedMultiplier == DEFAULT_SPEED_MULTIPLIER) {
+            return position;
+        }
+        // The device actually moves faster/slower than the route has been recorded
+        return new RoutePosition(position.getLatitude(), position.getLongitude(),
+                position.getAltitude(), position.getBearing(),
+                (float) (position.getSpeed() * speedMultiplier), position.isFinished());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+/**
+ * A single vertex of a mocked route
+ */
+public class RoutePoint {
+    public static final long NO_TIME_SET = -1;
+
+    private final double latitude;
+    private final double longitude;
+    private final Double altitude;
+    private final long timeMs;
+
+    /**
+     * @param altitude the altitude in meters or null if unknown
+     * @param timeMs   the Unix timestamp in milliseconds, when this point has been passed,
+     *                 or {@link #NO_TIME_SET}
+     */
+    public RoutePoint(double latitude, double longitude, Double altitude, long timeMs) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.altitude = altitude;
+        this.timeMs = timeMs;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public Double getAltitude() {
+        return altitude;
+    }
+
+    public long getTimeMs() {
+        return timeMs;
+    }
+
+    public boolean hasTime() {
+        return timeMs != NO_TIME_SET;
+    }
+}
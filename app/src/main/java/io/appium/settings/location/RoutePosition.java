@@ -0,0 +1,80 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+/**
+ * The interpolated state of a route playback at a particular moment
+ */
+public class RoutePosition {
+    private final double latitude;
+    private final double longitude;
+    private final Double altitude;
+    private final float bearing;
+    private final float speed;
+    private final boolean isFinished;
+
+    public RoutePosition(double latitude, double longitude, Double altitude,
+                         float bearing, float speed, boolean isFinished) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.altitude = altitude;
+        this.bearing = bearing;
+        this.speed = speed;
+        this.isFinished = isFinished;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return the altitude in meters or null if the route has no altitude information
+     */
+    public Double getAltitude() {
+        return altitude;
+    }
+
+    /**
+     * @return the direction of travel in degrees in range [0, 360)
+     */
+    public float getBearing() {
+        return bearing;
+    }
+
+    /**
+     * @return the speed over ground in meters per second
+     */
+    public float getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @return true if the end of a non-looped route has been reached
+     */
+    public boolean isFinished() {
+        return isFinished;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RoutePosition{%s, %s, altitude=%s, bearing=%s, speed=%s%s}",
+                latitude, longitude, altitude, bearing, speed, isFinished ? ", finished" : "");
+    }
+}
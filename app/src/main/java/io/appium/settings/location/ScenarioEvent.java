@@ -0,0 +1,73 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import java.util.Locale;
+
+/**
+ * A milestone of a location scenario, e.g. the arrival at a waypoint
+ */
+public class ScenarioEvent {
+    public enum Type {
+        // The device has reached the waypoint and starts dwelling there
+        ARRIVED,
+        // The dwell period is over and the device starts moving to the next waypoint
+        DEPARTED,
+        // The last waypoint has been reached and its dwell period is over
+        FINISHED;
+
+        public String getName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Type type;
+    private final int stepIndex;
+    private final String stepName;
+    private final long offsetMs;
+
+    public ScenarioEvent(Type type, int stepIndex, String stepName, long offsetMs) {
+        this.type = type;
+        this.stepIndex = stepIndex;
+        this.stepName = stepName;
+        this.offsetMs = offsetMs;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getStepIndex() {
+        return stepIndex;
+    }
+
+    public String getStepName() {
+        return stepName;
+    }
+
+    /**
+     * @return the time in milliseconds since the start of the scenario
+     */
+    public long getOffsetMs() {
+        return offsetMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "ScenarioEvent{type=%s, step=%d, name='%s', offset=%d ms}",
+                type.getName(), stepIndex, stepName, offsetMs);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.json.JSONException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Executes a location scenario, which is loaded once from a JSON string or file.
+ * Progress events are only reported after every provider has delivered the
+ * corresponding location, so tests could rely on them instead of sleeping.
+ */
+public class ScenarioPlayer {
+    private static final String TAG = "MOCKED SCENARIO PLAYER";
+    private static final String SCENARIO_PARAMETER_KEY = "scenario";
+    private static final String SCENARIO_FILE_PARAMETER_KEY = "scenario_file";
+    private static final double MILLISECONDS_IN_SECOND = 1000.0;
+    private static final long NO_OFFSET_SET = -1;
+
+    public interface EventListener {
+        /**
+         * Is called on one of the location update threads
+         */
+        void onScenarioEvent(ScenarioEvent event);
+    }
+
+    private final LocationScenario scenario;
+    private final EventListener listener;
+    private final long startTimeMs;
+    // The scenario time of the last position returned to each provider
+    private final Map<String, Long> pendingOffsets = new HashMap<>();
+    // The scenario time of the last position actually delivered by each provider
+    private final Map<String, Long> deliveredOffsets = new HashMap<>();
+    private int nextEventIndex = 0;
+
+    public ScenarioPlayer(LocationScenario scenario, EventListener listener) {
+        this.scenario = scenario;
+        this.listener = listener;
+        this.startTimeMs = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * @return the player for the scenario given in the intent or null if the intent
+     * contains no scenario
+     * @throws IOException              if the scenario file cannot be read
+     * @throws IllegalArgumentException if the scenario is invalid
+     */
+    @Nullable
+    public static ScenarioPlayer fromIntent(Intent intent, EventListener listener)
+            throws IOException {
+        String json;
+        if (intent.hasExtra(SCENARIO_PARAMETER_KEY)) {
+            json = intent.getStringExtra(SCENARIO_PARAMETER_KEY);
+        } else if (intent.hasExtra(SCENARIO_FILE_PARAMETER_KEY)) {
+            String path = intent.getStringExtra(SCENARIO_FILE_PARAMETER_KEY);
+            if (path == null || path.isEmpty()) {
+                throw new IllegalArgumentException(String.format(
+                        "%s must be a valid file path", SCENARIO_FILE_PARAMETER_KEY));
+            }
+            json = readFile(new File(path));
+        } else {
+            return null;
+        }
+        if (json == null) {
+            throw new IllegalArgumentException(String.format(
+                    "%s must be a valid JSON object", SCENARIO_PARAMETER_KEY));
+        }
+
+        LocationScenario scenario;
+        try {
+            scenario = LocationScenario.fromJson(json);
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("The scenario is not valid: " + e.getMessage(), e);
+        }
+        Log.i(TAG, String.format("Loaded scenario with %d events, %d ms duration",
+                scenario.getEvents().size(), scenario.getDurationMs()));
+        return new ScenarioPlayer(scenario, listener);
+    }
+
+    private static String readFile(File file) throws IOException {
+        // TODO: Use StandardCharsets.UTF_8 after the minimum supported API version
+        // TODO: is bumped above 18
+        //noinspection CharsetObjectCanBeUsed
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        //noinspection TryFinallyCanBeTryWithResources
+        try {
+            StringBuilder result = new StringBuilder();
+            char[] buffer = new char[8192];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                result.append(buffer, 0, count);
+            }
+            return result.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Events are only reported once all registered providers have caught up with them
+     */
+    public synchronized void registerProvider(String providerName) {
+        pendingOffsets.put(providerName, NO_OFFSET_SET);
+        deliveredOffsets.put(providerName, NO_OFFSET_SET);
+    }
+
+    public synchronized RoutePosition getCurrentPosition(String providerName) {
+        long offsetMs = SystemClock.elapsedRealtime() - startTimeMs;
+        pendingOffsets.put(providerName, offsetMs);
+        return scenario.getRoute().getPosition(offsetMs / MILLISECONDS_IN_SECOND, false);
+    }
+
+    /**
+     * Must be called after the position returned by {@link #getCurrentPosition(String)}
+     * has been delivered by the given provider
+     */
+    public synchronized void onLocationSet(String providerName) {
+        Long pendingOffset = pendingOffsets.get(providerName);
+        if (pendingOffset == null) {
+            return;
+        }
+        deliveredOffsets.put(providerName, pendingOffset);
+        long minOffset = Long.MAX_VALUE;
+        for (long offset : deliveredOffsets.values()) {
+            minOffset = Math.min(minOffset, offset);
+        }
+        // Reported under the lock, so events arrive exactly once and in order
+        List<ScenarioEvent> events = scenario.getEvents();
+        while (nextEventIndex < events.size()
+                && events.get(nextEventIndex).getOffsetMs() <= minOffset) {
+            ScenarioEvent event = events.get(nextEventIndex++);
+            Log.i(TAG, "Reached " + event);
+            listener.onScenarioEvent(event);
+        }
+    }
+}
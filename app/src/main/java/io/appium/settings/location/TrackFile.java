@@ -0,0 +1,177 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A memory-mapped binary track file with fixed-width location records, so tracks
+ * of any length could be replayed without loading them into the heap.
+ * <p>
+ * All values are little-endian. The file starts with a 16 bytes header:
+ * <ul>
+ * <li>magic: 4 ASCII bytes "ATRK"</li>
+ * <li>version: int16, currently 1</li>
+ * <li>record size: int16, currently 40</li>
+ * <li>reserved: 8 bytes</li>
+ * </ul>
+ * followed by records ordered by time:
+ * <ul>
+ * <li>time: int64, milliseconds (the absolute value does not matter)</li>
+ * <li>latitude, longitude: float64, degrees</li>
+ * <li>altitude: float32, meters</li>
+ * <li>speed: float32, meters/second</li>
+ * <li>bearing: float32, degrees</li>
+ * <li>accuracy: float32, meters</li>
+ * </ul>
+ * Float values could be NaN if they are unknown.
+ */
+public class TrackFile {
+    private static final int MAGIC = 0x4b525441; // "ATRK" in little-endian
+    private static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 40;
+
+    private static final int TIME_OFFSET = 0;
+    private static final int LATITUDE_OFFSET = 8;
+    private static final int LONGITUDE_OFFSET = 16;
+    private static final int ALTITUDE_OFFSET = 24;
+    private static final int SPEED_OFFSET = 28;
+    private static final int BEARING_OFFSET = 32;
+    private static final int ACCURACY_OFFSET = 36;
+
+    // Only absolute reads are used, which do not change the buffer state,
+    // so the same buffer could be read by all provider threads
+    private final ByteBuffer buffer;
+    private final int recordsCount;
+
+    private TrackFile(ByteBuffer buffer, int recordsCount) {
+        this.buffer = buffer;
+        this.recordsCount = recordsCount;
+    }
+
+    /**
+     * @throws IOException if the file cannot be mapped or has an invalid format
+     */
+    public static TrackFile open(File file) throws IOException {
+        ByteBuffer buffer;
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        //noinspection TryFinallyCanBeTryWithResources
+        try {
+            FileChannel channel = input.getChannel();
+            long size = channel.size();
+            if (size < HEADER_SIZE + RECORD_SIZE) {
+                throw new IOException(String.format("The track file '%s' contains no records", file));
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("The track file '%s' is too big", file));
+            }
+            // The mapping stays valid after the channel has been closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        } finally {
+            input.close();
+        }
+
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException(String.format("'%s' is not a track file", file));
+        }
+        int version = buffer.getShort(4);
+        int recordSize = buffer.getShort(6);
+        if (version != VERSION || recordSize != RECORD_SIZE) {
+            throw new IOException(String.format("The track file version %d with %d bytes records " +
+                    "is not supported", version, recordSize));
+        }
+        if ((buffer.capacity() - HEADER_SIZE) % RECORD_SIZE != 0) {
+            throw new IOException(String.format("The track file '%s' is truncated", file));
+        }
+        TrackFile result = new TrackFile(buffer, (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE);
+        for (int i = 1; i < result.recordsCount; i++) {
+            if (result.getTimeMs(i) < result.getTimeMs(i - 1)) {
+                throw new IOException(String.format(
+                        "The records of the track file '%s' are not ordered by time", file));
+            }
+        }
+        return result;
+    }
+
+    public int getRecordsCount() {
+        return recordsCount;
+    }
+
+    /**
+     * @return the duration between the first and the last record in milliseconds
+     */
+    public long getDurationMs() {
+        return getTimeMs(recordsCount - 1) - getTimeMs(0);
+    }
+
+    /**
+     * @param timeMs the time in the same scale as record times
+     * @return the index of the last record, which is not newer than the given time,
+     * or 0 if all records are newer
+     */
+    public int findRecord(long timeMs) {
+        int low = 0;
+        int high = recordsCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (getTimeMs(middle) <= timeMs) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private static int getPosition(int index, int fieldOffset) {
+        return HEADER_SIZE + index * RECORD_SIZE + fieldOffset;
+    }
+
+    public long getTimeMs(int index) {
+        return buffer.getLong(getPosition(index, TIME_OFFSET));
+    }
+
+    public double getLatitude(int index) {
+        return buffer.getDouble(getPosition(index, LATITUDE_OFFSET));
+    }
+
+    public double getLongitude(int index) {
+        return buffer.getDouble(getPosition(index, LONGITUDE_OFFSET));
+    }
+
+    public float getAltitude(int index) {
+        return buffer.getFloat(getPosition(index, ALTITUDE_OFFSET));
+    }
+
+    public float getSpeed(int index) {
+        return buffer.getFloat(getPosition(index, SPEED_OFFSET));
+    }
+
+    public float getBearing(int index) {
+        return buffer.getFloat(getPosition(index, BEARING_OFFSET));
+    }
+
+    public float getAccuracy(int index) {
+        return buffer.getFloat(getPosition(index, ACCURACY_OFFSET));
+    }
+}
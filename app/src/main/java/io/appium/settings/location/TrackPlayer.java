@@ -0,0 +1,123 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.location;
+
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Replays the records of a binary track file with their recorded timing.
+ * Looking up the current record does not allocate, so long tracks could be
+ * replayed at high update rates.
+ */
+public class TrackPlayer {
+    private static final String TAG = "MOCKED TRACK PLAYER";
+    private static final String TRACK_FILE_PARAMETER_KEY = "track_file";
+    private static final String TRACK_SPEED_MULTIPLIER_PARAMETER_KEY = "track_speed_multiplier";
+    private static final String TRACK_LOOP_PARAMETER_KEY = "track_loop";
+    private static final double DEFAULT_SPEED_MULTIPLIER = 1.0;
+
+    private final TrackFile track;
+    private final double speedMultiplier;
+    private final boolean loop;
+    private final long startTimeMs;
+
+    public TrackPlayer(TrackFile track, double speedMultiplier, boolean loop) {
+        this.track = track;
+        this.speedMultiplier = speedMultiplier;
+        this.loop = loop;
+        this.startTimeMs = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * @return the player for the track file given in the intent or null if the intent
+     * contains no track file
+     * @throws IOException              if the track file cannot be loaded
+     * @throws IllegalArgumentException if track parameters are invalid
+     */
+    @Nullable
+    public static TrackPlayer fromIntent(Intent intent) throws IOException {
+        if (!intent.hasExtra(TRACK_FILE_PARAMETER_KEY)) {
+            return null;
+        }
+        String path = intent.getStringExtra(TRACK_FILE_PARAMETER_KEY);
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException(String.format(
+                    "%s must be a valid file path", TRACK_FILE_PARAMETER_KEY));
+        }
+        double speedMultiplier = DEFAULT_SPEED_MULTIPLIER;
+        if (intent.hasExtra(TRACK_SPEED_MULTIPLIER_PARAMETER_KEY)) {
+            String value = intent.getStringExtra(TRACK_SPEED_MULTIPLIER_PARAMETER_KEY);
+            speedMultiplier = -1;
+            if (value != null) {
+                try {
+                    speedMultiplier = Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    // handled below
+                }
+            }
+            if (!(speedMultiplier > 0) || Double.isInfinite(speedMultiplier)) {
+                throw new IllegalArgumentException(String.format(
+                        "%s must be a number greater than zero. '%s' is given instead",
+                        TRACK_SPEED_MULTIPLIER_PARAMETER_KEY, value));
+            }
+        }
+        boolean loop = Boolean.parseBoolean(intent.getStringExtra(TRACK_LOOP_PARAMETER_KEY));
+
+        TrackFile track = TrackFile.open(new File(path));
+        Log.i(TAG, String.format("Loaded track with %d records, %d ms duration at %sx speed",
+                track.getRecordsCount(), track.getDurationMs(), speedMultiplier));
+        return new TrackPlayer(track, speedMultiplier, loop);
+    }
+
+    public TrackFile getTrack() {
+        return track;
+    }
+
+    public double getSpeedMultiplier() {
+        return speedMultiplier;
+    }
+
+    /**
+     * @return the average interval between records at the playback speed
+     * or 0 if the track has less than two records
+     */
+    public long getAverageRecordIntervalMs() {
+        int recordsCount = track.getRecordsCount();
+        if (recordsCount < 2) {
+            return 0;
+        }
+        return (long) (track.getDurationMs() / (recordsCount - 1) / speedMultiplier);
+    }
+
+    /**
+     * @return the index of the most recent record according to the recorded timing
+     */
+    public int getCurrentRecordIndex() {
+        long elapsedTimeMs = (long) ((SystemClock.elapsedRealtime() - startTimeMs) * speedMultiplier);
+        long durationMs = track.getDurationMs();
+        if (loop && durationMs > 0) {
+            elapsedTimeMs %= durationMs;
+        }
+        return track.findRecord(track.getTimeMs(0) + elapsedTimeMs);
+    }
+}
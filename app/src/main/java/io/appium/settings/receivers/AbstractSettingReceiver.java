@@ -20,12 +20,12 @@ import android.app.Activity;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.util.Log;
 
 import java.util.Arrays;
 import java.util.List;
 
 import io.appium.settings.handlers.AbstractSettingHandler;
+import io.appium.settings.helpers.Logger;
 
 public abstract class AbstractSettingReceiver extends BroadcastReceiver {
     private static final String TAG = AbstractSettingReceiver.class.getSimpleName();
@@ -40,7 +40,7 @@ public abstract class AbstractSettingReceiver extends BroadcastReceiver {
         String command = intent.getStringExtra(COMMAND);
         List<String> supportedCommands = Arrays.asList(COMMAND_ENABLE, COMMAND_DISABLE);
         if (!supportedCommands.contains(command)) {
-            Log.e(TAG, String.format("Cannot identify the command [%s]", command));
+            Logger.e(TAG, "Cannot identify the command [%s]", command);
             setResultCode(Activity.RESULT_CANCELED);
             return;
         }
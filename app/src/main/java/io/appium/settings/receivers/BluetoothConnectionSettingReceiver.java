@@ -18,9 +18,9 @@ package io.appium.settings.receivers;
 
 import android.bluetooth.BluetoothAdapter;
 import android.content.Context;
-import android.util.Log;
 
 import io.appium.settings.handlers.BluetoothConnectionSettingHandler;
+import io.appium.settings.helpers.Logger;
 
 /**
  * am broadcast -a io.appium.settings.bluetooth --es setstatus [enable|disable]
@@ -35,7 +35,7 @@ public class BluetoothConnectionSettingReceiver extends AbstractSettingReceiver
         BluetoothAdapter bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
         if (bluetoothAdapter == null) {
             String errorMessage = "No default bluetooth adapter found";
-            Log.e(TAG, errorMessage);
+            Logger.e(TAG, errorMessage);
             setResultData(errorMessage);
             return null;
         }
@@ -23,10 +23,11 @@ import android.content.ClipboardManager;
 import android.content.Context;
 import android.content.Intent;
 import android.util.Base64;
-import android.util.Log;
 
 import java.io.UnsupportedEncodingException;
 
+import io.appium.settings.helpers.Logger;
+
 public class ClipboardReceiver extends BroadcastReceiver implements HasAction {
     private static final String TAG = ClipboardReceiver.class.getSimpleName();
 
@@ -40,7 +41,7 @@ public class ClipboardReceiver extends BroadcastReceiver implements HasAction {
         final ClipboardManager cm = (ClipboardManager) context
                 .getSystemService(Context.CLIPBOARD_SERVICE);
         if (cm == null) {
-            Log.e(TAG, "Cannot get an instance of ClipboardManager");
+            Logger.e(TAG, "Cannot get an instance of ClipboardManager");
             return null;
         }
         if (!cm.hasPrimaryClip()) {
@@ -61,7 +62,7 @@ public class ClipboardReceiver extends BroadcastReceiver implements HasAction {
      */
     @Override
     public void onReceive(Context context, Intent intent) {
-        Log.d(TAG, "Getting current clipboard content");
+        Logger.d(TAG, "Getting current clipboard content");
         final String clipboardContent = getClipboardText(context);
         if (clipboardContent == null) {
             setResultCode(Activity.RESULT_CANCELED);
@@ -0,0 +1,74 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.receivers;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import org.json.JSONException;
+
+import io.appium.settings.helpers.Logger;
+import io.appium.settings.ime.ImeCommandLog;
+
+public class ImeStatusReceiver extends BroadcastReceiver
+        implements HasAction {
+    private static final String TAG = ImeStatusReceiver.class.getSimpleName();
+
+    private static final String ACTION = "io.appium.settings.ime.status";
+    private static final String SINCE = "since";
+
+    /**
+     * Responds to broadcast requests like
+     * am broadcast -a io.appium.settings.ime.status --es since 42
+     * with the results of input method commands, whose sequence numbers are greater
+     * than the given one (all recent commands by default), formatted as JSON
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        long sinceSequence = 0;
+        if (intent.hasExtra(SINCE)) {
+            String since = intent.getStringExtra(SINCE);
+            try {
+                sinceSequence = Long.parseLong(since);
+            } catch (NumberFormatException e) {
+                String result = String.format("'%s' should be a valid command sequence number. " +
+                        "'%s' is given instead", SINCE, since);
+                Logger.e(TAG, result);
+                setResultCode(Activity.RESULT_CANCELED);
+                setResultData(result);
+                return;
+            }
+        }
+
+        try {
+            setResultCode(Activity.RESULT_OK);
+            setResultData(ImeCommandLog.getInstance().toJson(sinceSequence).toString());
+        } catch (JSONException e) {
+            String result = "Cannot format the IME commands status. Check the device log for more details.";
+            Logger.e(TAG, result, e);
+            setResultCode(Activity.RESULT_CANCELED);
+            setResultData(result);
+        }
+    }
+
+    @Override
+    public String getAction() {
+        return ACTION;
+    }
+}
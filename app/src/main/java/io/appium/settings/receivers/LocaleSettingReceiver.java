@@ -19,11 +19,11 @@ package io.appium.settings.receivers;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.util.Log;
 
 import java.util.Locale;
 
 import io.appium.settings.handlers.LocaleSettingHandler;
+import io.appium.settings.helpers.Logger;
 
 public class LocaleSettingReceiver extends BroadcastReceiver implements HasAction {
     private static final String TAG = LocaleSettingReceiver.class.getSimpleName();
@@ -38,8 +38,8 @@ public class LocaleSettingReceiver extends BroadcastReceiver implements HasActio
     @Override
     public void onReceive(Context context, Intent intent) {
         if(!hasExtraLocale(intent)) {
-            Log.e(TAG, "Don't forget to set lang and country like: am broadcast -a io.appium.settings.locale --es lang ja --es country JP");
-            Log.e(TAG, "Set en-US by default.");
+            Logger.e(TAG, "Don't forget to set lang and country like: am broadcast -a io.appium.settings.locale --es lang ja --es country JP");
+            Logger.e(TAG, "Set en-US by default.");
 
             intent.putExtra(LANG, "en");
             intent.putExtra(COUNTRY, "US");
@@ -48,20 +48,14 @@ public class LocaleSettingReceiver extends BroadcastReceiver implements HasActio
         String language = intent.getStringExtra(LANG);
         String country = intent.getStringExtra(COUNTRY);
 
-        // Expect https://developer.android.com/reference/java/util/Locale.html#Locale(java.lang.String,%20java.lang.String) format.
-        Locale locale = new Locale(language, country);
+        Locale locale = LocaleSettingHandler.buildLocale(language, country,
+                intent.getStringExtra(SCRIPT));
 
         if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.LOLLIPOP) {
-            String script = intent.getStringExtra(SCRIPT);
-
-            Locale.Builder builder = new Locale.Builder();
-            builder.setLocale(locale);
-            builder.setScript(script == null ? "" : script); // "Hans" part
-            locale = builder.build();
             // "zh-Hans-CN" or "zh-CN" format
-            Log.i(TAG, "Set language tag: " + locale.toLanguageTag());
+            Logger.i(TAG, "Set language tag: " + locale.toLanguageTag());
         } else {
-            Log.i(TAG, "Set locale: " + locale.toString());
+            Logger.i(TAG, "Set locale: " + locale.toString());
         }
 
         LocaleSettingHandler localeSettingHandler = new LocaleSettingHandler(context);
@@ -21,43 +21,202 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.location.Location;
-import android.util.Log;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
 
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import androidx.annotation.Nullable;
+
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.appium.settings.LocationTracker;
+import io.appium.settings.helpers.Logger;
 
 public class LocationInfoReceiver extends BroadcastReceiver
         implements HasAction {
     private static final String TAG = LocationInfoReceiver.class.getSimpleName();
     private static final String FORCE_UPDATE = "forceUpdate";
+    private static final String SINCE = "since";
+    private static final String TIMEOUT = "timeout_ms";
+    private static final long DEFAULT_FORCE_UPDATE_TIMEOUT_MS = 5000;
+    private static final long MAX_FORCE_UPDATE_TIMEOUT_MS = 9000;
 
     private static final String ACTION = "io.appium.settings.location";
 
+    private static JSONObject toJson(Location location) throws JSONException {
+        JSONObject result = new JSONObject();
+        result.put("provider", location.getProvider());
+        result.put("time", location.getTime());
+        result.put("elapsedRealtimeNanos", location.getElapsedRealtimeNanos());
+        result.put("latitude", location.getLatitude());
+        result.put("longitude", location.getLongitude());
+        // Properties which are not set are omitted to keep the output compact
+        if (location.hasAltitude()) {
+            result.put("altitude", location.getAltitude());
+        }
+        if (location.hasSpeed()) {
+            result.put("speed", location.getSpeed());
+        }
+        if (location.hasBearing()) {
+            result.put("bearing", location.getBearing());
+        }
+        if (location.hasAccuracy()) {
+            result.put("accuracy", location.getAccuracy());
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            if (location.hasVerticalAccuracy()) {
+                result.put("verticalAccuracy", location.getVerticalAccuracyMeters());
+            }
+            if (location.hasSpeedAccuracy()) {
+                result.put("speedAccuracy", location.getSpeedAccuracyMetersPerSecond());
+            }
+            if (location.hasBearingAccuracy()) {
+                result.put("bearingAccuracy", location.getBearingAccuracyDegrees());
+            }
+        }
+        if (location.isFromMockProvider()) {
+            result.put("mock", true);
+        }
+        return result;
+    }
+
+    private static JSONObject listLocations(LocationTracker tracker, long sinceMs)
+            throws JSONException {
+        JSONArray items = new JSONArray();
+        List<Location> locations = tracker.getLocationHistory(sinceMs);
+        for (Location location : locations) {
+            items.put(toJson(location));
+        }
+        JSONObject result = new JSONObject();
+        result.put("items", items);
+        result.put("total", tracker.getReceivedLocationsCount());
+        return result;
+    }
+
+    private void handleHistoryRequest(LocationTracker tracker, String since) {
+        long sinceMs;
+        try {
+            sinceMs = Long.parseLong(since);
+        } catch (NumberFormatException e) {
+            String result = String.format("'%s' should be a valid Unix timestamp in milliseconds. " +
+                    "'%s' is given instead", SINCE, since);
+            Logger.e(TAG, result);
+            setResultCode(Activity.RESULT_CANCELED);
+            setResultData(result);
+            return;
+        }
+        try {
+            setResultCode(Activity.RESULT_OK);
+            setResultData(listLocations(tracker, sinceMs).toString());
+        } catch (JSONException e) {
+            String result = "Cannot format the location history. Check the device log for more details.";
+            Logger.e(TAG, result, e);
+            setResultCode(Activity.RESULT_CANCELED);
+            setResultData(result);
+        }
+    }
+
     /**
      * Responds to broadcast requests like
      * am broadcast -a io.appium.settings.location
      * with location properties separated by a single space
+     * or to
+     * am broadcast -a io.appium.settings.location --es since 1600000000000
+     * with the list of fixes received after the given time formatted as JSON
      */
     @Override
     public void onReceive(Context context, Intent intent) {
-        Log.d(TAG, "Getting current location");
         LocationTracker tracker = LocationTracker.getInstance();
+        if (intent.hasExtra(SINCE)) {
+            Logger.d(TAG, "Getting location history");
+            handleHistoryRequest(tracker, intent.getStringExtra(SINCE));
+            return;
+        }
+
+        Logger.d(TAG, "Getting current location");
         if (intent.hasExtra(FORCE_UPDATE)
                 && intent.getBooleanExtra(FORCE_UPDATE, false)) {
-            Log.d(TAG, "Initiating forced location update");
-            tracker.forceLocationUpdate(context);
+            handleForcedUpdateRequest(context, tracker, getTimeoutMs(intent));
+            return;
         }
-        final Location location = tracker.getLocation(context);
-        if (location != null) {
-            setResultCode(Activity.RESULT_OK);
-            // Decimal separator is a dot
-            setResultData(String.format(Locale.US, "%.7f %.7f %.7f",
-                    location.getLatitude(), location.getLongitude(), location.getAltitude()));
-        } else {
-            setResultCode(Activity.RESULT_CANCELED);
-            setResultData("");
+        String result = formatLocation(tracker.getLocation(context));
+        setResultCode(result == null ? Activity.RESULT_CANCELED : Activity.RESULT_OK);
+        setResultData(result == null ? "" : result);
+    }
+
+    @Nullable
+    private static String formatLocation(@Nullable Location location) {
+        if (location == null) {
+            return null;
+        }
+        // Decimal separator is a dot
+        return String.format(Locale.US, "%.7f %.7f %.7f",
+                location.getLatitude(), location.getLongitude(), location.getAltitude());
+    }
+
+    private static long getTimeoutMs(Intent intent) {
+        if (!intent.hasExtra(TIMEOUT)) {
+            return DEFAULT_FORCE_UPDATE_TIMEOUT_MS;
+        }
+        String value = intent.getStringExtra(TIMEOUT);
+        try {
+            long result = Long.parseLong(value);
+            // The broadcast must be finished before the system considers the receiver as hanging
+            return Math.max(0, Math.min(result, MAX_FORCE_UPDATE_TIMEOUT_MS));
+        } catch (NumberFormatException e) {
+            Logger.e(TAG, "%s should be a valid integer. '%s' is given instead",
+                    TIMEOUT, value);
         }
+        return DEFAULT_FORCE_UPDATE_TIMEOUT_MS;
+    }
+
+    /**
+     * Keeps the broadcast pending until a fresh location fix arrives or the timeout expires.
+     * The cached location is returned in the latter case or if a fresh fix cannot be requested.
+     */
+    private void handleForcedUpdateRequest(final Context context, final LocationTracker tracker,
+                                              long timeoutMs) {
+        Logger.d(TAG, "Initiating forced location update with %d ms timeout", timeoutMs);
+        final PendingResult pendingResult = goAsync();
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        final Handler handler = new Handler(Looper.getMainLooper());
+        // All callbacks are executed on the main thread, only the first one finishes the broadcast
+        final AtomicBoolean isFinished = new AtomicBoolean(false);
+        final Runnable onTimeout = () -> {
+            if (!isFinished.compareAndSet(false, true)) {
+                return;
+            }
+            Logger.w(TAG, "Did not receive a fresh location fix in time. Returning the cached one");
+            cancellationSignal.cancel();
+            finish(pendingResult, formatLocation(tracker.getLocation(context)));
+        };
+        boolean isRequested = tracker.forceLocationUpdate(context, cancellationSignal, location -> {
+            if (!isFinished.compareAndSet(false, true)) {
+                return;
+            }
+            handler.removeCallbacks(onTimeout);
+            finish(pendingResult, formatLocation(
+                    location == null ? tracker.getLocation(context) : location));
+        });
+        if (isRequested) {
+            handler.postDelayed(onTimeout, timeoutMs);
+            return;
+        }
+        isFinished.set(true);
+        finish(pendingResult, formatLocation(tracker.getLocation(context)));
+    }
+
+    private static void finish(PendingResult pendingResult, @Nullable String result) {
+        pendingResult.setResult(result == null ? Activity.RESULT_CANCELED : Activity.RESULT_OK,
+                result == null ? "" : result, null);
+        pendingResult.finish();
     }
 
     @Override
@@ -0,0 +1,69 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.receivers;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import org.json.JSONException;
+
+import io.appium.settings.LocationTracker;
+import io.appium.settings.helpers.Logger;
+import io.appium.settings.location.LocationRequestConfig;
+
+public class LocationTrackerSettingReceiver extends BroadcastReceiver
+        implements HasAction {
+    private static final String TAG = LocationTrackerSettingReceiver.class.getSimpleName();
+
+    private static final String ACTION = "io.appium.settings.location.tracker";
+
+    /**
+     * Responds to broadcast requests like
+     * am broadcast -a io.appium.settings.location.tracker --es interval_ms 1000
+     * --es fastest_interval_ms 500 --es priority high_accuracy --es min_distance_m 0
+     * with the resulting location request parameters formatted as JSON.
+     * Parameters, which are not provided, keep their current values.
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        LocationTracker tracker = LocationTracker.getInstance();
+        try {
+            LocationRequestConfig config = LocationRequestConfig.fromIntent(
+                    intent, tracker.getRequestConfig());
+            Logger.d(TAG, "Changing location request parameters to " + config);
+            tracker.setRequestConfig(config);
+            setResultCode(Activity.RESULT_OK);
+            setResultData(config.toJson().toString());
+        } catch (IllegalArgumentException e) {
+            Logger.e(TAG, e.getMessage());
+            setResultCode(Activity.RESULT_CANCELED);
+            setResultData(e.getMessage());
+        } catch (JSONException e) {
+            String result = "Cannot format location request parameters. " +
+                    "Check the device log for more details.";
+            Logger.e(TAG, result, e);
+            setResultCode(Activity.RESULT_CANCELED);
+            setResultData(result);
+        }
+    }
+
+    @Override
+    public String getAction() {
+        return ACTION;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.receivers;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import io.appium.settings.helpers.Logger;
+
+public class LogVerbosityReceiver extends BroadcastReceiver
+        implements HasAction {
+    private static final String TAG = LogVerbosityReceiver.class.getSimpleName();
+
+    private static final String ACTION = "io.appium.settings.log_verbosity";
+    private static final String LEVEL = "level";
+    private static final String LEVEL_DEFAULT = "default";
+
+    private static final Map<String, Integer> LEVELS = new LinkedHashMap<>();
+    static {
+        LEVELS.put(LEVEL_DEFAULT, Logger.NO_LEVEL_SET);
+        LEVELS.put("verbose", Log.VERBOSE);
+        LEVELS.put("debug", Log.DEBUG);
+        LEVELS.put("info", Log.INFO);
+        LEVELS.put("warn", Log.WARN);
+        LEVELS.put("error", Log.ERROR);
+    }
+
+    /**
+     * Responds to broadcast requests like
+     * am broadcast -a io.appium.settings.log_verbosity --es level [default|verbose|debug|info|warn|error]
+     * with the name of the currently active minimum log level.
+     * The level is kept until the app process is restarted.
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (intent.hasExtra(LEVEL)) {
+            String levelName = intent.getStringExtra(LEVEL);
+            Integer level = levelName == null ? null : LEVELS.get(levelName.toLowerCase(Locale.ROOT));
+            if (level == null) {
+                String result = String.format("The log level must be one of %s. '%s' is given instead",
+                        LEVELS.keySet(), levelName);
+                Logger.e(TAG, result);
+                setResultCode(Activity.RESULT_CANCELED);
+                setResultData(result);
+                return;
+            }
+            Logger.setMinLevel(level);
+            Logger.i(TAG, "Set the minimum log level to '%s'", levelName);
+        }
+        setResultCode(Activity.RESULT_OK);
+        setResultData(getLevelName(Logger.getMinLevel()));
+    }
+
+    private static String getLevelName(int level) {
+        for (Map.Entry<String, Integer> entry : LEVELS.entrySet()) {
+            if (entry.getValue() == level) {
+                return entry.getKey();
+            }
+        }
+        return LEVEL_DEFAULT;
+    }
+
+    @Override
+    public String getAction() {
+        return ACTION;
+    }
+}
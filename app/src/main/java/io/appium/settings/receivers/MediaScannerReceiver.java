@@ -21,13 +21,14 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.media.MediaScannerConnection;
-import android.util.Log;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import io.appium.settings.helpers.Logger;
+
 public class MediaScannerReceiver extends BroadcastReceiver
         implements HasAction {
     private static final String TAG = MediaScannerReceiver.class.getSimpleName();
@@ -58,27 +59,27 @@ public class MediaScannerReceiver extends BroadcastReceiver
      */
     @Override
     public void onReceive(Context context, Intent intent) {
-        Log.d(TAG, "Scanning the requested media");
+        Logger.d(TAG, "Scanning the requested media");
         if (!intent.hasExtra(PATH)) {
-            Log.e(TAG, "No path has been provided");
+            Logger.e(TAG, "No path has been provided");
             setResultCode(Activity.RESULT_CANCELED);
             setResultData("");
             return;
         }
         File item = new File(intent.getStringExtra(PATH));
         if (!item.exists()) {
-            Log.e(TAG, String.format("The item at '%s' does not exist", item.toString()));
+            Logger.e(TAG, "The item at '%s' does not exist", item.toString());
             setResultCode(Activity.RESULT_CANCELED);
             setResultData("");
             return;
         }
         List<String> filePaths = fetchFiles(item);
         if (filePaths.isEmpty()) {
-            Log.i(TAG, String.format("Found no files to scan at '%s'", item.toString()));
+            Logger.i(TAG, "Found no files to scan at '%s'", item.toString());
         } else {
             MediaScannerConnection.scanFile(context, filePaths.toArray(new String[0]), null, null);
-            Log.i(TAG, String.format("Successfully scanned %s file(s) at '%s'",
-                    filePaths.size(), item.toString()));
+            Logger.i(TAG, "Successfully scanned %s file(s) at '%s'",
+                    filePaths.size(), item.toString());
         }
         setResultCode(Activity.RESULT_OK);
         setResultData("");
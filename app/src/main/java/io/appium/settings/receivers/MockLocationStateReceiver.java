@@ -0,0 +1,83 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.receivers;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import org.json.JSONException;
+
+import io.appium.settings.helpers.Logger;
+import io.appium.settings.location.MockProviderRegistry;
+
+public class MockLocationStateReceiver extends BroadcastReceiver
+        implements HasAction {
+    private static final String TAG = MockLocationStateReceiver.class.getSimpleName();
+
+    private static final String ACTION = "io.appium.settings.location.mock";
+    private static final String COMMAND = "command";
+    private static final String COMMAND_ARM = "arm";
+    private static final String COMMAND_DISARM = "disarm";
+    private static final String COMMAND_PAUSE = "pause";
+    private static final String COMMAND_RESUME = "resume";
+    private static final String COMMAND_STATUS = "status";
+    private static final String PAUSE_WHILE_IDLE = "pause_while_idle";
+
+    /**
+     * Responds to broadcast requests like
+     * am broadcast -a io.appium.settings.location.mock --es command [arm|disarm|pause|resume|status]
+     * with the resulting state of the mock location providers formatted as JSON.
+     * The arm command also accepts the optional --ez pause_while_idle [true|false] extra.
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String command = intent.hasExtra(COMMAND) ? intent.getStringExtra(COMMAND) : COMMAND_STATUS;
+        MockProviderRegistry registry = MockProviderRegistry.getInstance();
+        Logger.d(TAG, "Executing the mock location command [%s]", command);
+        if (COMMAND_ARM.equals(command)) {
+            registry.arm(context, intent.getBooleanExtra(PAUSE_WHILE_IDLE, false));
+        } else if (COMMAND_DISARM.equals(command)) {
+            registry.disarm();
+        } else if (COMMAND_PAUSE.equals(command)) {
+            registry.pause();
+        } else if (COMMAND_RESUME.equals(command)) {
+            registry.resume();
+        } else if (!COMMAND_STATUS.equals(command)) {
+            String result = String.format("Cannot identify the command [%s]", command);
+            Logger.e(TAG, result);
+            setResultCode(Activity.RESULT_CANCELED);
+            setResultData(result);
+            return;
+        }
+
+        try {
+            setResultCode(Activity.RESULT_OK);
+            setResultData(registry.toJson().toString());
+        } catch (JSONException e) {
+            String result = "Cannot format the mock location state. Check the device log for more details.";
+            Logger.e(TAG, result, e);
+            setResultCode(Activity.RESULT_CANCELED);
+            setResultData(result);
+        }
+    }
+
+    @Override
+    public String getAction() {
+        return ACTION;
+    }
+}
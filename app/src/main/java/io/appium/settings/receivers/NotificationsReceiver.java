@@ -23,10 +23,10 @@ import android.content.Context;
 import android.content.Intent;
 import android.provider.Settings;
 import android.text.TextUtils;
-import android.util.Log;
 
 import androidx.annotation.Nullable;
 
+import io.appium.settings.helpers.Logger;
 import io.appium.settings.notifications.StoredNotifications;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -74,20 +74,20 @@ public class NotificationsReceiver extends BroadcastReceiver
      */
     @Override
     public void onReceive(Context context, Intent intent) {
-        Log.d(TAG, "Getting system notifications");
+        Logger.d(TAG, "Getting system notifications");
         String result;
         if (isNotificationServiceEnabled(context)) {
             JSONObject response = getResponse();
             if (response == null) {
                 result = "Cannot parse the resulting notifications list. Check the device log for more details.";
-                Log.e(TAG, result);
+                Logger.e(TAG, result);
             } else {
                 result = response.toString();
             }
         } else {
             result = "Appium Settings helper has no access to the system notifications. " +
                     "The access must be granted manually via 'Notification access' page in device Settings.";
-            Log.e(TAG, result);
+            Logger.e(TAG, result);
         }
         setResultCode(Activity.RESULT_OK);
         setResultData(result);
@@ -0,0 +1,58 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.receivers;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import org.json.JSONException;
+
+import io.appium.settings.helpers.Logger;
+import io.appium.settings.recorder.RecorderStatus;
+
+public class RecordingStatusReceiver extends BroadcastReceiver
+        implements HasAction {
+    private static final String TAG = RecordingStatusReceiver.class.getSimpleName();
+
+    private static final String ACTION = "io.appium.settings.recording.status";
+
+    /**
+     * Responds to broadcast requests like
+     * am broadcast -a io.appium.settings.recording.status
+     * with the state of the current (or the most recent) recording formatted as JSON
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Logger.d(TAG, "Getting recording status");
+        try {
+            setResultCode(Activity.RESULT_OK);
+            setResultData(RecorderStatus.getInstance().toJson().toString());
+        } catch (JSONException e) {
+            String result = "Cannot format the recording status. Check the device log for more details.";
+            Logger.e(TAG, result, e);
+            setResultCode(Activity.RESULT_CANCELED);
+            setResultData(result);
+        }
+    }
+
+    @Override
+    public String getAction() {
+        return ACTION;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.receivers;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+
+import io.appium.settings.handlers.SettingHandlerFactory;
+import io.appium.settings.helpers.Logger;
+
+import static io.appium.settings.helpers.Utils.formatJsonNull;
+
+public class SettingsStateReceiver extends BroadcastReceiver
+        implements HasAction {
+    private static final String TAG = SettingsStateReceiver.class.getSimpleName();
+
+    private static final String ACTION = "io.appium.settings.state";
+
+    /**
+     * Responds to broadcast requests like
+     * am broadcast -a io.appium.settings.state
+     * with the current state of all settings formatted as JSON.
+     * null means the state cannot be retrieved.
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        try {
+            JSONObject result = new JSONObject();
+            for (String setting : SettingHandlerFactory.SETTINGS) {
+                Boolean state;
+                try {
+                    state = SettingHandlerFactory.create(context, setting).getState();
+                } catch (IllegalStateException e) {
+                    state = null;
+                }
+                result.put(setting, formatJsonNull(state));
+            }
+            Locale locale = context.getResources().getConfiguration().locale;
+            result.put("locale", Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                    ? locale.toLanguageTag()
+                    : locale.toString());
+            setResultCode(Activity.RESULT_OK);
+            setResultData(result.toString());
+        } catch (JSONException e) {
+            String result = "Cannot format the settings state. Check the device log for more details.";
+            Logger.e(TAG, result, e);
+            setResultCode(Activity.RESULT_CANCELED);
+            setResultData(result);
+        }
+    }
+
+    @Override
+    public String getAction() {
+        return ACTION;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.receivers;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Base64;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+
+import io.appium.settings.handlers.SettingsTransaction;
+import io.appium.settings.helpers.Logger;
+
+public class SettingsTransactionReceiver extends BroadcastReceiver
+        implements HasAction {
+    private static final String TAG = SettingsTransactionReceiver.class.getSimpleName();
+
+    private static final String ACTION = "io.appium.settings.transaction";
+    private static final String OPERATIONS = "operations";
+    private static final String OPERATIONS_BASE64 = "operations_base64";
+    // Broadcasts are considered as stuck after 10 seconds
+    private static final long TIMEOUT_MS = 9000;
+
+    /**
+     * Responds to broadcast requests like
+     * am broadcast -a io.appium.settings.transaction --es operations
+     * '[{"setting":"wifi","setstatus":"enable"},{"setting":"animation","setstatus":"disable"}]'
+     * with the results of all operations formatted as JSON array.
+     * The operations could also be provided as base64-encoded UTF-8 string with
+     * the operations_base64 extra.
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        final SettingsTransaction transaction;
+        try {
+            transaction = SettingsTransaction.fromJson(context, getOperations(intent));
+        } catch (JSONException | IllegalArgumentException | UnsupportedEncodingException e) {
+            String result = String.format("Either '%s' or base64-encoded '%s' must be a valid " +
+                    "JSON array of operations. %s", OPERATIONS, OPERATIONS_BASE64, e.getMessage());
+            Logger.e(TAG, result);
+            setResultCode(Activity.RESULT_CANCELED);
+            setResultData(result);
+            return;
+        }
+
+        // Operations could take a while, so the main thread must not be blocked
+        final PendingResult pendingResult = goAsync();
+        new Thread(() -> {
+            int resultCode = Activity.RESULT_OK;
+            String resultData;
+            try {
+                List<JSONObject> results = transaction.execute(TIMEOUT_MS);
+                JSONArray items = new JSONArray();
+                for (JSONObject item : results) {
+                    if (!item.getBoolean("success")) {
+                        resultCode = Activity.RESULT_CANCELED;
+                    }
+                    items.put(item);
+                }
+                resultData = items.toString();
+            } catch (JSONException e) {
+                resultCode = Activity.RESULT_CANCELED;
+                resultData = "Cannot execute the transaction. Check the device log for more details.";
+                Logger.e(TAG, resultData, e);
+            }
+            pendingResult.setResult(resultCode, resultData, null);
+            pendingResult.finish();
+        }).start();
+    }
+
+    private static String getOperations(Intent intent) throws UnsupportedEncodingException {
+        if (intent.hasExtra(OPERATIONS_BASE64) && intent.getStringExtra(OPERATIONS_BASE64) != null) {
+            // TODO: Use StandardCharsets.UTF_8 after the minimum supported API version
+            // TODO: is bumped above 18
+            //noinspection CharsetObjectCanBeUsed
+            return new String(Base64.decode(intent.getStringExtra(OPERATIONS_BASE64), Base64.DEFAULT),
+                    "UTF-8");
+        }
+        String operations = intent.getStringExtra(OPERATIONS);
+        if (operations == null) {
+            throw new IllegalArgumentException("No operations have been provided");
+        }
+        return operations;
+    }
+
+    @Override
+    public String getAction() {
+        return ACTION;
+    }
+}
@@ -22,11 +22,12 @@ import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
 import android.net.Uri;
-import android.util.Log;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import io.appium.settings.helpers.Logger;
+
 import static io.appium.settings.helpers.Utils.formatJsonNull;
 
 public class SmsReader extends BroadcastReceiver implements HasAction {
@@ -92,7 +93,7 @@ public class SmsReader extends BroadcastReceiver implements HasAction {
                 e.printStackTrace();
             }
         }
-        Log.d(TAG, String.format("Getting the recent %s SMS messages", maxItems));
+        Logger.d(TAG, "Getting the recent %s SMS messages", maxItems);
         String output;
         try {
             output = listSms(context, maxItems).toString();
@@ -100,7 +101,7 @@ public class SmsReader extends BroadcastReceiver implements HasAction {
             e.printStackTrace();
             output = "Appium Settings helper is unable to list SMS messages. " +
                     "Check the logcat output for more details.";
-            Log.e(TAG, output);
+            Logger.e(TAG, output);
         }
         setResultCode(Activity.RESULT_OK);
         setResultData(output);
@@ -23,11 +23,12 @@ import android.bluetooth.BluetoothDevice;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.util.Log;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.Set;
 
+import io.appium.settings.helpers.Logger;
+
 @SuppressLint("MissingPermission")
 public class UnpairBluetoothDevicesReceiver extends BroadcastReceiver implements HasAction {
     private static final String TAG = UnpairBluetoothDevicesReceiver.class.getSimpleName();
@@ -39,11 +40,11 @@ public class UnpairBluetoothDevicesReceiver extends BroadcastReceiver implements
      */
     @Override
     public void onReceive(Context context, Intent intent) {
-        Log.d(TAG, "Unpairing bluetooth devices");
+        Logger.d(TAG, "Unpairing bluetooth devices");
         BluetoothAdapter bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
         if (bluetoothAdapter == null) {
             String message = "No Bluetooth adapter found";
-            Log.e(TAG, message);
+            Logger.e(TAG, message);
             setResultCode(Activity.RESULT_CANCELED);
             setResultData(message);
             return;
@@ -65,7 +66,7 @@ public class UnpairBluetoothDevicesReceiver extends BroadcastReceiver implements
             setResultCode(Activity.RESULT_OK);
         } catch (Exception e) {
             String message = String.format("Unpairing bluetooth devices failed with exception: %s", e.getMessage());
-            Log.e(TAG, message);
+            Logger.e(TAG, message);
             setResultCode(Activity.RESULT_CANCELED);
             setResultData(message);
         }
@@ -0,0 +1,27 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.recorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Framework-independent sink for encoded samples
+ */
+public interface EncodedSampleWriter {
+    void writeSample(int trackIndex, ByteBuffer data, long presentationTimeUs,
+                     boolean isSyncSample) throws IOException;
+}
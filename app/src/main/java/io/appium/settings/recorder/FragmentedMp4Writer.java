@@ -0,0 +1,744 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.recorder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Minimal fragmented MP4 (ISO BMFF) writer for one H.264 video track and one AAC audio track.
+ * <p>
+ * The initialization segment (ftyp + moov) is written as soon as the writer is started,
+ * then the encoded samples are flushed in moof + mdat pairs. Every completed fragment is
+ * playable, so the file stays usable even if the recording process gets killed.
+ * </p>
+ * <p>
+ * This class has no Android dependencies; see {@link FragmentedRecorderMuxer} for the
+ * MediaCodec-facing adapter.
+ * </p>
+ */
+public class FragmentedMp4Writer implements EncodedSampleWriter {
+    public static final long DEFAULT_FRAGMENT_DURATION_US = 1000000;
+    private static final int MAX_FRAGMENT_SIZE_BYTES = 8 * 1024 * 1024;
+    private static final int VIDEO_TIMESCALE = 90000;
+    private static final int MOVIE_TIMESCALE = 1000;
+    private static final int AAC_SAMPLES_PER_FRAME = 1024;
+    private static final int DEFAULT_VIDEO_FRAME_RATE = 30;
+    private static final int SAMPLE_FLAGS_SYNC = 0x02000000;
+    private static final int SAMPLE_FLAGS_NON_SYNC = 0x01010000;
+
+    private final FileChannel channel;
+    private final RandomAccessFile file;
+    private final long fragmentDurationUs;
+    private final List<Track> tracks = new ArrayList<>();
+    private final BoxBuffer boxBuffer = new BoxBuffer(4096);
+    private int rotationDegrees = 0;
+    private int fragmentSequenceNumber = 0;
+    private long firstTimestampUs = -1;
+    private boolean started = false;
+
+    public FragmentedMp4Writer(String outputFilePath) throws IOException {
+        this(outputFilePath, DEFAULT_FRAGMENT_DURATION_US);
+    }
+
+    public FragmentedMp4Writer(String outputFilePath, long fragmentDurationUs) throws IOException {
+        this.file = new RandomAccessFile(outputFilePath, "rw");
+        this.file.setLength(0);
+        this.channel = file.getChannel();
+        this.fragmentDurationUs = fragmentDurationUs;
+    }
+
+    /**
+     * @param sps H.264 sequence parameter set without the Annex-B start code
+     * @param pps H.264 picture parameter set without the Annex-B start code
+     * @return the index of the newly added track
+     */
+    public int addVideoTrack(int width, int height, byte[] sps, byte[] pps) {
+        checkNotStarted();
+        Track track = new Track(tracks.size() + 1, true, VIDEO_TIMESCALE);
+        track.width = width;
+        track.height = height;
+        track.sps = sps;
+        track.pps = pps;
+        tracks.add(track);
+        return tracks.size() - 1;
+    }
+
+    /**
+     * @param audioSpecificConfig AAC AudioSpecificConfig as provided by the encoder (csd-0)
+     * @return the index of the newly added track
+     */
+    public int addAudioTrack(int sampleRate, int channelCount, byte[] audioSpecificConfig) {
+        checkNotStarted();
+        Track track = new Track(tracks.size() + 1, false, sampleRate);
+        track.sampleRate = sampleRate;
+        track.channelCount = channelCount;
+        track.audioSpecificConfig = audioSpecificConfig;
+        tracks.add(track);
+        return tracks.size() - 1;
+    }
+
+    public void setRotation(int degrees) {
+        checkNotStarted();
+        this.rotationDegrees = degrees;
+    }
+
+    public void start() throws IOException {
+        checkNotStarted();
+        if (tracks.isEmpty()) {
+            throw new IllegalStateException("At least one track must be added before start");
+        }
+        boxBuffer.reset();
+        writeFtyp(boxBuffer);
+        writeMoov(boxBuffer);
+        writeFully(boxBuffer.toByteBuffer());
+        started = true;
+    }
+
+    /**
+     * Appends an encoded sample. Video samples are expected in Annex-B format (as produced
+     * by MediaCodec) and get converted to length-prefixed NAL units.
+     */
+    @Override
+    public void writeSample(int trackIndex, ByteBuffer data, long presentationTimeUs,
+                            boolean isSyncSample) throws IOException {
+        if (!started) {
+            throw new IllegalStateException("The writer must be started before writing samples");
+        }
+        Track track = tracks.get(trackIndex);
+        if (firstTimestampUs < 0) {
+            firstTimestampUs = presentationTimeUs;
+        }
+        // All tracks share the same time origin to keep audio and video in sync
+        long timestamp = Math.max(0, presentationTimeUs - firstTimestampUs)
+                * track.timescale / 1000000L;
+        if (track.sampleCount > 0) {
+            int lastIndex = track.sampleCount - 1;
+            track.durations[lastIndex] = (int) Math.max(1, timestamp - track.timestamps[lastIndex]);
+        }
+        if (track.isVideo && isSyncSample && shouldFlushFragment(track, timestamp)) {
+            flushFragment();
+        }
+        if (track.isVideo) {
+            track.appendAnnexB(data, timestamp, isSyncSample);
+        } else {
+            track.appendRaw(data, timestamp, true);
+        }
+        if (getPendingBytes() >= MAX_FRAGMENT_SIZE_BYTES) {
+            flushFragment();
+        }
+    }
+
+    public void stop() throws IOException {
+        try {
+            if (started) {
+                for (Track track : tracks) {
+                    if (track.sampleCount > 0) {
+                        track.durations[track.sampleCount - 1] = track.getDefaultSampleDuration();
+                    }
+                }
+                flushFragment();
+                channel.force(false);
+            }
+        } finally {
+            started = false;
+            file.close();
+        }
+    }
+
+    private void checkNotStarted() {
+        if (started) {
+            throw new IllegalStateException("The writer has been already started");
+        }
+    }
+
+    private boolean shouldFlushFragment(Track videoTrack, long nextTimestamp) {
+        if (videoTrack.sampleCount == 0) {
+            return false;
+        }
+        long pendingDuration = nextTimestamp - videoTrack.timestamps[0];
+        return pendingDuration * 1000000L / videoTrack.timescale >= fragmentDurationUs;
+    }
+
+    private int getPendingBytes() {
+        int result = 0;
+        for (Track track : tracks) {
+            result += track.dataSize;
+        }
+        return result;
+    }
+
+    private void flushFragment() throws IOException {
+        boolean hasSamples = false;
+        for (Track track : tracks) {
+            if (track.getFinishedSampleCount() > 0) {
+                hasSamples = true;
+                break;
+            }
+        }
+        if (!hasSamples) {
+            return;
+        }
+
+        boxBuffer.reset();
+        int[] dataOffsetPositions = new int[tracks.size()];
+        Arrays.fill(dataOffsetPositions, -1);
+        int moofStart = boxBuffer.startBox("moof");
+        boxBuffer.startFullBox("mfhd", 0, 0);
+        boxBuffer.putInt(++fragmentSequenceNumber);
+        boxBuffer.endBox();
+        for (int i = 0; i < tracks.size(); i++) {
+            Track track = tracks.get(i);
+            int count = track.getFinishedSampleCount();
+            if (count == 0) {
+                continue;
+            }
+            boxBuffer.startBox("traf");
+            // default-base-is-moof
+            boxBuffer.startFullBox("tfhd", 0, 0x020000);
+            boxBuffer.putInt(track.trackId);
+            boxBuffer.endBox();
+            boxBuffer.startFullBox("tfdt", 1, 0);
+            boxBuffer.putLong(track.baseMediaDecodeTime);
+            boxBuffer.endBox();
+            // data-offset, sample-duration, sample-size and sample-flags are present
+            boxBuffer.startFullBox("trun", 0, 0x000701);
+            boxBuffer.putInt(count);
+            dataOffsetPositions[i] = boxBuffer.position();
+            boxBuffer.putInt(0);
+            for (int s = 0; s < count; s++) {
+                boxBuffer.putInt(track.durations[s]);
+                boxBuffer.putInt(track.sizes[s]);
+                boxBuffer.putInt(track.syncFlags[s] ? SAMPLE_FLAGS_SYNC : SAMPLE_FLAGS_NON_SYNC);
+            }
+            boxBuffer.endBox();
+            boxBuffer.endBox();
+        }
+        boxBuffer.endBox();
+        int moofSize = boxBuffer.position() - moofStart;
+
+        int mdatPayloadSize = 0;
+        for (int i = 0; i < tracks.size(); i++) {
+            if (dataOffsetPositions[i] < 0) {
+                continue;
+            }
+            // The data offset is relative to the first byte of the moof box
+            boxBuffer.putIntAt(dataOffsetPositions[i], moofSize + 8 + mdatPayloadSize);
+            mdatPayloadSize += tracks.get(i).getFinishedDataSize();
+        }
+        boxBuffer.putInt(8 + mdatPayloadSize);
+        boxBuffer.putFourCC("mdat");
+        writeFully(boxBuffer.toByteBuffer());
+
+        for (Track track : tracks) {
+            int finishedDataSize = track.getFinishedDataSize();
+            if (finishedDataSize > 0) {
+                writeFully(ByteBuffer.wrap(track.data, 0, finishedDataSize));
+            }
+            track.dropFinishedSamples();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeFtyp(BoxBuffer out) {
+        out.startBox("ftyp");
+        out.putFourCC("iso5");
+        out.putInt(0);
+        out.putFourCC("iso5");
+        out.putFourCC("iso6");
+        out.putFourCC("mp41");
+        out.endBox();
+    }
+
+    private void writeMoov(BoxBuffer out) {
+        out.startBox("moov");
+        out.startFullBox("mvhd", 0, 0);
+        out.putInt(0); // creation_time
+        out.putInt(0); // modification_time
+        out.putInt(MOVIE_TIMESCALE);
+        out.putInt(0); // duration is defined by the fragments
+        out.putInt(0x00010000); // rate
+        out.putShort(0x0100); // volume
+        out.putZeros(2 + 8);
+        putMatrix(out, 0);
+        out.putZeros(6 * 4);
+        out.putInt(tracks.size() + 1); // next_track_ID
+        out.endBox();
+        for (Track track : tracks) {
+            writeTrak(out, track);
+        }
+        out.startBox("mvex");
+        for (Track track : tracks) {
+            out.startFullBox("trex", 0, 0);
+            out.putInt(track.trackId);
+            out.putInt(1); // default_sample_description_index
+            out.putInt(0);
+            out.putInt(0);
+            out.putInt(0);
+            out.endBox();
+        }
+        out.endBox();
+        out.endBox();
+    }
+
+    private void writeTrak(BoxBuffer out, Track track) {
+        out.startBox("trak");
+        // track_enabled | track_in_movie
+        out.startFullBox("tkhd", 0, 0x000003);
+        out.putInt(0);
+        out.putInt(0);
+        out.putInt(track.trackId);
+        out.putInt(0);
+        out.putInt(0); // duration
+        out.putZeros(8);
+        out.putShort(0); // layer
+        out.putShort(0); // alternate_group
+        out.putShort(track.isVideo ? 0 : 0x0100);
+        out.putShort(0);
+        putMatrix(out, track.isVideo ? rotationDegrees : 0);
+        out.putInt(track.width << 16);
+        out.putInt(track.height << 16);
+        out.endBox();
+
+        out.startBox("mdia");
+        out.startFullBox("mdhd", 0, 0);
+        out.putInt(0);
+        out.putInt(0);
+        out.putInt(track.timescale);
+        out.putInt(0);
+        out.putShort(0x55C4); // 'und'
+        out.putShort(0);
+        out.endBox();
+        out.startFullBox("hdlr", 0, 0);
+        out.putInt(0);
+        out.putFourCC(track.isVideo ? "vide" : "soun");
+        out.putZeros(12);
+        out.putCString(track.isVideo ? "VideoHandler" : "SoundHandler");
+        out.endBox();
+
+        out.startBox("minf");
+        if (track.isVideo) {
+            out.startFullBox("vmhd", 0, 1);
+            out.putZeros(8);
+        } else {
+            out.startFullBox("smhd", 0, 0);
+            out.putZeros(4);
+        }
+        out.endBox();
+        out.startBox("dinf");
+        out.startFullBox("dref", 0, 0);
+        out.putInt(1);
+        // self-contained
+        out.startFullBox("url ", 0, 1);
+        out.endBox();
+        out.endBox();
+        out.endBox();
+
+        out.startBox("stbl");
+        out.startFullBox("stsd", 0, 0);
+        out.putInt(1);
+        if (track.isVideo) {
+            writeAvc1(out, track);
+        } else {
+            writeMp4a(out, track);
+        }
+        out.endBox();
+        for (String emptyTable : new String[]{"stts", "stsc", "stco"}) {
+            out.startFullBox(emptyTable, 0, 0);
+            out.putInt(0);
+            out.endBox();
+        }
+        out.startFullBox("stsz", 0, 0);
+        out.putInt(0);
+        out.putInt(0);
+        out.endBox();
+        out.endBox(); // stbl
+        out.endBox(); // minf
+        out.endBox(); // mdia
+        out.endBox(); // trak
+    }
+
+    private static void writeAvc1(BoxBuffer out, Track track) {
+        out.startBox("avc1");
+        out.putZeros(6);
+        out.putShort(1); // data_reference_index
+        out.putZeros(16);
+        out.putShort(track.width);
+        out.putShort(track.height);
+        out.putInt(0x00480000); // 72 dpi
+        out.putInt(0x00480000);
+        out.putInt(0);
+        out.putShort(1); // frame_count
+        out.putZeros(32); // compressorname
+        out.putShort(0x0018); // depth
+        out.putShort(0xFFFF); // pre_defined = -1
+        out.startBox("avcC");
+        out.putByte(1);
+        out.putByte(track.sps.length > 1 ? track.sps[1] : 0);
+        out.putByte(track.sps.length > 2 ? track.sps[2] : 0);
+        out.putByte(track.sps.length > 3 ? track.sps[3] : 0);
+        out.putByte(0xFF); // 4 bytes NAL unit length
+        out.putByte(0xE1); // one SPS
+        out.putShort(track.sps.length);
+        out.putBytes(track.sps);
+        out.putByte(1); // one PPS
+        out.putShort(track.pps.length);
+        out.putBytes(track.pps);
+        out.endBox();
+        out.endBox();
+    }
+
+    private static void writeMp4a(BoxBuffer out, Track track) {
+        out.startBox("mp4a");
+        out.putZeros(6);
+        out.putShort(1); // data_reference_index
+        out.putZeros(8);
+        out.putShort(track.channelCount);
+        out.putShort(16); // samplesize
+        out.putZeros(4);
+        out.putInt(track.sampleRate << 16);
+        out.startFullBox("esds", 0, 0);
+        byte[] asc = track.audioSpecificConfig;
+        // ES_Descriptor
+        out.putByte(0x03);
+        out.putByte(3 + 2 + 13 + 2 + asc.length + 3);
+        out.putShort(track.trackId);
+        out.putByte(0);
+        // DecoderConfigDescriptor
+        out.putByte(0x04);
+        out.putByte(13 + 2 + asc.length);
+        out.putByte(0x40); // MPEG-4 AAC
+        out.putByte(0x15); // audio stream
+        out.putZeros(3 + 4 + 4);
+        // DecoderSpecificInfo
+        out.putByte(0x05);
+        out.putByte(asc.length);
+        out.putBytes(asc);
+        // SLConfigDescriptor
+        out.putByte(0x06);
+        out.putByte(1);
+        out.putByte(0x02);
+        out.endBox();
+        out.endBox();
+    }
+
+    private static void putMatrix(BoxBuffer out, int rotationDegrees) {
+        int a = 0x00010000;
+        int b = 0;
+        int c = 0;
+        int d = 0x00010000;
+        switch (rotationDegrees) {
+            case 90:
+                a = 0;
+                b = 0x00010000;
+                c = 0xFFFF0000;
+                d = 0;
+                break;
+            case 180:
+                a = 0xFFFF0000;
+                d = 0xFFFF0000;
+                break;
+            case 270:
+                a = 0;
+                b = 0xFFFF0000;
+                c = 0x00010000;
+                d = 0;
+                break;
+            default:
+                break;
+        }
+        out.putInt(a);
+        out.putInt(b);
+        out.putInt(0);
+        out.putInt(c);
+        out.putInt(d);
+        out.putInt(0);
+        out.putInt(0);
+        out.putInt(0);
+        out.putInt(0x40000000);
+    }
+
+    private static class Track {
+        final int trackId;
+        final boolean isVideo;
+        final int timescale;
+        int width;
+        int height;
+        byte[] sps;
+        byte[] pps;
+        int sampleRate;
+        int channelCount;
+        byte[] audioSpecificConfig;
+
+        long baseMediaDecodeTime = -1;
+        byte[] data = new byte[64 * 1024];
+        int dataSize = 0;
+        int sampleCount = 0;
+        int[] sizes = new int[64];
+        int[] durations = new int[64];
+        long[] timestamps = new long[64];
+        boolean[] syncFlags = new boolean[64];
+
+        Track(int trackId, boolean isVideo, int timescale) {
+            this.trackId = trackId;
+            this.isVideo = isVideo;
+            this.timescale = timescale;
+        }
+
+        int getDefaultSampleDuration() {
+            if (!isVideo) {
+                return AAC_SAMPLES_PER_FRAME;
+            }
+            if (sampleCount > 1) {
+                return durations[sampleCount - 2];
+            }
+            return timescale / DEFAULT_VIDEO_FRAME_RATE;
+        }
+
+        // The most recent sample has no duration until its successor arrives
+        int getFinishedSampleCount() {
+            return sampleCount > 0 && durations[sampleCount - 1] == 0
+                    ? sampleCount - 1
+                    : sampleCount;
+        }
+
+        int getFinishedDataSize() {
+            int result = 0;
+            int count = getFinishedSampleCount();
+            for (int i = 0; i < count; i++) {
+                result += sizes[i];
+            }
+            return result;
+        }
+
+        void dropFinishedSamples() {
+            int count = getFinishedSampleCount();
+            if (count == 0) {
+                return;
+            }
+            int finishedDataSize = getFinishedDataSize();
+            for (int i = 0; i < count; i++) {
+                baseMediaDecodeTime += durations[i];
+            }
+            int remaining = sampleCount - count;
+            System.arraycopy(data, finishedDataSize, data, 0, dataSize - finishedDataSize);
+            System.arraycopy(sizes, count, sizes, 0, remaining);
+            System.arraycopy(durations, count, durations, 0, remaining);
+            System.arraycopy(timestamps, count, timestamps, 0, remaining);
+            System.arraycopy(syncFlags, count, syncFlags, 0, remaining);
+            dataSize -= finishedDataSize;
+            sampleCount = remaining;
+        }
+
+        void appendRaw(ByteBuffer sample, long timestamp, boolean isSync) {
+            int size = sample.remaining();
+            ensureDataCapacity(size);
+            sample.duplicate().get(data, dataSize, size);
+            dataSize += size;
+            addSampleEntry(size, timestamp, isSync);
+        }
+
+        /**
+         * Converts Annex-B start codes into 4-byte NAL unit lengths while copying.
+         */
+        void appendAnnexB(ByteBuffer sample, long timestamp, boolean isSync) {
+            int start = sample.position();
+            int end = sample.limit();
+            int sampleStart = dataSize;
+            int nalStart = findNalStart(sample, start, end);
+            if (nalStart < 0) {
+                // Already length-prefixed or has no start codes at all
+                appendRaw(sample, timestamp, isSync);
+                return;
+            }
+            while (nalStart >= 0) {
+                int nextStartCode = findStartCode(sample, nalStart, end);
+                int nalEnd = nextStartCode < 0 ? end : nextStartCode;
+                // Drop trailing zero bytes belonging to the next 4-byte start code
+                while (nalEnd > nalStart && nextStartCode >= 0 && sample.get(nalEnd - 1) == 0) {
+                    nalEnd--;
+                }
+                int nalSize = nalEnd - nalStart;
+                ensureDataCapacity(4 + nalSize);
+                data[dataSize++] = (byte) (nalSize >>> 24);
+                data[dataSize++] = (byte) (nalSize >>> 16);
+                data[dataSize++] = (byte) (nalSize >>> 8);
+                data[dataSize++] = (byte) nalSize;
+                for (int i = nalStart; i < nalEnd; i++) {
+                    data[dataSize++] = sample.get(i);
+                }
+                nalStart = nextStartCode < 0 ? -1 : nextStartCode + 3;
+            }
+            addSampleEntry(dataSize - sampleStart, timestamp, isSync);
+        }
+
+        private static int findNalStart(ByteBuffer buffer, int from, int to) {
+            int startCode = findStartCode(buffer, from, to);
+            return startCode == from || (startCode == from + 1 && buffer.get(from) == 0)
+                    ? startCode + 3
+                    : -1;
+        }
+
+        private static int findStartCode(ByteBuffer buffer, int from, int to) {
+            for (int i = from; i + 2 < to; i++) {
+                if (buffer.get(i) == 0 && buffer.get(i + 1) == 0 && buffer.get(i + 2) == 1) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void addSampleEntry(int size, long timestamp, boolean isSync) {
+            if (baseMediaDecodeTime < 0) {
+                baseMediaDecodeTime = timestamp;
+            }
+            if (sampleCount == sizes.length) {
+                int newLength = sizes.length * 2;
+                sizes = Arrays.copyOf(sizes, newLength);
+                durations = Arrays.copyOf(durations, newLength);
+                timestamps = Arrays.copyOf(timestamps, newLength);
+                syncFlags = Arrays.copyOf(syncFlags, newLength);
+            }
+            sizes[sampleCount] = size;
+            durations[sampleCount] = 0;
+            timestamps[sampleCount] = timestamp;
+            syncFlags[sampleCount] = isSync;
+            sampleCount++;
+        }
+
+        private void ensureDataCapacity(int extra) {
+            if (dataSize + extra > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, dataSize + extra));
+            }
+        }
+    }
+
+    /**
+     * Growable big-endian buffer with support for nested box size back-patching.
+     */
+    private static class BoxBuffer {
+        private byte[] bytes;
+        private int position = 0;
+        private final int[] boxStarts = new int[16];
+        private int depth = 0;
+
+        BoxBuffer(int initialCapacity) {
+            this.bytes = new byte[initialCapacity];
+        }
+
+        void reset() {
+            position = 0;
+            depth = 0;
+        }
+
+        int position() {
+            return position;
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(bytes, 0, position);
+        }
+
+        int startBox(String type) {
+            int start = position;
+            boxStarts[depth++] = start;
+            putInt(0);
+            putFourCC(type);
+            return start;
+        }
+
+        void startFullBox(String type, int version, int flags) {
+            startBox(type);
+            putInt((version << 24) | (flags & 0xFFFFFF));
+        }
+
+        void endBox() {
+            int start = boxStarts[--depth];
+            putIntAt(start, position - start);
+        }
+
+        void putByte(int value) {
+            ensureCapacity(1);
+            bytes[position++] = (byte) value;
+        }
+
+        void putShort(int value) {
+            ensureCapacity(2);
+            bytes[position++] = (byte) (value >>> 8);
+            bytes[position++] = (byte) value;
+        }
+
+        void putInt(int value) {
+            ensureCapacity(4);
+            putIntAt(position, value);
+            position += 4;
+        }
+
+        void putLong(long value) {
+            putInt((int) (value >>> 32));
+            putInt((int) value);
+        }
+
+        void putIntAt(int at, int value) {
+            bytes[at] = (byte) (value >>> 24);
+            bytes[at + 1] = (byte) (value >>> 16);
+            bytes[at + 2] = (byte) (value >>> 8);
+            bytes[at + 3] = (byte) value;
+        }
+
+        void putFourCC(String fourCC) {
+            for (int i = 0; i < 4; i++) {
+                putByte(fourCC.charAt(i));
+            }
+        }
+
+        void putCString(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                putByte(value.charAt(i));
+            }
+            putByte(0);
+        }
+
+        void putBytes(byte[] value) {
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, bytes, position, value.length);
+            position += value.length;
+        }
+
+        void putZeros(int count) {
+            ensureCapacity(count);
+            Arrays.fill(bytes, position, position + count, (byte) 0);
+            position += count;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (position + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + extra));
+            }
+        }
+    }
+}
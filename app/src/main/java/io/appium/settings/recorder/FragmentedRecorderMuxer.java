@@ -0,0 +1,112 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.recorder;
+
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import android.os.Build;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * Writes fragmented MP4 files with {@link FragmentedMp4Writer}.
+ * Already written fragments stay playable even if the recording gets interrupted.
+ */
+@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+public class FragmentedRecorderMuxer implements RecorderMuxer {
+    private static final String CSD_0 = "csd-0";
+    private static final String CSD_1 = "csd-1";
+
+    private final FragmentedMp4Writer writer;
+
+    public FragmentedRecorderMuxer(String outputFilePath) throws IOException {
+        this.writer = new FragmentedMp4Writer(outputFilePath);
+    }
+
+    @Override
+    public int addTrack(MediaFormat format) throws IOException {
+        String mimeType = format.getString(MediaFormat.KEY_MIME);
+        if (MediaFormat.MIMETYPE_VIDEO_AVC.equals(mimeType)) {
+            return writer.addVideoTrack(format.getInteger(MediaFormat.KEY_WIDTH),
+                    format.getInteger(MediaFormat.KEY_HEIGHT),
+                    getCodecSpecificData(format, CSD_0), getCodecSpecificData(format, CSD_1));
+        }
+        if (MediaFormat.MIMETYPE_AUDIO_AAC.equals(mimeType)) {
+            return writer.addAudioTrack(format.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                    format.getInteger(MediaFormat.KEY_CHANNEL_COUNT),
+                    getCodecSpecificData(format, CSD_0));
+        }
+        throw new IOException(String.format("Fragmented MP4 output does not support '%s' tracks",
+                mimeType));
+    }
+
+    @Override
+    public void setOrientationHint(int degrees) {
+        writer.setRotation(degrees);
+    }
+
+    @Override
+    public void start() throws IOException {
+        writer.start();
+    }
+
+    @Override
+    public void writeSampleData(int trackIndex, ByteBuffer encodedData,
+                                MediaCodec.BufferInfo bufferInfo) throws IOException {
+        ByteBuffer sample = encodedData.duplicate();
+        sample.position(bufferInfo.offset);
+        sample.limit(bufferInfo.offset + bufferInfo.size);
+        writer.writeSample(trackIndex, sample, bufferInfo.presentationTimeUs,
+                (bufferInfo.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) != 0);
+    }
+
+    @Override
+    public void stop() throws IOException {
+        writer.stop();
+    }
+
+    @Override
+    public void release() {
+        // All the resources are released in stop()
+    }
+
+    /**
+     * Returns the codec specific data stripped from its Annex-B start code
+     */
+    private static byte[] getCodecSpecificData(MediaFormat format, String key) throws IOException {
+        ByteBuffer csd = format.getByteBuffer(key);
+        if (csd == null) {
+            throw new IOException(String.format("The output format has no '%s' entry", key));
+        }
+        csd = csd.duplicate();
+        int start = csd.position();
+        int end = csd.limit();
+        if (end - start > 4 && csd.get(start) == 0 && csd.get(start + 1) == 0) {
+            if (csd.get(start + 2) == 1) {
+                start += 3;
+            } else if (csd.get(start + 2) == 0 && csd.get(start + 3) == 1) {
+                start += 4;
+            }
+        }
+        byte[] result = new byte[end - start];
+        csd.position(start);
+        csd.get(result);
+        return result;
+    }
+}
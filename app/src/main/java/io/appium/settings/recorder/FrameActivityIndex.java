@@ -0,0 +1,108 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.recorder;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.appium.settings.recorder.RecorderConstant.NO_TIMESTAMP_SET;
+
+/**
+ * Collects the periods of a recording, where the screen content has been changing,
+ * so the interesting moments could be found without watching the whole video.
+ * Timestamps are video presentation times in milliseconds.
+ */
+public class FrameActivityIndex {
+    private final float frameDiffThreshold;
+    private final long mergeGapMs;
+    private final List<long[]> segments = new ArrayList<>();
+    private long segmentStartMs = NO_TIMESTAMP_SET;
+    private long segmentEndMs = NO_TIMESTAMP_SET;
+    private long framesCount = 0;
+    private long changedFramesCount = 0;
+
+    /**
+     * @param mergeGapMs changes separated by a shorter still period are merged
+     *                   into a single activity segment
+     */
+    public FrameActivityIndex(float frameDiffThreshold, long mergeGapMs) {
+        this.frameDiffThreshold = frameDiffThreshold;
+        this.mergeGapMs = mergeGapMs;
+    }
+
+    public synchronized void onFrame(long timestampMs, boolean isChanged) {
+        framesCount++;
+        if (!isChanged) {
+            return;
+        }
+        changedFramesCount++;
+        if (segmentStartMs != NO_TIMESTAMP_SET && timestampMs - segmentEndMs <= mergeGapMs) {
+            segmentEndMs = timestampMs;
+            return;
+        }
+        if (segmentStartMs != NO_TIMESTAMP_SET) {
+            segments.add(new long[]{segmentStartMs, segmentEndMs});
+        }
+        segmentStartMs = timestampMs;
+        segmentEndMs = timestampMs;
+    }
+
+    public synchronized JSONObject toJson() throws JSONException {
+        JSONArray segmentsJson = new JSONArray();
+        for (long[] segment : segments) {
+            segmentsJson.put(segmentToJson(segment[0], segment[1]));
+        }
+        if (segmentStartMs != NO_TIMESTAMP_SET) {
+            segmentsJson.put(segmentToJson(segmentStartMs, segmentEndMs));
+        }
+        JSONObject result = new JSONObject();
+        result.put("frameDiffThreshold", (double) frameDiffThreshold);
+        result.put("framesCount", framesCount);
+        result.put("changedFramesCount", changedFramesCount);
+        result.put("segments", segmentsJson);
+        return result;
+    }
+
+    public void writeTo(File file) throws IOException, JSONException {
+        String content = toJson().toString();
+        // TODO: Use StandardCharsets.UTF_8 after the minimum supported API version
+        // TODO: is bumped above 18
+        //noinspection CharsetObjectCanBeUsed
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        //noinspection TryFinallyCanBeTryWithResources
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static JSONObject segmentToJson(long startMs, long endMs) throws JSONException {
+        JSONObject result = new JSONObject();
+        result.put("startMs", startMs);
+        result.put("endMs", endMs);
+        return result;
+    }
+}
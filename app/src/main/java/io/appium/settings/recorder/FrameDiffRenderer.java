@@ -0,0 +1,457 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.recorder;
+
+import android.graphics.SurfaceTexture;
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLExt;
+import android.opengl.EGLSurface;
+import android.opengl.GLES11Ext;
+import android.opengl.GLES20;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Surface;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.CountDownLatch;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * Sits between the virtual display and the video encoder and only forwards frames,
+ * whose content differs noticeably from the previously seen one.
+ * <p>
+ * Each frame is rendered into a small luma framebuffer on the GPU, so only a few
+ * kilobytes per frame are read back and compared on the CPU. The encoder repeats the
+ * last forwarded frame while nothing is forwarded. Once the screen has settled for
+ * {@link #SETTLED_FRAME_DELAY_MS}, its latest suppressed frame is forwarded, so the
+ * recording does not end up showing a slightly outdated screen.
+ * </p>
+ */
+@RequiresApi(api = Build.VERSION_CODES.Q)
+public class FrameDiffRenderer implements SurfaceTexture.OnFrameAvailableListener {
+    private static final String TAG = "FrameDiffRenderer";
+
+    private static final int DIFF_FRAME_WIDTH = 128;
+    private static final int LUMA_DELTA_THRESHOLD = 16;
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final long SETTLED_FRAME_DELAY_MS = 1000;
+    private static final long ACTIVITY_MERGE_GAP_MS = 1000;
+    private static final long MICROSECONDS_IN_MILLISECOND = 1000;
+
+    private static final String VERTEX_SHADER = "" +
+            "uniform mat4 uTexMatrix;\n" +
+            "attribute vec4 aPosition;\n" +
+            "attribute vec4 aTextureCoord;\n" +
+            "varying vec2 vTextureCoord;\n" +
+            "void main() {\n" +
+            "    gl_Position = aPosition;\n" +
+            "    vTextureCoord = (uTexMatrix * aTextureCoord).xy;\n" +
+            "}\n";
+    private static final String COPY_FRAGMENT_SHADER = "" +
+            "#extension GL_OES_EGL_image_external : require\n" +
+            "precision mediump float;\n" +
+            "varying vec2 vTextureCoord;\n" +
+            "uniform samplerExternalOES sTexture;\n" +
+            "void main() {\n" +
+            "    gl_FragColor = texture2D(sTexture, vTextureCoord);\n" +
+            "}\n";
+    private static final String LUMA_FRAGMENT_SHADER = "" +
+            "#extension GL_OES_EGL_image_external : require\n" +
+            "precision mediump float;\n" +
+            "varying vec2 vTextureCoord;\n" +
+            "uniform samplerExternalOES sTexture;\n" +
+            "void main() {\n" +
+            "    float luma = dot(texture2D(sTexture, vTextureCoord).rgb,\n" +
+            "            vec3(0.299, 0.587, 0.114));\n" +
+            "    gl_FragColor = vec4(luma, luma, luma, 1.0);\n" +
+            "}\n";
+    // Full screen quad as a triangle strip: x, y, s, t
+    private static final float[] QUAD_VERTICES = {
+            -1f, -1f, 0f, 0f,
+            1f, -1f, 1f, 0f,
+            -1f, 1f, 0f, 1f,
+            1f, 1f, 1f, 1f,
+    };
+
+    private final Surface encoderSurface;
+    private final int width;
+    private final int height;
+    private final int diffWidth;
+    private final int diffHeight;
+    private final float frameDiffThreshold;
+    private final PresentationTimeSource presentationTimeSource;
+    private final LumaFrameComparator comparator;
+    private final FrameActivityIndex activityIndex;
+    private final float[] texMatrix = new float[16];
+    private final FloatBuffer quadVertices;
+
+    private HandlerThread renderThread;
+    private Handler handler;
+    private EGLDisplay eglDisplay = EGL14.EGL_NO_DISPLAY;
+    private EGLContext eglContext = EGL14.EGL_NO_CONTEXT;
+    private EGLSurface eglSurface = EGL14.EGL_NO_SURFACE;
+    private int oesTextureId = 0;
+    private int copyProgram = 0;
+    private int lumaProgram = 0;
+    private int lumaTextureId = 0;
+    private int lumaFramebuffer = 0;
+    private SurfaceTexture surfaceTexture;
+    private Surface inputSurface;
+    private ByteBuffer previousLuma;
+    private ByteBuffer currentLuma;
+    private boolean hasPreviousLuma = false;
+    private long forwardedFramesCount = 0;
+    private long suppressedFramesCount = 0;
+
+    private final Runnable forwardLatestFrame = new Runnable() {
+        @Override
+        public void run() {
+            if (surfaceTexture != null) {
+                forwardFrame(System.nanoTime());
+            }
+        }
+    };
+
+    /**
+     * @param encoderSurface     the input surface of the video encoder
+     * @param frameDiffThreshold the minimum percentage (0..100) of changed pixels
+     *                           in the downsampled frame for it to be recorded
+     */
+    public FrameDiffRenderer(Surface encoderSurface, int width, int height,
+                             float frameDiffThreshold,
+                             PresentationTimeSource presentationTimeSource) {
+        this.encoderSurface = encoderSurface;
+        this.width = width;
+        this.height = height;
+        this.diffWidth = Math.min(DIFF_FRAME_WIDTH, width);
+        this.diffHeight = Math.max(1, Math.round((float) height * diffWidth / width));
+        this.frameDiffThreshold = frameDiffThreshold;
+        this.presentationTimeSource = presentationTimeSource;
+        this.comparator = new LumaFrameComparator(BYTES_PER_PIXEL, LUMA_DELTA_THRESHOLD);
+        this.activityIndex = new FrameActivityIndex(frameDiffThreshold, ACTIVITY_MERGE_GAP_MS);
+        this.quadVertices = ByteBuffer.allocateDirect(QUAD_VERTICES.length * 4)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        this.quadVertices.put(QUAD_VERTICES).position(0);
+    }
+
+    /**
+     * Sets up the rendering pipeline on a dedicated thread.
+     *
+     * @return the surface the virtual display should render into
+     * @throws IOException if the GL pipeline cannot be initialized
+     */
+    public Surface start() throws IOException {
+        renderThread = new HandlerThread(TAG);
+        renderThread.start();
+        handler = new Handler(renderThread.getLooper());
+        final CountDownLatch initLatch = new CountDownLatch(1);
+        final RuntimeException[] initError = new RuntimeException[1];
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    initGl();
+                } catch (RuntimeException e) {
+                    initError[0] = e;
+                } finally {
+                    initLatch.countDown();
+                }
+            }
+        });
+        try {
+            initLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release();
+            throw new IOException("Interrupted while initializing frame diff renderer", e);
+        }
+        if (initError[0] != null) {
+            release();
+            throw new IOException("Unable to initialize frame diff renderer: "
+                    + initError[0].getMessage(), initError[0]);
+        }
+        return inputSurface;
+    }
+
+    public FrameActivityIndex getActivityIndex() {
+        return activityIndex;
+    }
+
+    /**
+     * Releases all GL resources and stops the rendering thread.
+     * The virtual display must not render into the input surface anymore.
+     */
+    public void release() {
+        if (renderThread == null) {
+            return;
+        }
+        handler.removeCallbacks(forwardLatestFrame);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                releaseGl();
+            }
+        });
+        renderThread.quitSafely();
+        try {
+            renderThread.join();
+        } catch (InterruptedException e) {
+            Log.w(TAG, "Interrupted while releasing frame diff renderer", e);
+            Thread.currentThread().interrupt();
+        }
+        renderThread = null;
+        Log.v(TAG, String.format("Frame diff stats: %d frames forwarded, %d frames suppressed",
+                forwardedFramesCount, suppressedFramesCount));
+    }
+
+    @Override
+    public void onFrameAvailable(SurfaceTexture surfaceTexture) {
+        if (this.surfaceTexture == null) {
+            return;
+        }
+        surfaceTexture.updateTexImage();
+        surfaceTexture.getTransformMatrix(texMatrix);
+        long timestampMs = presentationTimeSource.getPresentationTimeUs()
+                / MICROSECONDS_IN_MILLISECOND;
+
+        boolean isChanged = isFrameChanged();
+        activityIndex.onFrame(timestampMs, isChanged);
+        if (isChanged) {
+            handler.removeCallbacks(forwardLatestFrame);
+            forwardFrame(surfaceTexture.getTimestamp());
+        } else {
+            suppressedFramesCount++;
+            // The screen might stay still after this frame, so make sure it gets recorded
+            handler.removeCallbacks(forwardLatestFrame);
+            handler.postDelayed(forwardLatestFrame, SETTLED_FRAME_DELAY_MS);
+        }
+    }
+
+    private boolean isFrameChanged() {
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, lumaFramebuffer);
+        GLES20.glViewport(0, 0, diffWidth, diffHeight);
+        drawQuad(lumaProgram);
+        currentLuma.clear();
+        GLES20.glReadPixels(0, 0, diffWidth, diffHeight, GLES20.GL_RGBA,
+                GLES20.GL_UNSIGNED_BYTE, currentLuma);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+
+        boolean isChanged = !hasPreviousLuma
+                || comparator.getChangedPercentage(previousLuma, currentLuma) >= frameDiffThreshold;
+        if (isChanged) {
+            // Only remember the frames passed to the encoder, so slow gradual
+            // changes are eventually detected as well
+            ByteBuffer swap = previousLuma;
+            previousLuma = currentLuma;
+            currentLuma = swap;
+            hasPreviousLuma = true;
+        }
+        return isChanged;
+    }
+
+    private void forwardFrame(long timestampNs) {
+        GLES20.glViewport(0, 0, width, height);
+        drawQuad(copyProgram);
+        EGLExt.eglPresentationTimeANDROID(eglDisplay, eglSurface, timestampNs);
+        if (!EGL14.eglSwapBuffers(eglDisplay, eglSurface)) {
+            Log.w(TAG, "Unable to pass the frame to the encoder, EGL error: "
+                    + EGL14.eglGetError());
+            return;
+        }
+        forwardedFramesCount++;
+    }
+
+    private void drawQuad(int program) {
+        GLES20.glUseProgram(program);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, oesTextureId);
+        GLES20.glUniformMatrix4fv(GLES20.glGetUniformLocation(program, "uTexMatrix"),
+                1, false, texMatrix, 0);
+        int positionHandle = GLES20.glGetAttribLocation(program, "aPosition");
+        int textureCoordHandle = GLES20.glGetAttribLocation(program, "aTextureCoord");
+        quadVertices.position(0);
+        GLES20.glVertexAttribPointer(positionHandle, 2, GLES20.GL_FLOAT, false, 16, quadVertices);
+        GLES20.glEnableVertexAttribArray(positionHandle);
+        quadVertices.position(2);
+        GLES20.glVertexAttribPointer(textureCoordHandle, 2, GLES20.GL_FLOAT, false, 16,
+                quadVertices);
+        GLES20.glEnableVertexAttribArray(textureCoordHandle);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+        GLES20.glDisableVertexAttribArray(positionHandle);
+        GLES20.glDisableVertexAttribArray(textureCoordHandle);
+    }
+
+    private void initGl() {
+        eglDisplay = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+        int[] version = new int[2];
+        if (eglDisplay == EGL14.EGL_NO_DISPLAY
+                || !EGL14.eglInitialize(eglDisplay, version, 0, version, 1)) {
+            throw new IllegalStateException("Unable to initialize EGL display");
+        }
+        int[] configAttributes = {
+                EGL14.EGL_RED_SIZE, 8,
+                EGL14.EGL_GREEN_SIZE, 8,
+                EGL14.EGL_BLUE_SIZE, 8,
+                EGL14.EGL_ALPHA_SIZE, 8,
+                EGL14.EGL_RENDERABLE_TYPE, EGL14.EGL_OPENGL_ES2_BIT,
+                EGLExt.EGL_RECORDABLE_ANDROID, 1,
+                EGL14.EGL_NONE
+        };
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] configsCount = new int[1];
+        if (!EGL14.eglChooseConfig(eglDisplay, configAttributes, 0, configs, 0, configs.length,
+                configsCount, 0) || configsCount[0] == 0) {
+            throw new IllegalStateException("Unable to find a recordable EGL config");
+        }
+        int[] contextAttributes = {EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE};
+        eglContext = EGL14.eglCreateContext(eglDisplay, configs[0], EGL14.EGL_NO_CONTEXT,
+                contextAttributes, 0);
+        if (eglContext == EGL14.EGL_NO_CONTEXT) {
+            throw new IllegalStateException("Unable to create EGL context, error: "
+                    + EGL14.eglGetError());
+        }
+        eglSurface = EGL14.eglCreateWindowSurface(eglDisplay, configs[0], encoderSurface,
+                new int[]{EGL14.EGL_NONE}, 0);
+        if (eglSurface == EGL14.EGL_NO_SURFACE) {
+            throw new IllegalStateException("Unable to create EGL window surface, error: "
+                    + EGL14.eglGetError());
+        }
+        if (!EGL14.eglMakeCurrent(eglDisplay, eglSurface, eglSurface, eglContext)) {
+            throw new IllegalStateException("Unable to make EGL context current, error: "
+                    + EGL14.eglGetError());
+        }
+
+        copyProgram = createProgram(VERTEX_SHADER, COPY_FRAGMENT_SHADER);
+        lumaProgram = createProgram(VERTEX_SHADER, LUMA_FRAGMENT_SHADER);
+
+        int[] textures = new int[2];
+        GLES20.glGenTextures(textures.length, textures, 0);
+        oesTextureId = textures[0];
+        lumaTextureId = textures[1];
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, oesTextureId);
+        setTextureParameters(GLES11Ext.GL_TEXTURE_EXTERNAL_OES);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, lumaTextureId);
+        setTextureParameters(GLES20.GL_TEXTURE_2D);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, diffWidth, diffHeight, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+
+        int[] framebuffers = new int[1];
+        GLES20.glGenFramebuffers(1, framebuffers, 0);
+        lumaFramebuffer = framebuffers[0];
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, lumaFramebuffer);
+        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0,
+                GLES20.GL_TEXTURE_2D, lumaTextureId, 0);
+        int framebufferStatus = GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        if (framebufferStatus != GLES20.GL_FRAMEBUFFER_COMPLETE) {
+            throw new IllegalStateException("Luma framebuffer is incomplete, status: "
+                    + framebufferStatus);
+        }
+
+        int lumaBufferSize = diffWidth * diffHeight * BYTES_PER_PIXEL;
+        previousLuma = ByteBuffer.allocateDirect(lumaBufferSize);
+        currentLuma = ByteBuffer.allocateDirect(lumaBufferSize);
+
+        surfaceTexture = new SurfaceTexture(oesTextureId);
+        surfaceTexture.setDefaultBufferSize(width, height);
+        surfaceTexture.setOnFrameAvailableListener(this, handler);
+        inputSurface = new Surface(surfaceTexture);
+    }
+
+    private void releaseGl() {
+        if (inputSurface != null) {
+            inputSurface.release();
+            inputSurface = null;
+        }
+        if (surfaceTexture != null) {
+            surfaceTexture.release();
+            surfaceTexture = null;
+        }
+        if (eglDisplay == EGL14.EGL_NO_DISPLAY) {
+            return;
+        }
+        if (eglContext != EGL14.EGL_NO_CONTEXT && eglSurface != EGL14.EGL_NO_SURFACE) {
+            GLES20.glDeleteFramebuffers(1, new int[]{lumaFramebuffer}, 0);
+            GLES20.glDeleteTextures(2, new int[]{oesTextureId, lumaTextureId}, 0);
+            GLES20.glDeleteProgram(copyProgram);
+            GLES20.glDeleteProgram(lumaProgram);
+        }
+        EGL14.eglMakeCurrent(eglDisplay, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE,
+                EGL14.EGL_NO_CONTEXT);
+        if (eglSurface != EGL14.EGL_NO_SURFACE) {
+            EGL14.eglDestroySurface(eglDisplay, eglSurface);
+            eglSurface = EGL14.EGL_NO_SURFACE;
+        }
+        if (eglContext != EGL14.EGL_NO_CONTEXT) {
+            EGL14.eglDestroyContext(eglDisplay, eglContext);
+            eglContext = EGL14.EGL_NO_CONTEXT;
+        }
+        EGL14.eglReleaseThread();
+        EGL14.eglTerminate(eglDisplay);
+        eglDisplay = EGL14.EGL_NO_DISPLAY;
+    }
+
+    private static void setTextureParameters(int target) {
+        GLES20.glTexParameteri(target, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(target, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(target, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(target, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+    }
+
+    private static int createProgram(String vertexSource, String fragmentSource) {
+        int vertexShader = compileShader(GLES20.GL_VERTEX_SHADER, vertexSource);
+        int fragmentShader = compileShader(GLES20.GL_FRAGMENT_SHADER, fragmentSource);
+        int program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, vertexShader);
+        GLES20.glAttachShader(program, fragmentShader);
+        GLES20.glLinkProgram(program);
+        // The shaders are kept alive by the program
+        GLES20.glDeleteShader(vertexShader);
+        GLES20.glDeleteShader(fragmentShader);
+        int[] linkStatus = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+        if (linkStatus[0] != GLES20.GL_TRUE) {
+            String log = GLES20.glGetProgramInfoLog(program);
+            GLES20.glDeleteProgram(program);
+            throw new IllegalStateException("Unable to link GL program: " + log);
+        }
+        return program;
+    }
+
+    private static int compileShader(int type, String source) {
+        int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+        int[] compileStatus = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compileStatus, 0);
+        if (compileStatus[0] == 0) {
+            String log = GLES20.glGetShaderInfoLog(shader);
+            GLES20.glDeleteShader(shader);
+            throw new IllegalStateException("Unable to compile GL shader: " + log);
+        }
+        return shader;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.recorder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compares two downsampled luma frames, which are stored as packed pixels
+ * with the luma value in the first byte of each pixel
+ */
+public class LumaFrameComparator {
+    private final int pixelStride;
+    private final int lumaDeltaThreshold;
+
+    /**
+     * @param pixelStride        the count of bytes per pixel in the compared buffers
+     * @param lumaDeltaThreshold the minimum absolute luma difference (0..255) for a pixel
+     *                           to be considered changed. Smaller differences are usually
+     *                           caused by scaling and compression noise
+     */
+    public LumaFrameComparator(int pixelStride, int lumaDeltaThreshold) {
+        this.pixelStride = pixelStride;
+        this.lumaDeltaThreshold = lumaDeltaThreshold;
+    }
+
+    /**
+     * @return the percentage (0..100) of pixels, which differ between both frames.
+     * Buffers of different size are considered completely different
+     */
+    public float getChangedPercentage(ByteBuffer previous, ByteBuffer current) {
+        int size = current.limit();
+        if (previous.limit() != size || size < pixelStride) {
+            return 100f;
+        }
+        int changedPixels = 0;
+        for (int i = 0; i + pixelStride <= size; i += pixelStride) {
+            int delta = (previous.get(i) & 0xFF) - (current.get(i) & 0xFF);
+            if (delta > lumaDeltaThreshold || -delta > lumaDeltaThreshold) {
+                changedPixels++;
+            }
+        }
+        return 100f * changedPixels / (size / pixelStride);
+    }
+}
@@ -0,0 +1,38 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.recorder;
+
+/**
+ * Returns the time elapsed since the first timestamp request, based on {@link System#nanoTime()}.
+ * Thread-safe, since both the audio recording thread and the main recording thread
+ * share the same time source.
+ */
+public class MonotonicPresentationTimeSource implements PresentationTimeSource {
+    private static final long NANOSECONDS_IN_MICROSECOND = 1000;
+
+    private boolean isStartTimestampInitialized = false;
+    private long startTimestampUs = 0;
+
+    @Override
+    public synchronized long getPresentationTimeUs() {
+        long nowUs = System.nanoTime() / NANOSECONDS_IN_MICROSECOND;
+        if (!isStartTimestampInitialized) {
+            startTimestampUs = nowUs;
+            isStartTimestampInitialized = true;
+        }
+        return nowUs - startTimestampUs;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.recorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Moves the moov box of an MP4 file in front of its media data (a.k.a. "faststart"),
+ * so the file can be played progressively while it is being downloaded.
+ * <p>
+ * Only the moov box is loaded into memory; the media data is copied with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+ * </p>
+ */
+public class Mp4FastStart {
+    private static final int BOX_HEADER_SIZE = 8;
+    private static final long MAX_MOOV_SIZE = 64 * 1024 * 1024;
+    private static final long MAX_UINT32 = 0xFFFFFFFFL;
+    private static final List<String> CONTAINER_BOXES = Arrays.asList(
+            "moov", "trak", "mdia", "minf", "stbl");
+
+    /**
+     * Is thrown if the file cannot be rewritten, because its chunk offsets would not fit
+     * into the 32-bit stco boxes after the moov box has been moved. The file stays untouched.
+     */
+    public static class ChunkOffsetOverflowException extends IOException {
+        ChunkOffsetOverflowException(String message) {
+            super(message);
+        }
+    }
+
+    private Mp4FastStart() {}
+
+    /**
+     * Rewrites the given file in place.
+     *
+     * @return true if the file has been rewritten, false if the moov box is already placed
+     * in front of the media data
+     * @throws ChunkOffsetOverflowException if the shifted chunk offsets exceed 4 GiB
+     * @throws IOException                  if the file cannot be parsed or rewritten. The original file
+     *                                      stays untouched in such case
+     */
+    public static boolean process(File mp4File) throws IOException {
+        long moovStart = -1;
+        long moovSize = 0;
+        long firstMdatStart = -1;
+        long fileSize;
+        ByteBuffer moov;
+        RandomAccessFile input = new RandomAccessFile(mp4File, "r");
+        //noinspection TryFinallyCanBeTryWithResources
+        try {
+            FileChannel channel = input.getChannel();
+            fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(16);
+            long position = 0;
+            while (position + BOX_HEADER_SIZE <= fileSize) {
+                header.clear();
+                header.limit(BOX_HEADER_SIZE);
+                readFully(channel, header, position);
+                long size = header.getInt(0) & MAX_UINT32;
+                String type = getFourCC(header, 4);
+                if (size == 1) {
+                    header.limit(16);
+                    readFully(channel, header, position + BOX_HEADER_SIZE);
+                    size = header.getLong(8);
+                } else if (size == 0) {
+                    size = fileSize - position;
+                }
+                if (size < BOX_HEADER_SIZE || position + size > fileSize) {
+                    throw new IOException(String.format(
+                            "The box '%s' at offset %d has invalid size %d", type, position, size));
+                }
+                if ("moov".equals(type)) {
+                    moovStart = position;
+                    moovSize = size;
+                } else if ("mdat".equals(type) && firstMdatStart < 0) {
+                    firstMdatStart = position;
+                }
+                position += size;
+            }
+            if (moovStart < 0 || firstMdatStart < 0) {
+                throw new IOException("The file has no moov or mdat box");
+            }
+            if (moovStart < firstMdatStart) {
+                return false;
+            }
+            if (moovSize > MAX_MOOV_SIZE) {
+                throw new IOException(String.format("The moov box is too large (%d bytes)", moovSize));
+            }
+            moov = ByteBuffer.allocate((int) moovSize);
+            readFully(channel, moov, moovStart);
+        } finally {
+            input.close();
+        }
+
+        // Only the chunks between the insertion point and the old moov position get shifted,
+        // while everything after the moov box stays at the same absolute position
+        shiftChunkOffsets(moov, 0, moov.capacity(), firstMdatStart, moovStart, moovSize);
+
+        File tmpFile = new File(mp4File.getAbsolutePath() + ".faststart");
+        RandomAccessFile source = null;
+        RandomAccessFile output = null;
+        try {
+            source = new RandomAccessFile(mp4File, "r");
+            output = new RandomAccessFile(tmpFile, "rw");
+            FileChannel src = source.getChannel();
+            FileChannel dst = output.getChannel();
+            dst.truncate(0);
+            transferFully(src, 0, firstMdatStart, dst);
+            moov.rewind();
+            while (moov.hasRemaining()) {
+                dst.write(moov);
+            }
+            transferFully(src, firstMdatStart, moovStart - firstMdatStart, dst);
+            long moovEnd = moovStart + moovSize;
+            transferFully(src, moovEnd, fileSize - moovEnd, dst);
+            dst.force(false);
+        } catch (IOException e) {
+            closeQuietly(output);
+            output = null;
+            //noinspection ResultOfMethodCallIgnored
+            tmpFile.delete();
+            throw e;
+        } finally {
+            closeQuietly(source);
+            closeQuietly(output);
+        }
+        if (!tmpFile.renameTo(mp4File)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmpFile.delete();
+            throw new IOException(String.format("Cannot replace '%s' with the optimized file",
+                    mp4File.getAbsolutePath()));
+        }
+        return true;
+    }
+
+    /**
+     * Shifts chunk offsets in range [rangeStart, rangeEnd) by the given amount
+     */
+    private static void shiftChunkOffsets(ByteBuffer buffer, int start, int end,
+                                          long rangeStart, long rangeEnd, long shift)
+            throws IOException {
+        int position = start;
+        // Skip the header of the container box itself
+        if (start == 0) {
+            position = BOX_HEADER_SIZE;
+        }
+        while (position + BOX_HEADER_SIZE <= end) {
+            long size = buffer.getInt(position) & MAX_UINT32;
+            String type = getFourCC(buffer, position + 4);
+            int headerSize = BOX_HEADER_SIZE;
+            if (size == 1) {
+                size = buffer.getLong(position + BOX_HEADER_SIZE);
+                headerSize += 8;
+            } else if (size == 0) {
+                size = end - position;
+            }
+            if (size < headerSize || position + size > end) {
+                throw new IOException(String.format("The box '%s' inside of moov has invalid size %d",
+                        type, size));
+            }
+            int boxEnd = (int) (position + size);
+            if (CONTAINER_BOXES.contains(type)) {
+                shiftChunkOffsets(buffer, position + headerSize, boxEnd, rangeStart, rangeEnd,
+                        shift);
+            } else if ("stco".equals(type) || "co64".equals(type)) {
+                boolean is64 = "co64".equals(type);
+                // Skip the full box version and flags
+                int entriesStart = position + headerSize + 4;
+                long entryCount = buffer.getInt(entriesStart) & MAX_UINT32;
+                int entryPosition = entriesStart + 4;
+                for (long i = 0; i < entryCount; i++) {
+                    if (is64) {
+                        long offset = buffer.getLong(entryPosition);
+                        if (offset >= rangeStart && offset < rangeEnd) {
+                            buffer.putLong(entryPosition, offset + shift);
+                        }
+                        entryPosition += 8;
+                    } else {
+                        long offset = buffer.getInt(entryPosition) & MAX_UINT32;
+                        if (offset >= rangeStart && offset < rangeEnd) {
+                            offset += shift;
+                            if (offset > MAX_UINT32) {
+                                throw new ChunkOffsetOverflowException(String.format(
+                                        "The shifted chunk offset %d does not fit into stco box",
+                                        offset));
+                            }
+                            buffer.putInt(entryPosition, (int) offset);
+                        }
+                        entryPosition += 4;
+                    }
+                }
+            }
+            position = boxEnd;
+        }
+    }
+
+    private static void closeQuietly(RandomAccessFile file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    private static String getFourCC(ByteBuffer buffer, int offset) {
+        char[] chars = new char[4];
+        for (int i = 0; i < 4; i++) {
+            chars[i] = (char) (buffer.get(offset + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file at offset " + position);
+            }
+            position += read;
+        }
+    }
+
+    private static void transferFully(FileChannel src, long position, long count,
+                                      FileChannel dst) throws IOException {
+        while (count > 0) {
+            long transferred = src.transferTo(position, count, dst);
+            if (transferred <= 0) {
+                throw new IOException("Unable to transfer the media data at offset " + position);
+            }
+            position += transferred;
+            count -= transferred;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.recorder;
+
+/**
+ * Decides when the muxer can be started and which encoded samples may be written into it.
+ * <p>
+ * The muxer is only started after both audio and video tracks have been added,
+ * audio samples must have strictly increasing timestamps and codec config buffers
+ * are never written as samples.
+ * </p>
+ */
+public class MuxerScheduler {
+    private static final int NO_TRACK_INDEX_SET = -1;
+    private static final long NO_TIMESTAMP_SET = -1;
+
+    private int videoTrackIndex = NO_TRACK_INDEX_SET;
+    private int audioTrackIndex = NO_TRACK_INDEX_SET;
+    private boolean muxerStarted = false;
+    private long lastAudioTimestampUs = NO_TIMESTAMP_SET;
+
+    public void reset() {
+        videoTrackIndex = NO_TRACK_INDEX_SET;
+        audioTrackIndex = NO_TRACK_INDEX_SET;
+        muxerStarted = false;
+        lastAudioTimestampUs = NO_TIMESTAMP_SET;
+    }
+
+    public boolean hasVideoTrack() {
+        return videoTrackIndex >= 0;
+    }
+
+    public boolean hasAudioTrack() {
+        return audioTrackIndex >= 0;
+    }
+
+    public int getVideoTrackIndex() {
+        return videoTrackIndex;
+    }
+
+    public int getAudioTrackIndex() {
+        return audioTrackIndex;
+    }
+
+    public boolean isMuxerStarted() {
+        return muxerStarted;
+    }
+
+    /**
+     * @return true if the muxer must be started right now
+     */
+    public boolean onVideoTrackAdded(int trackIndex) {
+        videoTrackIndex = trackIndex;
+        return canStartMuxer();
+    }
+
+    /**
+     * @return true if the muxer must be started right now
+     */
+    public boolean onAudioTrackAdded(int trackIndex) {
+        audioTrackIndex = trackIndex;
+        return canStartMuxer();
+    }
+
+    public void onMuxerStarted() {
+        muxerStarted = true;
+    }
+
+    /**
+     * Video data frames must not be processed until the audio config is received
+     */
+    public boolean isWaitingForAudioTrack() {
+        return hasVideoTrack() && !hasAudioTrack();
+    }
+
+    public boolean shouldWriteAudioSample(long presentationTimeUs, int size,
+                                          boolean isCodecConfig) {
+        if (presentationTimeUs > lastAudioTimestampUs && muxerStarted
+                && size != 0 && !isCodecConfig) {
+            lastAudioTimestampUs = presentationTimeUs;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean shouldWriteVideoSample(int size, boolean isCodecConfig) {
+        return size != 0 && !isCodecConfig;
+    }
+
+    private boolean canStartMuxer() {
+        return !muxerStarted && hasAudioTrack() && hasVideoTrack();
+    }
+}
@@ -37,6 +37,9 @@ public class RecorderConstant {
     public static final String ACTION_RECORDING_PRIORITY = "priority";
     public static final String ACTION_RECORDING_MAX_DURATION = "max_duration_sec";
     public static final String ACTION_RECORDING_RESOLUTION = "resolution";
+    public static final String ACTION_RECORDING_OUTPUT_MODE = "output_mode";
+    public static final String ACTION_RECORDING_TIMELAPSE_INTERVAL = "timelapse_interval_ms";
+    public static final String ACTION_RECORDING_FRAME_DIFF_THRESHOLD = "frame_diff_threshold";
     @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
     public static final String RECORDING_DEFAULT_VIDEO_MIME_TYPE = MediaFormat.MIMETYPE_VIDEO_AVC;
     @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
@@ -51,26 +54,38 @@ public class RecorderConstant {
     public static final Size RECORDING_RESOLUTION_QCIF = new Size(176, 144);
     @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
     public static final Size RECORDING_RESOLUTION_DEFAULT = new Size(1920, 1080);
-    public static final float BITRATE_MULTIPLIER = 0.25f;
     public static final int AUDIO_CODEC_SAMPLE_RATE_HZ = 44100;
     public static final int AUDIO_CODEC_CHANNEL_COUNT = 1;
     public static final int AUDIO_CODEC_REPEAT_PREV_FRAME_AFTER_MS = 1000000;
-    public static final int AUDIO_CODEC_I_FRAME_INTERVAL_MS = 5;
     public static final int AUDIO_CODEC_DEFAULT_BITRATE = 64000;
-    public static final int VIDEO_CODEC_DEFAULT_FRAME_RATE = 30;
     public static final long MEDIA_QUEUE_BUFFERING_DEFAULT_TIMEOUT_MS = 10000;
-    public static final long NANOSECONDS_IN_MICROSECOND = 1000;
     public static final String NO_PATH_SET = "";
     public static final long NO_TIMESTAMP_SET = -1;
     // Assume 0 degree == portrait as default
     public static final int RECORDING_ROTATION_DEFAULT_DEGREE = 0;
-    public static final int NO_TRACK_INDEX_SET = -1;
     public static final String NO_RESOLUTION_MODE_SET = "";
+    // Regular MP4 file with the moov box at the end, as written by MediaMuxer
+    public static final String RECORDING_OUTPUT_MODE_DEFAULT = "default";
+    // Regular MP4 file with the moov box moved in front of the media data after recording
+    public static final String RECORDING_OUTPUT_MODE_FASTSTART = "faststart";
+    // Fragmented MP4 file, which stays playable if the recording gets interrupted
+    public static final String RECORDING_OUTPUT_MODE_FRAGMENTED = "fragmented";
     public static final String RECORDING_PRIORITY_MAX = "high";
     public static final String RECORDING_PRIORITY_NORM = "normal";
     public static final String RECORDING_PRIORITY_MIN = "low";
     public static final int RECORDING_PRIORITY_DEFAULT = Thread.MAX_PRIORITY;
     public static final int RECORDING_MAX_DURATION_DEFAULT_MS = 15 * 60 * 1000; // 15 Minutes, in milliseconds
+    // Time-lapse recordings are meant for long soak tests, so they are not capped unless requested
+    public static final int RECORDING_MAX_DURATION_TIMELAPSE_DEFAULT_MS = Integer.MAX_VALUE;
+    // 0 means every frame of the virtual display is recorded (no time-lapse)
+    public static final long NO_TIMELAPSE_INTERVAL_SET = 0;
+    public static final long RECORDING_TIMELAPSE_MIN_INTERVAL_MS = 100;
+    public static final long RECORDING_TIMELAPSE_MAX_INTERVAL_MS = 60 * 60 * 1000; // 1 Hour, in milliseconds
+    // 0 means duplicate frames are not filtered out
+    public static final float NO_FRAME_DIFF_THRESHOLD_SET = 0f;
+    public static final float RECORDING_FRAME_DIFF_MAX_THRESHOLD = 100f;
+    // Sidecar file with the timestamps of screen changes, stored next to the recording
+    public static final String RECORDING_ACTIVITY_INDEX_EXTENSION = ".activity.json";
     /*
     * Note: Reason we limit recording to following resolution list is that
     * android's AVC/H264 video encoder capabilities varies device-to-device (OEM modifications)
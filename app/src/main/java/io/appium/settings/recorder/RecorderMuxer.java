@@ -0,0 +1,40 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.recorder;
+
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Abstraction over the container writer, which receives the encoded audio and video samples
+ */
+public interface RecorderMuxer {
+    int addTrack(MediaFormat format) throws IOException;
+
+    void setOrientationHint(int degrees);
+
+    void start() throws IOException;
+
+    void writeSampleData(int trackIndex, ByteBuffer encodedData,
+                         MediaCodec.BufferInfo bufferInfo) throws IOException;
+
+    void stop() throws IOException;
+
+    void release();
+}
@@ -32,14 +32,20 @@ import androidx.annotation.RequiresApi;
 import io.appium.settings.helpers.NotificationHelpers;
 
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_FILENAME;
+import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_FRAME_DIFF_THRESHOLD;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_MAX_DURATION;
+import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_OUTPUT_MODE;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_PRIORITY;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_RESOLUTION;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_RESULT_CODE;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_ROTATION;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_START;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_STOP;
+import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_TIMELAPSE_INTERVAL;
+import static io.appium.settings.recorder.RecorderConstant.NO_FRAME_DIFF_THRESHOLD_SET;
+import static io.appium.settings.recorder.RecorderConstant.NO_TIMELAPSE_INTERVAL_SET;
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_MAX_DURATION_DEFAULT_MS;
+import static io.appium.settings.recorder.RecorderConstant.RECORDING_OUTPUT_MODE_DEFAULT;
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_PRIORITY_DEFAULT;
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_ROTATION_DEFAULT_DEGREE;
 
@@ -177,9 +183,21 @@ public class RecorderService extends Service {
         int recordingMaxDuration = intent.getIntExtra(ACTION_RECORDING_MAX_DURATION,
                 RECORDING_MAX_DURATION_DEFAULT_MS);
 
+        String recordingOutputMode = intent.getStringExtra(ACTION_RECORDING_OUTPUT_MODE);
+        if (recordingOutputMode == null) {
+            recordingOutputMode = RECORDING_OUTPUT_MODE_DEFAULT;
+        }
+
+        long recordingTimelapseInterval = intent.getLongExtra(ACTION_RECORDING_TIMELAPSE_INTERVAL,
+                NO_TIMELAPSE_INTERVAL_SET);
+
+        float recordingFrameDiffThreshold = intent.getFloatExtra(
+                ACTION_RECORDING_FRAME_DIFF_THRESHOLD, NO_FRAME_DIFF_THRESHOLD_SET);
+
         recorderThread = new RecorderThread(projection, outputFilePath,
                 resolutionWidth, resolutionHeight, rawDpi,
-                recordingRotationDegree, recordingPriority, recordingMaxDuration);
+                recordingRotationDegree, recordingPriority, recordingMaxDuration,
+                recordingOutputMode, recordingTimelapseInterval, recordingFrameDiffThreshold);
         recorderThread.startRecording();
     }
 
@@ -0,0 +1,166 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.appium.settings.recorder;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.appium.settings.helpers.Utils.formatJsonNull;
+import static io.appium.settings.recorder.RecorderConstant.NO_PATH_SET;
+import static io.appium.settings.recorder.RecorderConstant.NO_TIMESTAMP_SET;
+
+/**
+ * Keeps the progress of the most recent recording session, so it can be queried
+ * while the recording is running and after it has been finished.
+ */
+public class RecorderStatus {
+    public static final String STATE_IDLE = "idle";
+    public static final String STATE_STARTING = "starting";
+    public static final String STATE_RECORDING = "recording";
+    public static final String STATE_STOPPING = "stopping";
+    public static final String STATE_STOPPED = "stopped";
+    public static final String STATE_FAILED = "failed";
+
+    private volatile String state = STATE_IDLE;
+    private volatile String outputPath = NO_PATH_SET;
+    private volatile long startTimestampMs = NO_TIMESTAMP_SET;
+    private volatile long stopTimestampMs = NO_TIMESTAMP_SET;
+    private volatile boolean hasAsyncError = false;
+    private volatile String lastError = null;
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong videoFramesWritten = new AtomicLong();
+    private final AtomicLong audioFramesWritten = new AtomicLong();
+    private JSONObject videoCodecParameters = null;
+    private JSONObject audioCodecParameters = null;
+
+    private RecorderStatus() {}
+
+    private static RecorderStatus instance = null;
+
+    public static synchronized RecorderStatus getInstance() {
+        if (instance == null) {
+            instance = new RecorderStatus();
+        }
+        return instance;
+    }
+
+    public synchronized void reset(String outputPath) {
+        this.state = STATE_STARTING;
+        this.outputPath = outputPath;
+        this.startTimestampMs = System.currentTimeMillis();
+        this.stopTimestampMs = NO_TIMESTAMP_SET;
+        this.hasAsyncError = false;
+        this.lastError = null;
+        this.bytesWritten.set(0);
+        this.videoFramesWritten.set(0);
+        this.audioFramesWritten.set(0);
+        this.videoCodecParameters = null;
+        this.audioCodecParameters = null;
+    }
+
+    public synchronized void setState(String state) {
+        this.state = state;
+        if (STATE_STOPPED.equals(state) || STATE_FAILED.equals(state)) {
+            this.stopTimestampMs = System.currentTimeMillis();
+        }
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public synchronized void setAsyncError(String error) {
+        this.hasAsyncError = true;
+        this.lastError = error;
+    }
+
+    public void setLastError(String error) {
+        this.lastError = error;
+    }
+
+    public void onVideoSampleWritten(int size) {
+        bytesWritten.addAndGet(size);
+        videoFramesWritten.incrementAndGet();
+    }
+
+    public void onAudioSampleWritten(int size) {
+        bytesWritten.addAndGet(size);
+        audioFramesWritten.incrementAndGet();
+    }
+
+    public synchronized void setVideoCodecParameters(String mimeType, int width, int height,
+                                                     int frameRate, int bitRate,
+                                                     int iFrameInterval, int rotation) {
+        try {
+            JSONObject params = new JSONObject();
+            params.put("mimeType", formatJsonNull(mimeType));
+            params.put("width", width);
+            params.put("height", height);
+            params.put("frameRate", frameRate);
+            params.put("bitRate", bitRate);
+            params.put("iFrameInterval", iFrameInterval);
+            params.put("rotation", rotation);
+            this.videoCodecParameters = params;
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public synchronized void setAudioCodecParameters(String mimeType, int sampleRate,
+                                                     int channelCount, int bitRate) {
+        try {
+            JSONObject params = new JSONObject();
+            params.put("mimeType", formatJsonNull(mimeType));
+            params.put("sampleRate", sampleRate);
+            params.put("channelCount", channelCount);
+            params.put("bitRate", bitRate);
+            this.audioCodecParameters = params;
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private long getElapsedTimeMs() {
+        if (startTimestampMs == NO_TIMESTAMP_SET) {
+            return 0;
+        }
+        long endTimestampMs = stopTimestampMs == NO_TIMESTAMP_SET
+                ? System.currentTimeMillis()
+                : stopTimestampMs;
+        return Math.max(0, endTimestampMs - startTimestampMs);
+    }
+
+    public synchronized JSONObject toJson() throws JSONException {
+        JSONObject result = new JSONObject();
+        result.put("state", state);
+        result.put("startTime", startTimestampMs);
+        result.put("elapsedTimeMs", getElapsedTimeMs());
+        result.put("outputPath", outputPath);
+        result.put("bytesWritten", bytesWritten.get());
+        result.put("videoFramesWritten", videoFramesWritten.get());
+        result.put("audioFramesWritten", audioFramesWritten.get());
+        result.put("hasAsyncError", hasAsyncError);
+        result.put("lastError", formatJsonNull(lastError));
+        JSONObject codecs = new JSONObject();
+        codecs.put("video", formatJsonNull(videoCodecParameters));
+        codecs.put("audio", formatJsonNull(audioCodecParameters));
+        result.put("codecs", codecs);
+        return result;
+    }
+}
@@ -25,7 +25,6 @@ import android.media.AudioRecord;
 import android.media.MediaCodec;
 import android.media.MediaCodecInfo;
 import android.media.MediaFormat;
-import android.media.MediaMuxer;
 import android.media.projection.MediaProjection;
 import android.os.Build;
 import android.os.Handler;
@@ -33,17 +32,18 @@ import android.os.Looper;
 import android.util.Log;
 import android.view.Surface;
 
+import org.json.JSONException;
+
+import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
 import androidx.annotation.RequiresApi;
 
 import static io.appium.settings.recorder.RecorderConstant.BPS_IN_MBPS;
-import static io.appium.settings.recorder.RecorderConstant.NANOSECONDS_IN_MICROSECOND;
-import static io.appium.settings.recorder.RecorderConstant.NO_TIMESTAMP_SET;
-import static io.appium.settings.recorder.RecorderConstant.NO_TRACK_INDEX_SET;
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_DEFAULT_VIDEO_MIME_TYPE;
-import static io.appium.settings.recorder.RecorderConstant.VIDEO_CODEC_DEFAULT_FRAME_RATE;
+import static io.appium.settings.recorder.RecorderConstant.RECORDING_OUTPUT_MODE_FASTSTART;
+import static io.appium.settings.recorder.RecorderConstant.RECORDING_OUTPUT_MODE_FRAGMENTED;
 
 public class RecorderThread implements Runnable {
 
@@ -57,18 +57,21 @@ public class RecorderThread implements Runnable {
     private final int recordingRotation;
     private final int recordingPriority;
     private final int recordingMaxDuration;
+    private final String recordingOutputMode;
+    private final long recordingTimelapseInterval;
+    private final float recordingFrameDiffThreshold;
 
-    private boolean muxerStarted = false;
-    private boolean isStartTimestampInitialized = false;
-    private long startTimestampUs = System.nanoTime() / NANOSECONDS_IN_MICROSECOND;
-    private long lastAudioTimestampUs = NO_TIMESTAMP_SET;
-
-    private int videoTrackIndex = NO_TRACK_INDEX_SET;
-    private int audioTrackIndex = NO_TRACK_INDEX_SET;
+    private final MuxerScheduler muxerScheduler = new MuxerScheduler();
+    private final PresentationTimeSource presentationTimeSource =
+            new MonotonicPresentationTimeSource();
 
     private volatile boolean stopped = false;
     private volatile boolean audioStopped = false;
     private volatile boolean hasAsyncError = false;
+    // Distinguishes write loop failures from the regular end of stream
+    private boolean hasWriteError = false;
+
+    private final RecorderStatus recorderStatus = RecorderStatus.getInstance();
 
     @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
     private final VirtualDisplay.Callback displayCallback = new VirtualDisplay.Callback() {
@@ -82,14 +85,16 @@ public class RecorderThread implements Runnable {
         public void onStopped() {
             super.onStopped();
             if (!stopped) {
-                hasAsyncError = true;
+                onAsyncError("Virtual display has been stopped unexpectedly");
             }
         }
     };
 
     public RecorderThread(MediaProjection mediaProjection, String outputFilePath,
                           int videoWidth, int videoHeight, int videoDpi,  int recordingRotation,
-                          int recordingPriority, int recordingMaxDuration) {
+                          int recordingPriority, int recordingMaxDuration,
+                          String recordingOutputMode, long recordingTimelapseInterval,
+                          float recordingFrameDiffThreshold) {
         this.mediaProjection = mediaProjection;
         this.outputFilePath = outputFilePath;
         this.videoWidth = videoWidth;
@@ -98,15 +103,22 @@ public class RecorderThread implements Runnable {
         this.recordingRotation = recordingRotation;
         this.recordingPriority = recordingPriority;
         this.recordingMaxDuration = recordingMaxDuration;
+        this.recordingOutputMode = recordingOutputMode;
+        this.recordingTimelapseInterval = recordingTimelapseInterval;
+        this.recordingFrameDiffThreshold = recordingFrameDiffThreshold;
     }
 
     public void startRecording() {
         stopped = false;
+        recorderStatus.reset(outputFilePath);
         Thread recordingThread = new Thread(this);
         recordingThread.start();
     }
 
     public void stopRecording() {
+        if (!stopped) {
+            recorderStatus.setState(RecorderStatus.STATE_STOPPING);
+        }
         stopped = true;
     }
 
@@ -114,20 +126,35 @@ public class RecorderThread implements Runnable {
         return !stopped;
     }
 
+    private boolean isTimelapse() {
+        return recordingTimelapseInterval > RecorderConstant.NO_TIMELAPSE_INTERVAL_SET;
+    }
+
+    private boolean isFrameDiffEnabled() {
+        return recordingFrameDiffThreshold > RecorderConstant.NO_FRAME_DIFF_THRESHOLD_SET;
+    }
+
     @RequiresApi(api = Build.VERSION_CODES.KITKAT)
-    private MediaFormat initVideoEncoderFormat(String videoMime, int videoWidth,
-                                               int videoHeight, int videoBitrate,
-                                               int videoFrameRate) {
-        MediaFormat encoderFormat = MediaFormat.createVideoFormat(videoMime, videoWidth,
-                videoHeight);
+    private MediaFormat initVideoEncoderFormat(String videoMime, VideoEncoderConfig config) {
+        MediaFormat encoderFormat = MediaFormat.createVideoFormat(videoMime, config.getWidth(),
+                config.getHeight());
         encoderFormat.setInteger(MediaFormat.KEY_COLOR_FORMAT,
                 MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
-        encoderFormat.setInteger(MediaFormat.KEY_BIT_RATE, videoBitrate);
-        encoderFormat.setInteger(MediaFormat.KEY_FRAME_RATE, videoFrameRate);
-        encoderFormat.setInteger(MediaFormat.KEY_REPEAT_PREVIOUS_FRAME_AFTER,
-                RecorderConstant.AUDIO_CODEC_REPEAT_PREV_FRAME_AFTER_MS);
+        encoderFormat.setInteger(MediaFormat.KEY_BIT_RATE, config.getBitRate());
+        encoderFormat.setInteger(MediaFormat.KEY_FRAME_RATE, config.getFrameRate());
         encoderFormat.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL,
-                RecorderConstant.AUDIO_CODEC_I_FRAME_INTERVAL_MS);
+                config.getIFrameIntervalSec());
+        if (config.isTimelapse() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            // The virtual display keeps rendering at its own rate, so the encoder
+            // drops the excessive frames before they ever get encoded
+            encoderFormat.setFloat(MediaFormat.KEY_MAX_FPS_TO_ENCODER, config.getCaptureRate());
+            // A still screen must still produce exactly one frame per capture interval
+            encoderFormat.setLong(MediaFormat.KEY_REPEAT_PREVIOUS_FRAME_AFTER,
+                    config.getCaptureIntervalMs() * 1000);
+        } else {
+            encoderFormat.setInteger(MediaFormat.KEY_REPEAT_PREVIOUS_FRAME_AFTER,
+                    RecorderConstant.AUDIO_CODEC_REPEAT_PREV_FRAME_AFTER_MS);
+        }
         return encoderFormat;
     }
 
@@ -188,7 +215,7 @@ public class RecorderThread implements Runnable {
                 try {
                     audioRecord.startRecording();
                 } catch (Exception e) {
-                    hasAsyncError = true;
+                    onAsyncError("Unable to start audio recording: " + e.getMessage());
                     e.printStackTrace();
                     return;
                 }
@@ -202,7 +229,7 @@ public class RecorderThread implements Runnable {
                         ByteBuffer inputBuffer = audioEncoder.getInputBuffer(index);
                         if (inputBuffer == null) {
                             if (!stopped) {
-                                hasAsyncError = true;
+                                onAsyncError("Unable to retrieve input buffer of audio encoder");
                             }
                             return;
                         }
@@ -210,17 +237,18 @@ public class RecorderThread implements Runnable {
                         int read = audioRecord.read(inputBuffer, inputBuffer.capacity());
                         if (read <= 0) {
                             if (!stopped) {
-                                hasAsyncError = true;
+                                onAsyncError("Unable to read audio data, AudioRecord.read returned "
+                                        + read);
                             }
                             break;
                         }
                         audioEncoder.queueInputBuffer(index, 0, read,
-                                getPresentationTimeUs(), 0);
+                                presentationTimeSource.getPresentationTimeUs(), 0);
                     }
                 } catch (Exception e) {
                     if (!stopped) {
                         Log.e(TAG, "Recording stopped, Audio Thread error", e);
-                        hasAsyncError = true;
+                        onAsyncError("Audio Thread error: " + e.getMessage());
                         e.printStackTrace();
                     }
                 } finally {
@@ -231,41 +259,74 @@ public class RecorderThread implements Runnable {
         });
     }
 
-    private long getPresentationTimeUs() {
-        if (!isStartTimestampInitialized) {
-            startTimestampUs =
-                    System.nanoTime() / RecorderConstant.NANOSECONDS_IN_MICROSECOND;
-            isStartTimestampInitialized = true;
+    private void onAsyncError(String reason) {
+        hasAsyncError = true;
+        recorderStatus.setAsyncError(reason);
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+    private RecorderMuxer initMuxer(String outputFilePath) throws IOException {
+        if (RECORDING_OUTPUT_MODE_FRAGMENTED.equals(recordingOutputMode)) {
+            return new FragmentedRecorderMuxer(outputFilePath);
+        }
+        return new DefaultRecorderMuxer(outputFilePath);
+    }
+
+    private void moveMoovToFront(String outputFilePath) {
+        long startTime = System.currentTimeMillis();
+        try {
+            if (Mp4FastStart.process(new File(outputFilePath))) {
+                Log.v(TAG, String.format("Moved moov box to the front of the file in %d ms",
+                        System.currentTimeMillis() - startTime));
+            }
+        } catch (Mp4FastStart.ChunkOffsetOverflowException e) {
+            // The file is still valid, only its index stays at the end
+            Log.w(TAG, String.format("Faststart has been skipped: %s", e.getMessage()));
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to move moov box to the front of the file", e);
+            recorderStatus.setLastError("Faststart finalization failed: " + e.getMessage());
         }
-        return (System.nanoTime() / RecorderConstant.NANOSECONDS_IN_MICROSECOND
-                        - startTimestampUs);
     }
 
-    private int calculateBitRate(int width, int height, int frameRate) {
-        return (int) (RecorderConstant.BITRATE_MULTIPLIER *
-                frameRate * width * height);
+    private void writeActivityIndex(FrameActivityIndex activityIndex, String outputFilePath) {
+        // The output file name is validated to end with .mp4
+        File indexFile = new File(outputFilePath.substring(0, outputFilePath.length() - 4)
+                + RecorderConstant.RECORDING_ACTIVITY_INDEX_EXTENSION);
+        try {
+            activityIndex.writeTo(indexFile);
+            Log.v(TAG, "Activity index has been written to " + indexFile.getAbsolutePath());
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Unable to write activity index", e);
+            recorderStatus.setLastError("Activity index writing failed: " + e.getMessage());
+        }
     }
 
-    private void startMuxerIfSetUp(MediaMuxer muxer) {
-        if (audioTrackIndex >= 0 && videoTrackIndex >= 0) {
+    private void startMuxerIfSetUp(RecorderMuxer muxer, boolean isReady) throws IOException {
+        if (isReady) {
             muxer.start();
-            muxerStarted = true;
+            muxerScheduler.onMuxerStarted();
         }
     }
 
+    private void onWriteError(String error) {
+        hasWriteError = true;
+        recorderStatus.setLastError(error);
+    }
+
     @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
-    private boolean writeAudioBufferToFile(MediaCodec audioEncoder, MediaMuxer muxer,
-                                           MediaCodec.BufferInfo bufferInfo) {
+    private boolean writeAudioBufferToFile(MediaCodec audioEncoder, RecorderMuxer muxer,
+                                           MediaCodec.BufferInfo bufferInfo) throws IOException {
         int encoderStatus;
 
         encoderStatus = audioEncoder.dequeueOutputBuffer(bufferInfo, 0);
         if (encoderStatus == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
-            if (audioTrackIndex > 0) {
-                Log.e(TAG, "Recording stopped, audioTrackIndex greater than zero");
+            if (muxerScheduler.hasAudioTrack()) {
+                Log.e(TAG, "Recording stopped, audio track has been already added");
+                onWriteError("Audio output format changed after the muxer start");
                 return false;
             }
-            audioTrackIndex = muxer.addTrack(audioEncoder.getOutputFormat());
-            startMuxerIfSetUp(muxer);
+            int audioTrackIndex = muxer.addTrack(audioEncoder.getOutputFormat());
+            startMuxerIfSetUp(muxer, muxerScheduler.onAudioTrackAdded(audioTrackIndex));
         } else if (encoderStatus < 0 && encoderStatus != MediaCodec.INFO_TRY_AGAIN_LATER) {
             Log.w(TAG, "Unexpected result from audio encoder.dequeueOutputBuffer: "
                     + encoderStatus + ", however continuing recording");
@@ -274,14 +335,16 @@ public class RecorderThread implements Runnable {
             if (encodedData == null) {
                 Log.e(TAG, "Recording stopped, " +
                         "Unable to retrieve output buffer of audio encoder");
+                onWriteError("Unable to retrieve output buffer of audio encoder");
                 return false;
             }
 
-            if (bufferInfo.presentationTimeUs > this.lastAudioTimestampUs
-                    && muxerStarted && bufferInfo.size != 0 &&
-                    (bufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0) {
-                this.lastAudioTimestampUs = bufferInfo.presentationTimeUs;
-                muxer.writeSampleData(audioTrackIndex, encodedData, bufferInfo);
+            if (muxerScheduler.shouldWriteAudioSample(bufferInfo.presentationTimeUs,
+                    bufferInfo.size,
+                    (bufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0)) {
+                muxer.writeSampleData(muxerScheduler.getAudioTrackIndex(), encodedData,
+                        bufferInfo);
+                recorderStatus.onAudioSampleWritten(bufferInfo.size);
             }
 
             audioEncoder.releaseOutputBuffer(encoderStatus, false);
@@ -295,19 +358,20 @@ public class RecorderThread implements Runnable {
     }
 
     @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
-    private boolean writeVideoBufferToFile(MediaCodec videoEncoder, MediaMuxer muxer,
-                                           MediaCodec.BufferInfo bufferInfo) {
+    private boolean writeVideoBufferToFile(MediaCodec videoEncoder, RecorderMuxer muxer,
+                                           MediaCodec.BufferInfo bufferInfo) throws IOException {
         int encoderStatus;
 
         encoderStatus = videoEncoder.dequeueOutputBuffer(bufferInfo,
                 RecorderConstant.MEDIA_QUEUE_BUFFERING_DEFAULT_TIMEOUT_MS);
         if (encoderStatus == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
-            if (videoTrackIndex > 0) {
-                Log.e(TAG, "Recording stopped, videoTrackIndex greater than zero");
+            if (muxerScheduler.hasVideoTrack()) {
+                Log.e(TAG, "Recording stopped, video track has been already added");
+                onWriteError("Video output format changed after the muxer start");
                 return false;
             }
-            videoTrackIndex = muxer.addTrack(videoEncoder.getOutputFormat());
-            startMuxerIfSetUp(muxer);
+            int videoTrackIndex = muxer.addTrack(videoEncoder.getOutputFormat());
+            startMuxerIfSetUp(muxer, muxerScheduler.onVideoTrackAdded(videoTrackIndex));
         } else if (encoderStatus < 0 && encoderStatus != MediaCodec.INFO_TRY_AGAIN_LATER) {
             Log.w(TAG, "Unexpected result from encoder.dequeueOutputBuffer: "
                     + encoderStatus + ", however continuing recording");
@@ -316,13 +380,16 @@ public class RecorderThread implements Runnable {
             if (encodedData == null) {
                 Log.w(TAG, "Recording stopped, " +
                         "Unable to retrieve output buffer of videoEncoder");
+                onWriteError("Unable to retrieve output buffer of video encoder");
                 return false;
             }
 
-            if (bufferInfo.size != 0 &&
-                    (bufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0) {
-                bufferInfo.presentationTimeUs = getPresentationTimeUs();
-                muxer.writeSampleData(videoTrackIndex, encodedData, bufferInfo);
+            if (muxerScheduler.shouldWriteVideoSample(bufferInfo.size,
+                    (bufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0)) {
+                bufferInfo.presentationTimeUs = presentationTimeSource.getPresentationTimeUs();
+                muxer.writeSampleData(muxerScheduler.getVideoTrackIndex(), encodedData,
+                        bufferInfo);
+                recorderStatus.onVideoSampleWritten(bufferInfo.size);
             }
 
             videoEncoder.releaseOutputBuffer(encoderStatus, false);
@@ -342,8 +409,11 @@ public class RecorderThread implements Runnable {
         MediaCodec videoEncoder = null;
         MediaCodec audioEncoder = null;
         Surface surface = null;
+        FrameDiffRenderer frameDiffRenderer = null;
         Thread audioRecordThread = null;
-        MediaMuxer muxer = null;
+        RecorderMuxer muxer = null;
+        boolean isFailed = false;
+        boolean isMuxerStopped = false;
         try {
             videoEncoder = MediaCodec.createEncoderByType(RECORDING_DEFAULT_VIDEO_MIME_TYPE);
 
@@ -351,37 +421,64 @@ public class RecorderThread implements Runnable {
                     .getCodecInfo().getCapabilitiesForType(RECORDING_DEFAULT_VIDEO_MIME_TYPE)
                     .getVideoCapabilities();
 
-            int videoFrameRate = Math.min(VIDEO_CODEC_DEFAULT_FRAME_RATE,
+            VideoEncoderConfig videoEncoderConfig = isTimelapse()
+                    ? VideoEncoderConfig.createTimelapse(this.videoWidth, this.videoHeight,
+                    this.recordingTimelapseInterval)
+                    : VideoEncoderConfig.create(this.videoWidth, this.videoHeight,
                     videoEncoderCapabilities.getSupportedFrameRates().getUpper());
-
-            int videoBitrate = videoEncoderCapabilities.getBitrateRange()
-                    .clamp(calculateBitRate(this.videoWidth, this.videoHeight, videoFrameRate));
+            videoEncoderConfig = videoEncoderConfig.withBitRate(videoEncoderCapabilities
+                    .getBitrateRange().clamp(videoEncoderConfig.getBitRate()));
 
             Log.i(TAG, String.format("Recording starting with frame rate = %d FPS " +
                             "and bitrate = %5.2f Mbps",
-                    videoFrameRate, videoBitrate / BPS_IN_MBPS));
+                    videoEncoderConfig.getFrameRate(),
+                    videoEncoderConfig.getBitRate() / BPS_IN_MBPS));
+            if (videoEncoderConfig.isTimelapse()) {
+                Log.i(TAG, String.format("Time-lapse mode: capturing one frame every %d ms " +
+                                "with key frame interval = %d s",
+                        videoEncoderConfig.getCaptureIntervalMs(),
+                        videoEncoderConfig.getIFrameIntervalSec()));
+                // The muxer requires an audio track, so audio keeps its regular bitrate
+                Log.i(TAG, String.format("The audio track is still recorded at %d bps",
+                        RecorderConstant.AUDIO_CODEC_DEFAULT_BITRATE));
+            }
 
             MediaFormat videoEncoderFormat =
-                    initVideoEncoderFormat(RECORDING_DEFAULT_VIDEO_MIME_TYPE,
-                            this.videoWidth, this.videoHeight, videoBitrate, videoFrameRate);
+                    initVideoEncoderFormat(RECORDING_DEFAULT_VIDEO_MIME_TYPE, videoEncoderConfig);
 
             videoEncoder.configure(videoEncoderFormat, null, null,
                     MediaCodec.CONFIGURE_FLAG_ENCODE);
+            recorderStatus.setVideoCodecParameters(RECORDING_DEFAULT_VIDEO_MIME_TYPE,
+                    this.videoWidth, this.videoHeight, videoEncoderConfig.getFrameRate(),
+                    videoEncoderConfig.getBitRate(), videoEncoderConfig.getIFrameIntervalSec(),
+                    this.recordingRotation);
             surface = videoEncoder.createInputSurface();
             videoEncoder.start();
 
+            Surface displaySurface = surface;
+            if (isFrameDiffEnabled()) {
+                frameDiffRenderer = new FrameDiffRenderer(surface, this.videoWidth,
+                        this.videoHeight, this.recordingFrameDiffThreshold,
+                        presentationTimeSource);
+                displaySurface = frameDiffRenderer.start();
+                Log.i(TAG, String.format("Frames changed by less than %.2f%% are suppressed",
+                        this.recordingFrameDiffThreshold));
+            }
+
             Handler handler = new Handler(Looper.getMainLooper());
-            virtualDisplay = initVirtualDisplay(this.mediaProjection, surface, handler,
+            virtualDisplay = initVirtualDisplay(this.mediaProjection, displaySurface, handler,
                     this.videoWidth, this.videoHeight, this.videoDpi);
 
             int sampleRate = RecorderConstant.AUDIO_CODEC_SAMPLE_RATE_HZ;
             audioEncoder = initAudioCodec(sampleRate);
             audioEncoder.start();
+            recorderStatus.setAudioCodecParameters(MediaFormat.MIMETYPE_AUDIO_AAC, sampleRate,
+                    RecorderConstant.AUDIO_CODEC_CHANNEL_COUNT,
+                    RecorderConstant.AUDIO_CODEC_DEFAULT_BITRATE);
 
             AudioRecord audioRecord = initAudioRecord(this.mediaProjection, sampleRate);
 
-            muxer = new MediaMuxer(this.outputFilePath,
-                    MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            muxer = initMuxer(this.outputFilePath);
 
             // set output file orientation info
             // note: this method must be run before muxer.start()
@@ -392,20 +489,23 @@ public class RecorderThread implements Runnable {
             audioRecordThread.start();
 
             MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
-            lastAudioTimestampUs = NO_TIMESTAMP_SET;
+            muxerScheduler.reset();
 
             long recordingStartTime = System.currentTimeMillis();
+            recorderStatus.setState(RecorderStatus.STATE_RECORDING);
 
             while (!stopped && !hasAsyncError) {
                 if (!writeAudioBufferToFile(audioEncoder, muxer, bufferInfo)) {
+                    isFailed = hasWriteError;
                     break;
                 }
 
-                if (videoTrackIndex >= 0 && audioTrackIndex < 0) {
+                if (muxerScheduler.isWaitingForAudioTrack()) {
                     continue; // wait for audio config before processing any video data frames
                 }
 
                 if (!writeVideoBufferToFile(videoEncoder, muxer, bufferInfo)) {
+                    isFailed = hasWriteError;
                     break;
                 }
 
@@ -416,9 +516,18 @@ public class RecorderThread implements Runnable {
             }
         } catch (Exception mainException) {
             Log.e(TAG, "run: Exception occurred during recording", mainException);
+            recorderStatus.setLastError(mainException.toString());
+            isFailed = true;
         } finally {
             if (muxer != null) {
-                muxer.stop();
+                try {
+                    muxer.stop();
+                    isMuxerStopped = true;
+                } catch (IOException e) {
+                    Log.e(TAG, "Error releasing resources, muxer: ", e);
+                    recorderStatus.setLastError(e.toString());
+                    isFailed = true;
+                }
                 muxer.release();
                 muxer = null;
             }
@@ -428,6 +537,10 @@ public class RecorderThread implements Runnable {
                 virtualDisplay = null;
             }
 
+            if (frameDiffRenderer != null) {
+                frameDiffRenderer.release();
+            }
+
             if (surface != null) {
                 surface.release();
                 surface = null;
@@ -454,6 +567,20 @@ public class RecorderThread implements Runnable {
                 audioEncoder.release();
                 audioEncoder = null;
             }
+
+            if (isMuxerStopped && RECORDING_OUTPUT_MODE_FASTSTART.equals(recordingOutputMode)) {
+                moveMoovToFront(this.outputFilePath);
+            }
+
+            if (frameDiffRenderer != null) {
+                writeActivityIndex(frameDiffRenderer.getActivityIndex(), this.outputFilePath);
+                frameDiffRenderer = null;
+            }
+
+            stopped = true;
+            recorderStatus.setState(isFailed || hasAsyncError
+                    ? RecorderStatus.STATE_FAILED
+                    : RecorderStatus.STATE_STOPPED);
         }
     }
 }
\ No newline at end of file
@@ -37,12 +37,22 @@ import androidx.annotation.RequiresApi;
 import androidx.core.app.ActivityCompat;
 
 import static android.content.Context.WINDOW_SERVICE;
+import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_FRAME_DIFF_THRESHOLD;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_MAX_DURATION;
+import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_OUTPUT_MODE;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_PRIORITY;
 import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_RESOLUTION;
+import static io.appium.settings.recorder.RecorderConstant.ACTION_RECORDING_TIMELAPSE_INTERVAL;
+import static io.appium.settings.recorder.RecorderConstant.NO_FRAME_DIFF_THRESHOLD_SET;
 import static io.appium.settings.recorder.RecorderConstant.NO_RESOLUTION_MODE_SET;
+import static io.appium.settings.recorder.RecorderConstant.NO_TIMELAPSE_INTERVAL_SET;
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_DEFAULT_VIDEO_MIME_TYPE;
+import static io.appium.settings.recorder.RecorderConstant.RECORDING_FRAME_DIFF_MAX_THRESHOLD;
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_MAX_DURATION_DEFAULT_MS;
+import static io.appium.settings.recorder.RecorderConstant.RECORDING_MAX_DURATION_TIMELAPSE_DEFAULT_MS;
+import static io.appium.settings.recorder.RecorderConstant.RECORDING_OUTPUT_MODE_DEFAULT;
+import static io.appium.settings.recorder.RecorderConstant.RECORDING_OUTPUT_MODE_FASTSTART;
+import static io.appium.settings.recorder.RecorderConstant.RECORDING_OUTPUT_MODE_FRAGMENTED;
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_PRIORITY_DEFAULT;
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_PRIORITY_MAX;
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_PRIORITY_MIN;
@@ -55,6 +65,8 @@ import static io.appium.settings.recorder.RecorderConstant.RECORDING_RESOLUTION_
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_RESOLUTION_QCIF;
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_RESOLUTION_QVGA;
 import static io.appium.settings.recorder.RecorderConstant.RECORDING_ROTATION_DEFAULT_DEGREE;
+import static io.appium.settings.recorder.RecorderConstant.RECORDING_TIMELAPSE_MAX_INTERVAL_MS;
+import static io.appium.settings.recorder.RecorderConstant.RECORDING_TIMELAPSE_MIN_INTERVAL_MS;
 
 public class RecorderUtil {
     private static final String TAG = "RecorderUtil";
@@ -183,14 +195,21 @@ public class RecorderUtil {
         return RECORDING_PRIORITY_DEFAULT;
     }
 
-    public static int getRecordingMaxDuration(Intent intent) {
+    /**
+     * @param timelapseInterval the value returned by getRecordingTimelapseInterval,
+     *                          as time-lapse recordings have no default duration limit
+     */
+    public static int getRecordingMaxDuration(Intent intent, long timelapseInterval) {
+        int defaultMaxDuration = timelapseInterval == NO_TIMELAPSE_INTERVAL_SET
+                ? RECORDING_MAX_DURATION_DEFAULT_MS
+                : RECORDING_MAX_DURATION_TIMELAPSE_DEFAULT_MS;
         if (intent.hasExtra(ACTION_RECORDING_MAX_DURATION)) {
             try {
                 int userRequestedMaxDurationInSecond =
                         Integer.parseInt(intent.getStringExtra(ACTION_RECORDING_MAX_DURATION));
                 if (userRequestedMaxDurationInSecond <= 0) {
                     Log.e(TAG, "Maximum recording duration must be greater than 0 second");
-                    return RECORDING_MAX_DURATION_DEFAULT_MS;
+                    return defaultMaxDuration;
                 }
                 // Convert it to millisecond and return
                 return userRequestedMaxDurationInSecond * 1000;
@@ -200,7 +219,52 @@ public class RecorderUtil {
         } else {
             Log.e(TAG, "Unable to retrieve recording max duration");
         }
-        return RECORDING_MAX_DURATION_DEFAULT_MS;
+        return defaultMaxDuration;
+    }
+
+    public static long getRecordingTimelapseInterval(Intent intent) {
+        if (!intent.hasExtra(ACTION_RECORDING_TIMELAPSE_INTERVAL)) {
+            return NO_TIMELAPSE_INTERVAL_SET;
+        }
+        try {
+            long userRequestedInterval =
+                    Long.parseLong(intent.getStringExtra(ACTION_RECORDING_TIMELAPSE_INTERVAL));
+            if (userRequestedInterval < RECORDING_TIMELAPSE_MIN_INTERVAL_MS
+                    || userRequestedInterval > RECORDING_TIMELAPSE_MAX_INTERVAL_MS) {
+                Log.e(TAG, String.format("Time-lapse interval must be in range %d..%d ms, " +
+                                "recording all frames",
+                        RECORDING_TIMELAPSE_MIN_INTERVAL_MS, RECORDING_TIMELAPSE_MAX_INTERVAL_MS));
+                return NO_TIMELAPSE_INTERVAL_SET;
+            }
+            return userRequestedInterval;
+        } catch (NumberFormatException e) {
+            Log.e(TAG, "Exception while retrieving time-lapse interval, recording all frames", e);
+        }
+        return NO_TIMELAPSE_INTERVAL_SET;
+    }
+
+    public static float getRecordingFrameDiffThreshold(Intent intent) {
+        if (!intent.hasExtra(ACTION_RECORDING_FRAME_DIFF_THRESHOLD)) {
+            return NO_FRAME_DIFF_THRESHOLD_SET;
+        }
+        String userRequestedValue = intent.getStringExtra(ACTION_RECORDING_FRAME_DIFF_THRESHOLD);
+        if (userRequestedValue == null) {
+            Log.e(TAG, "Unable to retrieve frame diff threshold from intent extras");
+            return NO_FRAME_DIFF_THRESHOLD_SET;
+        }
+        try {
+            float userRequestedThreshold = Float.parseFloat(userRequestedValue);
+            if (!(userRequestedThreshold > NO_FRAME_DIFF_THRESHOLD_SET
+                    && userRequestedThreshold <= RECORDING_FRAME_DIFF_MAX_THRESHOLD)) {
+                Log.e(TAG, "Frame diff threshold must be a percentage in range (0, 100], " +
+                        "recording all frames");
+                return NO_FRAME_DIFF_THRESHOLD_SET;
+            }
+            return userRequestedThreshold;
+        } catch (NumberFormatException e) {
+            Log.e(TAG, "Exception while retrieving frame diff threshold, recording all frames", e);
+        }
+        return NO_FRAME_DIFF_THRESHOLD_SET;
     }
 
     public static String getRecordingResolutionMode(Intent intent) {
@@ -220,6 +284,31 @@ public class RecorderUtil {
         return NO_RESOLUTION_MODE_SET;
     }
 
+    public static String getRecordingOutputMode(Intent intent) {
+        if (intent.hasExtra(ACTION_RECORDING_OUTPUT_MODE)) {
+            String userRequestedOutputMode = intent.getStringExtra(ACTION_RECORDING_OUTPUT_MODE);
+            if (userRequestedOutputMode == null) {
+                Log.e(TAG, "Unable to retrieve output mode from intent extras");
+                return RECORDING_OUTPUT_MODE_DEFAULT;
+            }
+
+            switch (userRequestedOutputMode.toLowerCase()) {
+                case RECORDING_OUTPUT_MODE_DEFAULT:
+                    return RECORDING_OUTPUT_MODE_DEFAULT;
+                case RECORDING_OUTPUT_MODE_FASTSTART:
+                    return RECORDING_OUTPUT_MODE_FASTSTART;
+                case RECORDING_OUTPUT_MODE_FRAGMENTED:
+                    return RECORDING_OUTPUT_MODE_FRAGMENTED;
+                default:
+                    Log.e(TAG, "Invalid output mode passed by user: " + userRequestedOutputMode);
+                    break;
+            }
+        } else {
+            Log.v(TAG, "Unable to retrieve output mode from intent, using default output mode");
+        }
+        return RECORDING_OUTPUT_MODE_DEFAULT;
+    }
+
     @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
     public static Size getRecordingResolution(String userRequestedResolutionMode) {
         if (userRequestedResolutionMode == null) {
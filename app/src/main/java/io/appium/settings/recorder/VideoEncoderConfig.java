@@ -0,0 +1,119 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.recorder;
+
+/**
+ * Video encoder parameters derived from the requested recording resolution
+ */
+public class VideoEncoderConfig {
+    public static final float BITRATE_MULTIPLIER = 0.25f;
+    public static final int DEFAULT_FRAME_RATE = 30;
+    public static final int DEFAULT_I_FRAME_INTERVAL_SEC = 5;
+    // Time-lapse recordings get a key frame once per this count of captured frames
+    public static final int TIMELAPSE_I_FRAME_INTERVAL_FRAMES = 30;
+    public static final long NO_CAPTURE_INTERVAL = 0;
+    private static final float MILLISECONDS_IN_SECOND = 1000f;
+
+    private final int width;
+    private final int height;
+    private final int frameRate;
+    private final int bitRate;
+    private final int iFrameIntervalSec;
+    private final long captureIntervalMs;
+
+    public VideoEncoderConfig(int width, int height, int frameRate, int bitRate,
+                              int iFrameIntervalSec, long captureIntervalMs) {
+        this.width = width;
+        this.height = height;
+        this.frameRate = frameRate;
+        this.bitRate = bitRate;
+        this.iFrameIntervalSec = iFrameIntervalSec;
+        this.captureIntervalMs = captureIntervalMs;
+    }
+
+    /**
+     * @param maxSupportedFrameRate the upper frame rate limit of the encoder
+     */
+    public static VideoEncoderConfig create(int width, int height, int maxSupportedFrameRate) {
+        int frameRate = Math.min(DEFAULT_FRAME_RATE, maxSupportedFrameRate);
+        return new VideoEncoderConfig(width, height, frameRate,
+                calculateBitRate(width, height, frameRate), DEFAULT_I_FRAME_INTERVAL_SEC,
+                NO_CAPTURE_INTERVAL);
+    }
+
+    /**
+     * Creates the configuration for a time-lapse recording, where only a single frame
+     * is captured per the given interval. The bit rate and the key frame interval
+     * are scaled to the resulting (low) capture rate.
+     *
+     * @param captureIntervalMs the interval between captured frames in milliseconds
+     */
+    public static VideoEncoderConfig createTimelapse(int width, int height,
+                                                     long captureIntervalMs) {
+        float captureRate = MILLISECONDS_IN_SECOND / captureIntervalMs;
+        // Encoders expect the nominal frame rate to be a positive integer
+        int frameRate = Math.max(1, Math.round(captureRate));
+        int iFrameIntervalSec = (int) Math.max(DEFAULT_I_FRAME_INTERVAL_SEC,
+                Math.ceil(TIMELAPSE_I_FRAME_INTERVAL_FRAMES / captureRate));
+        return new VideoEncoderConfig(width, height, frameRate,
+                calculateBitRate(width, height, captureRate), iFrameIntervalSec,
+                captureIntervalMs);
+    }
+
+    public static int calculateBitRate(int width, int height, float frameRate) {
+        return (int) (BITRATE_MULTIPLIER * frameRate * width * height);
+    }
+
+    public VideoEncoderConfig withBitRate(int bitRate) {
+        return new VideoEncoderConfig(width, height, frameRate, bitRate, iFrameIntervalSec,
+                captureIntervalMs);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getFrameRate() {
+        return frameRate;
+    }
+
+    public int getBitRate() {
+        return bitRate;
+    }
+
+    public int getIFrameIntervalSec() {
+        return iFrameIntervalSec;
+    }
+
+    public boolean isTimelapse() {
+        return captureIntervalMs > NO_CAPTURE_INTERVAL;
+    }
+
+    public long getCaptureIntervalMs() {
+        return captureIntervalMs;
+    }
+
+    /**
+     * @return the count of frames per second, which are actually passed to the encoder
+     */
+    public float getCaptureRate() {
+        return isTimelapse() ? MILLISECONDS_IN_SECOND / captureIntervalMs : frameRate;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.benchmark;
+
+import java.nio.ByteBuffer;
+
+import io.appium.settings.recorder.EncodedSampleWriter;
+
+/**
+ * Muxer stand-in, which only accounts the received samples
+ */
+class CountingSampleWriter implements EncodedSampleWriter {
+    long samplesCount = 0;
+    long bytesCount = 0;
+    long lastPresentationTimeUs = 0;
+
+    @Override
+    public void writeSample(int trackIndex, ByteBuffer data, long presentationTimeUs,
+                            boolean isSyncSample) {
+        samplesCount++;
+        bytesCount += data.remaining();
+        lastPresentationTimeUs = presentationTimeUs;
+    }
+}
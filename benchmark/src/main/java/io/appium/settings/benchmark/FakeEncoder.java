@@ -0,0 +1,130 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Emits a deterministic, interleaved stream of encoded audio and video samples
+ * without allocating anything per sample.
+ */
+class FakeEncoder {
+    static final int TRACK_VIDEO = 0;
+    static final int TRACK_AUDIO = 1;
+
+    private static final long MICROSECONDS_IN_SECOND = 1000000L;
+    private static final int AAC_SAMPLES_PER_FRAME = 1024;
+    private static final byte[] START_CODE = new byte[]{0, 0, 0, 1};
+
+    private final ByteBuffer keyFrame;
+    private final ByteBuffer deltaFrame;
+    private final ByteBuffer audioFrame;
+    private final ByteBuffer codecConfig;
+    private final int frameRate;
+    private final int keyFrameInterval;
+    private final int audioSampleRate;
+
+    private long videoFrameIndex = 0;
+    private long audioFrameIndex = 0;
+    private boolean isVideoConfigSent = false;
+    private boolean isAudioConfigSent = false;
+
+    // The properties of the most recently emitted sample
+    int trackKind;
+    ByteBuffer data;
+    long presentationTimeUs;
+    boolean isSyncSample;
+    boolean isCodecConfig;
+
+    FakeEncoder(int frameRate, int iFrameIntervalSec, int keyFrameSize, int deltaFrameSize,
+                int audioSampleRate, int audioFrameSize) {
+        this.frameRate = frameRate;
+        this.keyFrameInterval = frameRate * iFrameIntervalSec;
+        this.audioSampleRate = audioSampleRate;
+        this.keyFrame = createNalUnit(keyFrameSize, (byte) 0x65);
+        this.deltaFrame = createNalUnit(deltaFrameSize, (byte) 0x41);
+        this.audioFrame = createPayload(audioFrameSize);
+        this.codecConfig = createNalUnit(16, (byte) 0x67);
+    }
+
+    void reset() {
+        videoFrameIndex = 0;
+        audioFrameIndex = 0;
+        isVideoConfigSent = false;
+        isAudioConfigSent = false;
+    }
+
+    long getVideoFramesCount() {
+        return videoFrameIndex;
+    }
+
+    long getAudioFramesCount() {
+        return audioFrameIndex;
+    }
+
+    /**
+     * Advances to the next sample in presentation order
+     */
+    void next() {
+        if (!isAudioConfigSent) {
+            isAudioConfigSent = true;
+            emit(TRACK_AUDIO, codecConfig, 0, false, true);
+            return;
+        }
+        if (!isVideoConfigSent) {
+            isVideoConfigSent = true;
+            emit(TRACK_VIDEO, codecConfig, 0, false, true);
+            return;
+        }
+        long videoTimeUs = videoFrameIndex * MICROSECONDS_IN_SECOND / frameRate;
+        long audioTimeUs = audioFrameIndex * AAC_SAMPLES_PER_FRAME * MICROSECONDS_IN_SECOND
+                / audioSampleRate;
+        if (audioTimeUs <= videoTimeUs) {
+            audioFrameIndex++;
+            emit(TRACK_AUDIO, audioFrame, audioTimeUs, true, false);
+        } else {
+            boolean isKeyFrame = videoFrameIndex % keyFrameInterval == 0;
+            videoFrameIndex++;
+            emit(TRACK_VIDEO, isKeyFrame ? keyFrame : deltaFrame, videoTimeUs, isKeyFrame, false);
+        }
+    }
+
+    private void emit(int trackKind, ByteBuffer data, long presentationTimeUs,
+                      boolean isSyncSample, boolean isCodecConfig) {
+        data.clear();
+        this.trackKind = trackKind;
+        this.data = data;
+        this.presentationTimeUs = presentationTimeUs;
+        this.isSyncSample = isSyncSample;
+        this.isCodecConfig = isCodecConfig;
+    }
+
+    private static ByteBuffer createNalUnit(int size, byte header) {
+        ByteBuffer result = createPayload(size);
+        result.put(START_CODE);
+        result.put(header);
+        result.clear();
+        return result;
+    }
+
+    // The payload must not contain anything looking like an Annex-B start code
+    private static ByteBuffer createPayload(int size) {
+        byte[] payload = new byte[size];
+        Arrays.fill(payload, (byte) 0x5A);
+        return ByteBuffer.wrap(payload);
+    }
+}
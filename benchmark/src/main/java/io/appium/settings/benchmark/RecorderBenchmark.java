@@ -0,0 +1,289 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import io.appium.settings.recorder.EncodedSampleWriter;
+import io.appium.settings.recorder.FragmentedMp4Writer;
+import io.appium.settings.recorder.LumaFrameComparator;
+import io.appium.settings.recorder.MonotonicPresentationTimeSource;
+import io.appium.settings.recorder.MuxerScheduler;
+import io.appium.settings.recorder.PresentationTimeSource;
+import io.appium.settings.recorder.VideoEncoderConfig;
+
+/**
+ * Measures the per-frame CPU and allocation cost of the recorder's own code
+ * (timestamping, muxer scheduling and fragmented MP4 writing) against fake encoder
+ * and muxer stand-ins.
+ * <p>
+ * ./gradlew :benchmark:run [--args="[--check] [scenarioName]"]
+ * </p>
+ * <p>
+ * With --check the process fails if any scenario allocates more than its budget
+ * from {@link #MAX_BYTES_PER_FRAME}. Timings are only reported, since they are
+ * too noisy on shared CI agents.
+ * </p>
+ */
+public class RecorderBenchmark {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 10;
+    // Every iteration simulates 10 seconds of a Full HD recording
+    private static final int RECORDING_DURATION_SEC = 10;
+    private static final int VIDEO_WIDTH = 1920;
+    private static final int VIDEO_HEIGHT = 1080;
+    private static final int AUDIO_SAMPLE_RATE = 44100;
+    private static final int AUDIO_FRAME_SIZE = 186;
+    // Matches the downsampled frame compared by FrameDiffRenderer
+    private static final int LUMA_FRAME_WIDTH = 128;
+    private static final int LUMA_FRAME_HEIGHT = 72;
+    private static final String CHECK_ARGUMENT = "--check";
+
+    // Allocation budgets per scenario. The fragmented MP4 writer copies every sample
+    // (~45 KB per frame of a Full HD recording), while the other scenarios should not allocate at all
+    private static final Map<String, Double> MAX_BYTES_PER_FRAME = new HashMap<>();
+
+    static {
+        MAX_BYTES_PER_FRAME.put("presentationTime", 16.0);
+        MAX_BYTES_PER_FRAME.put("muxerScheduling", 16.0);
+        MAX_BYTES_PER_FRAME.put("fragmentedMp4Writer", 64.0 * 1024);
+        MAX_BYTES_PER_FRAME.put("lumaFrameDiff", 16.0);
+    }
+
+    // Consumes the computed values, so the JIT cannot eliminate the measured code
+    private static volatile double sink;
+
+    private interface Scenario {
+        String getName();
+
+        /**
+         * @return the count of processed frames
+         */
+        long run() throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        VideoEncoderConfig config = VideoEncoderConfig.create(VIDEO_WIDTH, VIDEO_HEIGHT,
+                VideoEncoderConfig.DEFAULT_FRAME_RATE);
+        int averageFrameSize = config.getBitRate() / 8 / config.getFrameRate();
+        FakeEncoder encoder = new FakeEncoder(config.getFrameRate(), config.getIFrameIntervalSec(),
+                averageFrameSize * 4, averageFrameSize, AUDIO_SAMPLE_RATE, AUDIO_FRAME_SIZE);
+        long framesPerIteration = (long) RECORDING_DURATION_SEC
+                * (config.getFrameRate() + AUDIO_SAMPLE_RATE / 1024);
+
+        Scenario[] scenarios = new Scenario[]{
+                new Scenario() {
+                    private final PresentationTimeSource timeSource =
+                            new MonotonicPresentationTimeSource();
+
+                    @Override
+                    public String getName() {
+                        return "presentationTime";
+                    }
+
+                    @Override
+                    public long run() {
+                        long checksum = 0;
+                        for (long i = 0; i < framesPerIteration; i++) {
+                            checksum += timeSource.getPresentationTimeUs();
+                        }
+                        sink = checksum;
+                        return framesPerIteration;
+                    }
+                },
+                new Scenario() {
+                    @Override
+                    public String getName() {
+                        return "muxerScheduling";
+                    }
+
+                    @Override
+                    public long run() throws IOException {
+                        return drain(encoder, new CountingSampleWriter(), framesPerIteration);
+                    }
+                },
+                new Scenario() {
+                    @Override
+                    public String getName() {
+                        return "fragmentedMp4Writer";
+                    }
+
+                    @Override
+                    public long run() throws IOException {
+                        File output = File.createTempFile("recorder-benchmark", ".mp4");
+                        try {
+                            FragmentedMp4Writer writer =
+                                    new FragmentedMp4Writer(output.getAbsolutePath());
+                            writer.addVideoTrack(VIDEO_WIDTH, VIDEO_HEIGHT,
+                                    new byte[]{0x67, 0x64, 0x00, 0x28}, new byte[]{0x68, (byte) 0xEE});
+                            writer.addAudioTrack(AUDIO_SAMPLE_RATE, 1, new byte[]{0x12, 0x08});
+                            writer.start();
+                            long frames = drain(encoder, writer, framesPerIteration);
+                            writer.stop();
+                            return frames;
+                        } finally {
+                            //noinspection ResultOfMethodCallIgnored
+                            output.delete();
+                        }
+                    }
+                },
+                new Scenario() {
+                    private final LumaFrameComparator comparator = new LumaFrameComparator(4, 16);
+                    private final ByteBuffer previous =
+                            ByteBuffer.allocateDirect(LUMA_FRAME_WIDTH * LUMA_FRAME_HEIGHT * 4);
+                    private final ByteBuffer current =
+                            ByteBuffer.allocateDirect(LUMA_FRAME_WIDTH * LUMA_FRAME_HEIGHT * 4);
+
+                    @Override
+                    public String getName() {
+                        return "lumaFrameDiff";
+                    }
+
+                    @Override
+                    public long run() {
+                        long frames = (long) RECORDING_DURATION_SEC * config.getFrameRate();
+                        float checksum = 0;
+                        for (long i = 0; i < frames; i++) {
+                            // Simulates a small moving change, e.g. a blinking cursor
+                            current.put((int) (i % current.capacity()) & ~3, (byte) i);
+                            checksum += comparator.getChangedPercentage(previous, current);
+                        }
+                        sink = checksum;
+                        return frames;
+                    }
+                },
+        };
+
+        boolean isCheckRequested = false;
+        String filter = null;
+        for (String arg : args) {
+            if (CHECK_ARGUMENT.equals(arg)) {
+                isCheckRequested = true;
+            } else {
+                filter = arg;
+            }
+        }
+        System.out.println(String.format(Locale.US, "%-22s %14s %14s %14s",
+                "Scenario", "ns/frame", "min ns/frame", "B/frame"));
+        List<String> failures = new ArrayList<>();
+        for (Scenario scenario : scenarios) {
+            if (filter != null && !scenario.getName().equals(filter)) {
+                continue;
+            }
+            double bytesPerFrame = measure(scenario);
+            double maxBytesPerFrame = MAX_BYTES_PER_FRAME.get(scenario.getName());
+            if (bytesPerFrame > maxBytesPerFrame) {
+                failures.add(String.format(Locale.US, "%s allocates %.2f B/frame, the budget is %.2f",
+                        scenario.getName(), bytesPerFrame, maxBytesPerFrame));
+            }
+        }
+        if (isCheckRequested && !failures.isEmpty()) {
+            for (String failure : failures) {
+                System.err.println(failure);
+            }
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Mirrors the drain loop of RecorderThread: the muxer is started once both tracks
+     * are known, and samples are filtered by the scheduler before being written
+     */
+    private static long drain(FakeEncoder encoder, EncodedSampleWriter writer, long frames)
+            throws IOException {
+        MuxerScheduler scheduler = new MuxerScheduler();
+        encoder.reset();
+        long processed = 0;
+        while (processed < frames) {
+            encoder.next();
+            processed++;
+            if (encoder.trackKind == FakeEncoder.TRACK_AUDIO) {
+                if (encoder.isCodecConfig && !scheduler.hasAudioTrack()) {
+                    if (scheduler.onAudioTrackAdded(1)) {
+                        scheduler.onMuxerStarted();
+                    }
+                    continue;
+                }
+                if (scheduler.shouldWriteAudioSample(encoder.presentationTimeUs,
+                        encoder.data.remaining(), encoder.isCodecConfig)) {
+                    writer.writeSample(scheduler.getAudioTrackIndex(), encoder.data,
+                            encoder.presentationTimeUs, true);
+                }
+            } else {
+                if (encoder.isCodecConfig && !scheduler.hasVideoTrack()) {
+                    if (scheduler.onVideoTrackAdded(0)) {
+                        scheduler.onMuxerStarted();
+                    }
+                    continue;
+                }
+                if (scheduler.isWaitingForAudioTrack()) {
+                    continue;
+                }
+                if (scheduler.shouldWriteVideoSample(encoder.data.remaining(),
+                        encoder.isCodecConfig)) {
+                    writer.writeSample(scheduler.getVideoTrackIndex(), encoder.data,
+                            encoder.presentationTimeUs, encoder.isSyncSample);
+                }
+            }
+        }
+        return processed;
+    }
+
+    /**
+     * @return the average amount of bytes allocated per frame
+     */
+    private static double measure(Scenario scenario) throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            scenario.run();
+        }
+        double totalNsPerFrame = 0;
+        double minNsPerFrame = Double.MAX_VALUE;
+        double totalBytesPerFrame = 0;
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            long allocatedBefore = getAllocatedBytes();
+            long startTime = System.nanoTime();
+            long frames = scenario.run();
+            long elapsed = System.nanoTime() - startTime;
+            long allocated = getAllocatedBytes() - allocatedBefore;
+            double nsPerFrame = (double) elapsed / frames;
+            totalNsPerFrame += nsPerFrame;
+            minNsPerFrame = Math.min(minNsPerFrame, nsPerFrame);
+            totalBytesPerFrame += (double) allocated / frames;
+        }
+        System.out.println(String.format(Locale.US, "%-22s %14.1f %14.1f %14.2f",
+                scenario.getName(), totalNsPerFrame / MEASUREMENT_ITERATIONS, minNsPerFrame,
+                totalBytesPerFrame / MEASUREMENT_ITERATIONS));
+        return totalBytesPerFrame / MEASUREMENT_ITERATIONS;
+    }
+
+    private static long getAllocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
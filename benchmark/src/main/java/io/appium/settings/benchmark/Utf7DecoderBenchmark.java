@@ -0,0 +1,268 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import io.appium.settings.ime.ModifiedUtf7Decoder;
+
+/**
+ * Measures the per-character CPU and allocation cost of the Modified UTF-7 decoder
+ * used by UnicodeIME. Its correctness is verified by ModifiedUtf7DecoderTest.
+ * <p>
+ * ./gradlew :benchmark:runUtf7Decoder [--args="[--check] [scenarioName]"]
+ * </p>
+ * <p>
+ * With --check the process fails if any scenario allocates more than its budget
+ * from {@link #MAX_BYTES_PER_CHAR}.
+ * </p>
+ */
+public class Utf7DecoderBenchmark {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 10;
+    private static final int TEXT_LENGTH = 100000;
+    private static final long RANDOM_SEED = 42;
+    private static final String CHECK_ARGUMENT = "--check";
+
+    // Allocation budgets per scenario. Only committing the decoded text
+    // allocates a new string (~12.5 B per input character)
+    private static final Map<String, Double> MAX_BYTES_PER_CHAR = new HashMap<>();
+
+    static {
+        MAX_BYTES_PER_CHAR.put("ascii", 1.0);
+        MAX_BYTES_PER_CHAR.put("mixed", 1.0);
+        MAX_BYTES_PER_CHAR.put("nonAscii", 1.0);
+        MAX_BYTES_PER_CHAR.put("mixedTakeDecoded", 24.0);
+    }
+
+    // Consumes the computed values, so the JIT cannot eliminate the measured code
+    private static volatile double sink;
+
+    private interface Scenario {
+        String getName();
+
+        /**
+         * @return the count of processed input characters
+         */
+        long run();
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(RANDOM_SEED);
+        final String asciiInput = encode(randomText(random, TEXT_LENGTH, 0));
+        final String mixedInput = encode(randomText(random, TEXT_LENGTH, 50));
+        final String nonAsciiInput = encode(randomText(random, TEXT_LENGTH, 100));
+        final ModifiedUtf7Decoder decoder = new ModifiedUtf7Decoder();
+
+        Scenario[] scenarios = new Scenario[]{
+                new DecoderScenario("ascii", decoder, asciiInput),
+                new DecoderScenario("mixed", decoder, mixedInput),
+                new DecoderScenario("nonAscii", decoder, nonAsciiInput),
+                // Mirrors UnicodeIME, which commits a string after every key press
+                new Scenario() {
+                    @Override
+                    public String getName() {
+                        return "mixedTakeDecoded";
+                    }
+
+                    @Override
+                    public long run() {
+                        decoder.reset();
+                        long checksum = 0;
+                        for (int i = 0; i < mixedInput.length(); i++) {
+                            decoder.feed(mixedInput.charAt(i));
+                            if (decoder.getDecodedLength() > 0) {
+                                checksum += decoder.takeDecoded().length();
+                            }
+                        }
+                        sink = checksum;
+                        return mixedInput.length();
+                    }
+                },
+        };
+
+        boolean isCheckRequested = false;
+        String filter = null;
+        for (String arg : args) {
+            if (CHECK_ARGUMENT.equals(arg)) {
+                isCheckRequested = true;
+            } else {
+                filter = arg;
+            }
+        }
+        System.out.println(String.format(Locale.US, "%-22s %14s %14s %14s",
+                "Scenario", "ns/char", "min ns/char", "B/char"));
+        List<String> failures = new ArrayList<>();
+        for (Scenario scenario : scenarios) {
+            if (filter != null && !scenario.getName().equals(filter)) {
+                continue;
+            }
+            double bytesPerChar = measure(scenario);
+            double maxBytesPerChar = MAX_BYTES_PER_CHAR.get(scenario.getName());
+            if (bytesPerChar > maxBytesPerChar) {
+                failures.add(String.format(Locale.US, "%s allocates %.2f B/char, the budget is %.2f",
+                        scenario.getName(), bytesPerChar, maxBytesPerChar));
+            }
+        }
+        if (isCheckRequested && !failures.isEmpty()) {
+            for (String failure : failures) {
+                System.err.println(failure);
+            }
+            System.exit(1);
+        }
+    }
+
+    private static class DecoderScenario implements Scenario {
+        private final String name;
+        private final ModifiedUtf7Decoder decoder;
+        private final String input;
+
+        DecoderScenario(String name, ModifiedUtf7Decoder decoder, String input) {
+            this.name = name;
+            this.decoder = decoder;
+            this.input = input;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long run() {
+            decoder.reset();
+            long checksum = 0;
+            for (int i = 0; i < input.length(); i++) {
+                decoder.feed(input.charAt(i));
+                int length = decoder.getDecodedLength();
+                if (length > 0) {
+                    checksum += decoder.getDecodedBuffer()[length - 1];
+                    decoder.clearDecoded();
+                }
+            }
+            sink = checksum;
+            return input.length();
+        }
+    }
+
+    /**
+     * @param nonAsciiPercent the probability of a non-ASCII code point
+     */
+    static String randomText(Random random, int codePoints, int nonAsciiPercent) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < codePoints; i++) {
+            if (random.nextInt(100) >= nonAsciiPercent) {
+                result.append((char) (0x20 + random.nextInt(0x7F - 0x20)));
+                continue;
+            }
+            int codePoint;
+            switch (random.nextInt(3)) {
+                case 0:
+                    // Latin-1 Supplement up to CJK
+                    codePoint = 0x80 + random.nextInt(0x9FFF - 0x80);
+                    break;
+                case 1:
+                    // Supplementary planes, e.g. emoji
+                    codePoint = 0x10000 + random.nextInt(0x1FFFF - 0x10000);
+                    break;
+                default:
+                    codePoint = 0xE000 + random.nextInt(0xFFFE - 0xE000);
+                    break;
+            }
+            if (Character.isSurrogate((char) codePoint) && codePoint < 0x10000) {
+                codePoint = 0x4E00;
+            }
+            result.appendCodePoint(codePoint);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Reference Modified UTF-7 (RFC 3501) encoder
+     */
+    static String encode(String text) {
+        StringBuilder result = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == ModifiedUtf7Decoder.SHIFT) {
+                result.append("&-");
+                i++;
+            } else if (c >= 0x20 && c <= 0x7E) {
+                result.append(c);
+                i++;
+            } else {
+                int end = i;
+                while (end < text.length()
+                        && (text.charAt(end) < 0x20 || text.charAt(end) > 0x7E)) {
+                    end++;
+                }
+                byte[] utf16 = text.substring(i, end).getBytes(StandardCharsets.UTF_16BE);
+                result.append(ModifiedUtf7Decoder.SHIFT)
+                        .append(Base64.getEncoder().withoutPadding().encodeToString(utf16)
+                                .replace('/', ','))
+                        .append(ModifiedUtf7Decoder.UNSHIFT);
+                i = end;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return the average amount of bytes allocated per input character
+     */
+    private static double measure(Scenario scenario) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            scenario.run();
+        }
+        double totalNsPerChar = 0;
+        double minNsPerChar = Double.MAX_VALUE;
+        double totalBytesPerChar = 0;
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            long allocatedBefore = getAllocatedBytes();
+            long startTime = System.nanoTime();
+            long chars = scenario.run();
+            long elapsed = System.nanoTime() - startTime;
+            long allocated = getAllocatedBytes() - allocatedBefore;
+            double nsPerChar = (double) elapsed / chars;
+            totalNsPerChar += nsPerChar;
+            minNsPerChar = Math.min(minNsPerChar, nsPerChar);
+            totalBytesPerChar += (double) allocated / chars;
+        }
+        System.out.println(String.format(Locale.US, "%-22s %14.1f %14.1f %14.2f",
+                scenario.getName(), totalNsPerChar / MEASUREMENT_ITERATIONS, minNsPerChar,
+                totalBytesPerChar / MEASUREMENT_ITERATIONS));
+        return totalBytesPerChar / MEASUREMENT_ITERATIONS;
+    }
+
+    private static long getAllocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
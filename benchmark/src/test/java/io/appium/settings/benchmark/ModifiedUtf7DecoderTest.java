@@ -0,0 +1,78 @@
+/*
+  Copyright 2012-present Appium Committers
+  <p>
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+  <p>
+  http://www.apache.org/licenses/LICENSE-2.0
+  <p>
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+package io.appium.settings.benchmark;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import io.appium.settings.ime.ModifiedUtf7Decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ModifiedUtf7DecoderTest {
+    private static final int FUZZ_ITERATIONS = 20000;
+    private static final int FUZZ_MAX_TEXT_LENGTH = 64;
+    private static final long RANDOM_SEED = 42;
+
+    private static String decode(ModifiedUtf7Decoder decoder, String encoded) {
+        decoder.reset();
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < encoded.length(); i++) {
+            assertTrue(String.format("The character #%d of '%s' has been rejected", i, encoded),
+                    decoder.feed(encoded.charAt(i)));
+            result.append(decoder.takeDecoded());
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void decodesRfc3501Example() {
+        ModifiedUtf7Decoder decoder = new ModifiedUtf7Decoder();
+        assertEquals("~peter/mail/\u53F0\u5317/\u65E5\u672C\u8A9E",
+                decode(decoder, "~peter/mail/&U,BTFw-/&ZeVnLIqe-"));
+        assertEquals(0, decoder.getMalformedInputCount());
+    }
+
+    @Test
+    public void decodesEscapedShift() {
+        ModifiedUtf7Decoder decoder = new ModifiedUtf7Decoder();
+        assertEquals("a&b", decode(decoder, "a&-b"));
+        assertFalse(decoder.isShifted());
+    }
+
+    /**
+     * Decodes random texts encoded by the reference encoder, with the decoded
+     * characters being taken after every input character
+     */
+    @Test
+    public void decodesRandomTexts() {
+        Random random = new Random(RANDOM_SEED);
+        ModifiedUtf7Decoder decoder = new ModifiedUtf7Decoder();
+        for (int i = 0; i < FUZZ_ITERATIONS; i++) {
+            String text = Utf7DecoderBenchmark.randomText(random,
+                    random.nextInt(FUZZ_MAX_TEXT_LENGTH + 1), random.nextInt(101));
+            String encoded = Utf7DecoderBenchmark.encode(text);
+
+            assertEquals(String.format("'%s' has been decoded incorrectly", encoded),
+                    text, decode(decoder, encoded));
+            assertEquals(0, decoder.getMalformedInputCount());
+            assertFalse(decoder.isShifted());
+        }
+    }
+}